@@ -0,0 +1,70 @@
+package com.ochwada.expense_assistant.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the clients turn a FreeCurrency / OpenWeather response body into a rate or a {@code WeatherData}.
+ * The bodies match the size and shape of real responses.
+ * <p>
+ * The {@code tree*} methods are the previous approach (body decoded to a {@code String}, then a full {@code JsonNode}
+ * tree) and serve as the baseline for the streaming parsers the clients use. Run with {@code -prof gc} to compare the
+ * bytes allocated per response ({@code gc.alloc.rate.norm}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientParsingBenchmark {
+
+    static final String CURRENCY_BODY = "{\"data\":{\"USD\":1.0869565217}}";
+
+    static final String WEATHER_BODY = """
+            {"coord":{"lon":2.159,"lat":41.3888},"weather":[{"id":800,"main":"Clear","description":"clear sky",\
+            "icon":"01d"}],"base":"stations","main":{"temp":25.02,"feels_like":25.21,"temp_min":23.85,\
+            "temp_max":26.16,"pressure":1014,"humidity":64,"sea_level":1014,"grnd_level":1009},"visibility":10000,\
+            "wind":{"speed":4.63,"deg":150},"clouds":{"all":0},"dt":1721302345,"sys":{"type":2,"id":18549,\
+            "country":"ES","sunrise":1721276470,"sunset":1721330072},"timezone":7200,"id":3128760,\
+            "name":"Barcelona","cod":200}""";
+
+    private static final byte[] CURRENCY_BYTES = CURRENCY_BODY.getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] WEATHER_BYTES = WEATHER_BODY.getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final JsonFactory factory = mapper.getFactory();
+
+    @Benchmark
+    public double streamCurrency() throws IOException {
+        return CurrencyClient.parseRate(factory, new ByteArrayInputStream(CURRENCY_BYTES), "USD");
+    }
+
+    @Benchmark
+    public WeatherClient.WeatherData streamWeather() throws IOException {
+        return WeatherClient.parseWeather(factory, new ByteArrayInputStream(WEATHER_BYTES));
+    }
+
+    @Benchmark
+    public double treeCurrency() throws IOException {
+        JsonNode root = mapper.readTree(new String(CURRENCY_BYTES, StandardCharsets.UTF_8));
+        return root.path("data").path("USD").asDouble();
+    }
+
+    @Benchmark
+    public WeatherClient.WeatherData treeWeather() throws IOException {
+        JsonNode root = mapper.readTree(new String(WEATHER_BYTES, StandardCharsets.UTF_8));
+        return new WeatherClient.WeatherData(
+                root.path("weather").get(0).path("description").asText(),
+                root.path("main").path("temp").asDouble());
+    }
+}
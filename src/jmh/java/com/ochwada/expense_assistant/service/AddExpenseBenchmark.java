@@ -0,0 +1,81 @@
+package com.ochwada.expense_assistant.service;
+
+import com.ochwada.expense_assistant.ExpenseAssistantApplication;
+import com.ochwada.expense_assistant.dto.ExpenseRequest;
+import com.ochwada.expense_assistant.model.Expense;
+import com.ochwada.expense_assistant.support.StubUpstreamServer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ExpenseService#addExpense} end to end: enrichment over HTTP against {@link StubUpstreamServer} and a
+ * write to MongoDB.
+ * <p>
+ * MongoDB must be reachable at the {@code bench.mongodb.uri} system property (default
+ * {@code mongodb://localhost:27017}); the benchmark writes to a scratch {@code expense_benchmark} database and drops it
+ * afterwards. With {@code caches=cold} the rate and
+ * weather caches expire immediately, so every call goes upstream.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AddExpenseBenchmark {
+
+    @Param({"warm", "cold"})
+    public String caches;
+
+    private StubUpstreamServer upstream;
+    private ConfigurableApplicationContext context;
+    private ExpenseService service;
+    private ExpenseRequest request;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        upstream = new StubUpstreamServer(0);
+        String ttl = "warm".equals(caches) ? "1h" : "0s";
+
+        // Command-line arguments outrank application.properties, so these point the app at the stubs
+        context = new SpringApplicationBuilder(ExpenseAssistantApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run(
+                        "--spring.data.mongodb.uri=" + System.getProperty("bench.mongodb.uri", "mongodb://localhost:27017"),
+                        "--spring.data.mongodb.database=expense_benchmark",
+                        "--currency.api.key=bench",
+                        "--currency.api.url=" + upstream.currencyUrl(),
+                        "--openweather.api.key=bench",
+                        "--openweather.api.url=" + upstream.weatherUrl(),
+                        "--currency.cache.ttl=" + ttl,
+                        "--openweather.cache.ttl=" + ttl,
+                        "--logging.level.root=WARN"
+                );
+        service = context.getBean(ExpenseService.class);
+
+        request = new ExpenseRequest();
+        request.setAmount(150);
+        request.setCurrency("EUR");
+        request.setCity("Barcelona");
+        request.setDescription("Dinner with clients");
+    }
+
+    @Benchmark
+    public Expense addExpense() {
+        return service.addExpense(request);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.getBean(MongoTemplate.class).getDb().drop();
+        context.close();
+        upstream.close();
+    }
+}
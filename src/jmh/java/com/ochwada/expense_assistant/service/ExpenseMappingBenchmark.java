@@ -0,0 +1,81 @@
+package com.ochwada.expense_assistant.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.ochwada.expense_assistant.client.CurrencyClient;
+import com.ochwada.expense_assistant.client.WeatherClient;
+import com.ochwada.expense_assistant.dto.ExpenseRequest;
+import com.ochwada.expense_assistant.model.Expense;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building an {@link Expense} from a request and its enrichment data, and mapping it to the two
+ * representations it is written as: a BSON document for MongoDB and a JSON response body.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpenseMappingBenchmark {
+
+    private ExpenseRequest request;
+    private CurrencyClient.CurrencyData currencyData;
+    private WeatherClient.WeatherData weatherData;
+    private Expense expense;
+    private MappingMongoConverter converter;
+    private ObjectMapper mapper;
+
+    @Setup
+    public void setUp() {
+        request = new ExpenseRequest();
+        request.setAmount(150);
+        request.setCurrency("EUR");
+        request.setCity("Barcelona");
+        request.setDescription("Dinner with clients");
+        currencyData = new CurrencyClient.CurrencyData("EUR", "USD", 150, 1.0869, 163.035);
+        weatherData = new WeatherClient.WeatherData("clear sky", 25.02);
+
+        expense = ExpenseService.toExpense(request, currencyData, weatherData);
+        expense.setId("66990f6e2d1f4a6b8c3e5d7a");
+        expense.setCreatedAt(Instant.parse("2025-07-18T11:02:00Z"));
+
+        // Same conversions Spring Boot registers, so java.time types are written natively
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        mapper = JsonMapper.builder().findAndAddModules().build();
+    }
+
+    @Benchmark
+    public Expense buildExpense() {
+        return ExpenseService.toExpense(request, currencyData, weatherData);
+    }
+
+    @Benchmark
+    public Document toMongoDocument() {
+        Document document = new Document();
+        converter.write(expense, document);
+        return document;
+    }
+
+    @Benchmark
+    public byte[] toJson() throws Exception {
+        return mapper.writeValueAsBytes(expense);
+    }
+}
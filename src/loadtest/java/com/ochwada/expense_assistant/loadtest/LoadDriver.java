@@ -0,0 +1,309 @@
+package com.ochwada.expense_assistant.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives a mix of create, read and list requests against a running instance and records the latency distribution of
+ * each.
+ * <p>
+ * By default the load is closed: {@code concurrency} virtual threads each send their next request as soon as the
+ * previous one is answered, which finds the maximum throughput. With a {@code rate}, requests are started on a fixed
+ * schedule instead (at most {@code concurrency} in flight) and latency is measured from the scheduled start, so a
+ * server that falls behind shows up in the percentiles rather than as fewer requests sent.
+ * <p>
+ * Requests sent during the warmup are not recorded. A request counts as an error if it throws or is not answered with
+ * a 2xx status.
+ */
+public class LoadDriver {
+
+    public enum Operation { CREATE, READ, LIST }
+
+    private static final String[] CITIES = {
+            "Berlin", "Paris", "London", "Madrid", "Rome", "Vienna", "Prague", "Lisbon", "Dublin", "Oslo",
+            "Nairobi", "Tokyo", "Toronto", "Sydney", "Zurich", "Amsterdam", "Warsaw", "Athens", "Helsinki", "Mombasa"};
+
+    private static final String[] CURRENCIES = {"EUR", "GBP", "JPY", "CHF", "CAD", "AUD", "KES", "USD"};
+
+    /**
+     * Number of recently created ids that reads and list cursors are drawn from.
+     */
+    private static final int ID_POOL_SIZE = 10_000;
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final URI baseUrl;
+    private final int concurrency;
+    private final Duration warmup;
+    private final Duration duration;
+    private final double rate;
+    private final Map<Operation, Integer> mix;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final AtomicReferenceArray<String> ids = new AtomicReferenceArray<>(ID_POOL_SIZE);
+    private final AtomicLong idsCreated = new AtomicLong();
+
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    /**
+     * @param baseUrl     the application's root URL, e.g. {@code http://localhost:9090}
+     * @param concurrency closed load: number of concurrent clients; scheduled load: maximum requests in flight
+     * @param warmup      how long to send requests before recording
+     * @param duration    how long to record
+     * @param rate        requests per second for a scheduled load, or 0 for a closed load
+     * @param mix         relative weight of each operation
+     */
+    public LoadDriver(URI baseUrl, int concurrency, Duration warmup, Duration duration, double rate,
+                      Map<Operation, Integer> mix) {
+        this.baseUrl = baseUrl;
+        this.concurrency = concurrency;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.rate = rate;
+        this.mix = mix;
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    /**
+     * Parses an operation mix such as {@code create:20,read:60,list:20}.
+     */
+    public static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] weight = part.trim().split(":");
+            weights.put(Operation.valueOf(weight[0].trim().toUpperCase(Locale.ROOT)),
+                    Integer.parseInt(weight[1].trim()));
+        }
+        return weights;
+    }
+
+    /**
+     * Runs the warmup and the measurement and returns what was recorded.
+     */
+    public Report run() throws InterruptedException {
+        long start = System.nanoTime();
+        long recordFrom = start + warmup.toNanos();
+        long end = recordFrom + duration.toNanos();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            if (rate > 0) {
+                clients.submit(() -> schedule(clients, recordFrom, end));
+            } else {
+                for (int i = 0; i < concurrency; i++) {
+                    clients.submit(() -> {
+                        for (long now = System.nanoTime(); now < end; now = System.nanoTime()) {
+                            send(pick(), now, now >= recordFrom);
+                        }
+                    });
+                }
+            }
+        }
+        return report(duration);
+    }
+
+    /**
+     * Starts one request every {@code 1/rate} seconds until {@code end}, each on its own virtual thread.
+     */
+    private void schedule(ExecutorService clients, long recordFrom, long end) {
+        Semaphore inFlight = new Semaphore(concurrency);
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long first = System.nanoTime();
+        for (long n = 0; ; n++) {
+            long intended = first + (long) (n * intervalNanos);
+            if (intended >= end) {
+                return;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            // Waiting for a free slot counts towards the request's latency
+            inFlight.acquireUninterruptibly();
+            clients.submit(() -> {
+                try {
+                    send(pick(), intended, intended >= recordFrom);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+    }
+
+    private Operation pick() {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int roll = ThreadLocalRandom.current().nextInt(total);
+        for (Map.Entry<Operation, Integer> weight : mix.entrySet()) {
+            roll -= weight.getValue();
+            if (roll < 0) {
+                // Reads need an existing expense; until one has been created, create instead
+                return weight.getKey() == Operation.READ && idsCreated.get() == 0 ? Operation.CREATE : weight.getKey();
+            }
+        }
+        return Operation.CREATE;
+    }
+
+    /**
+     * Sends one request and, if {@code record} is set, records its latency measured from {@code startNanos}.
+     */
+    private void send(Operation operation, long startNanos, boolean record) {
+        try {
+            HttpResponse<String> response = http.send(request(operation), HttpResponse.BodyHandlers.ofString());
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+            if (response.statusCode() / 100 != 2) {
+                if (record) {
+                    errors.get(operation).increment();
+                }
+                return;
+            }
+            if (operation == Operation.CREATE) {
+                remember(mapper.readTree(response.body()));
+            }
+            if (record) {
+                latencies.get(operation).recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            if (record) {
+                errors.get(operation).increment();
+            }
+        }
+    }
+
+    private HttpRequest request(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (operation) {
+            case CREATE -> HttpRequest.newBuilder(baseUrl.resolve("/api/expenses"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(String.format(Locale.ROOT,
+                            "{\"description\":\"Load test\",\"amount\":%.2f,\"currency\":\"%s\",\"city\":\"%s\"}",
+                            1 + random.nextDouble(500),
+                            CURRENCIES[random.nextInt(CURRENCIES.length)], CITIES[random.nextInt(CITIES.length)])))
+                    .build();
+            case READ -> HttpRequest.newBuilder(baseUrl.resolve("/api/expenses/" + randomId())).GET().build();
+            case LIST -> {
+                // Half of the pages start at a random recent expense, the rest at the beginning
+                String id = random.nextBoolean() ? randomId() : null;
+                String query = "?limit=50" + (id != null ? "&cursor=" + id : "");
+                yield HttpRequest.newBuilder(baseUrl.resolve("/api/expenses" + query)).GET().build();
+            }
+        };
+    }
+
+    private void remember(JsonNode created) {
+        JsonNode id = created.get("id");
+        if (id != null && id.isTextual()) {
+            ids.set((int) (idsCreated.getAndIncrement() % ID_POOL_SIZE), id.asText());
+        }
+    }
+
+    private String randomId() {
+        long created = idsCreated.get();
+        if (created == 0) {
+            return null;
+        }
+        String id = ids.get(ThreadLocalRandom.current().nextInt((int) Math.min(created, ID_POOL_SIZE)));
+        return id != null ? id : ids.get(0);
+    }
+
+    private Report report(Duration measured) {
+        double seconds = measured.toNanos() / 1e9;
+        Map<Operation, Stats> stats = new LinkedHashMap<>();
+        Histogram all = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long allErrors = 0;
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = latencies.get(operation);
+            long failed = errors.get(operation).sum();
+            if (histogram.getTotalCount() + failed > 0) {
+                stats.put(operation, Stats.of(histogram, failed, seconds));
+            }
+            all.add(histogram);
+            allErrors += failed;
+        }
+        return new Report(measured.toMillis(), rate > 0 ? "scheduled" : "closed", concurrency, rate, stats,
+                Stats.of(all, allErrors, seconds));
+    }
+
+    // ============================== Report =========================================
+
+    /**
+     * Throughput and latency of one operation, or of all of them. Latencies are in milliseconds.
+     */
+    public record Stats(long count, long errors, double errorRate, double throughput,
+                        double p50, double p90, double p99, double p999, double max) {
+
+        static Stats of(Histogram histogram, long errors, double seconds) {
+            long count = histogram.getTotalCount();
+            return new Stats(count, errors, count + errors > 0 ? (double) errors / (count + errors) : 0,
+                    count / seconds,
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()));
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+    }
+
+    /**
+     * Everything recorded during the measurement.
+     */
+    public record Report(long durationMs, String load, int concurrency, double rate,
+                         Map<Operation, Stats> operations, Stats total) {
+
+        /**
+         * Formats the report as a table, one row per operation and a total row.
+         */
+        public String toTable() {
+            List<String> lines = new ArrayList<>();
+            lines.add(String.format(Locale.ROOT, "%-7s %9s %7s %10s %9s %9s %9s %9s %9s",
+                    "op", "count", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+            operations.forEach((operation, stats) -> lines.add(row(operation.name().toLowerCase(Locale.ROOT), stats)));
+            lines.add(row("total", total));
+            return String.join(System.lineSeparator(), lines);
+        }
+
+        private static String row(String name, Stats stats) {
+            return String.format(Locale.ROOT, "%-7s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f", name,
+                    stats.count(), stats.errors(), stats.throughput(), stats.p50(), stats.p90(), stats.p99(),
+                    stats.p999(), stats.max());
+        }
+    }
+}
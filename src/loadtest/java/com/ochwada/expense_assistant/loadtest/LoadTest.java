@@ -0,0 +1,164 @@
+package com.ochwada.expense_assistant.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ochwada.expense_assistant.ExpenseAssistantApplication;
+import com.ochwada.expense_assistant.support.StubUpstreamServer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.File;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * End-to-end load test that runs offline on one machine.
+ * <p>
+ * Unless {@code --target} names an instance that is already running, it starts {@link StubUpstreamServer} in place of
+ * the currency and weather APIs and the application itself (on a free port, against a scratch
+ * {@code expense_loadtest} database that is dropped afterwards), then drives it with {@link LoadDriver}. MongoDB must
+ * be reachable at {@code --mongodb-uri}, e.g. the one started by {@code docker compose --profile loadtest up -d mongo}.
+ * <p>
+ * The report is printed and written as JSON to {@code --report}. The process exits with status 1 if the error rate,
+ * throughput or p99 latency misses its threshold, so the run can gate a release.
+ * <p>
+ * Options (defaults in brackets):
+ * <ul>
+ *     <li>{@code --target} URL of a running instance; nothing is started [none]</li>
+ *     <li>{@code --mongodb-uri} [mongodb://localhost:27017]</li>
+ *     <li>{@code --concurrency} concurrent clients, or maximum requests in flight with {@code --rate} [32]</li>
+ *     <li>{@code --rate} requests per second; 0 sends as fast as responses allow [0]</li>
+ *     <li>{@code --warmup} [15s] and {@code --duration} [60s]</li>
+ *     <li>{@code --mix} relative weights of the operations [create:20,read:60,list:20]</li>
+ *     <li>{@code --upstream-latency} [20ms], {@code --upstream-jitter} [10ms] and {@code --upstream-error-rate} [0]
+ *     of the stub APIs</li>
+ *     <li>{@code --max-error-rate} [0.01], {@code --min-throughput} in requests per second [0] and {@code --max-p99}
+ *     in milliseconds, per operation [none]</li>
+ *     <li>{@code --report} [target/loadtest-result.json]</li>
+ * </ul>
+ * Any other {@code --name=value} option is passed to the started application, e.g. {@code --app.enrichment.mode=async}.
+ */
+public class LoadTest {
+
+    private static final Set<String> OPTIONS = Set.of("target", "mongodb-uri", "concurrency", "rate", "warmup",
+            "duration", "mix", "upstream-latency", "upstream-jitter", "upstream-error-rate", "max-error-rate",
+            "min-throughput", "max-p99", "report");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> appArgs = new ArrayList<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String name = arg.startsWith("--") && eq > 2 ? arg.substring(2, eq) : null;
+            if (name != null && OPTIONS.contains(name)) {
+                options.put(name, arg.substring(eq + 1));
+            } else if (!arg.isBlank()) {
+                appArgs.add(arg);
+            }
+        }
+
+        StubUpstreamServer upstream = null;
+        ConfigurableApplicationContext app = null;
+        LoadDriver.Report report;
+        try {
+            URI target;
+            if (options.containsKey("target")) {
+                target = URI.create(options.get("target"));
+            } else {
+                upstream = new StubUpstreamServer(0)
+                        .withLatency(duration(options, "upstream-latency", "20ms"),
+                                duration(options, "upstream-jitter", "10ms"))
+                        .withErrorRate(Double.parseDouble(options.getOrDefault("upstream-error-rate", "0")));
+                app = startApplication(upstream, options.getOrDefault("mongodb-uri", "mongodb://localhost:27017"),
+                        appArgs);
+                target = URI.create("http://127.0.0.1:" + app.getEnvironment().getProperty("local.server.port"));
+            }
+
+            LoadDriver driver = new LoadDriver(target,
+                    Integer.parseInt(options.getOrDefault("concurrency", "32")),
+                    duration(options, "warmup", "15s"),
+                    duration(options, "duration", "60s"),
+                    Double.parseDouble(options.getOrDefault("rate", "0")),
+                    LoadDriver.parseMix(options.getOrDefault("mix", "create:20,read:60,list:20")));
+            System.out.println("Load test against " + target + " " + options);
+            report = driver.run();
+        } finally {
+            if (app != null) {
+                app.getBean(MongoTemplate.class).getDb().drop();
+                app.close();
+            }
+            if (upstream != null) {
+                upstream.close();
+            }
+        }
+
+        System.out.println(report.toTable());
+        File output = new File(options.getOrDefault("report", "target/loadtest-result.json"));
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output, report);
+        System.out.println("Report written to " + output);
+
+        List<String> failures = check(report, options);
+        failures.forEach(failure -> System.out.println("FAILED: " + failure));
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * Starts the application on a free port, pointed at the stub APIs and a scratch database. Command-line arguments
+     * outrank application.properties, and the extra arguments come last so they can override these.
+     */
+    private static ConfigurableApplicationContext startApplication(StubUpstreamServer upstream, String mongodbUri,
+                                                                   List<String> extraArgs) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.data.mongodb.uri=" + mongodbUri,
+                "--spring.data.mongodb.database=expense_loadtest",
+                "--currency.api.key=loadtest",
+                "--currency.api.url=" + upstream.currencyUrl(),
+                "--openweather.api.key=loadtest",
+                "--openweather.api.url=" + upstream.weatherUrl(),
+                // Start cold on every run rather than from a previous run's snapshot
+                "--app.snapshot.enabled=false",
+                "--logging.level.root=WARN"));
+        args.addAll(extraArgs);
+        return new SpringApplicationBuilder(ExpenseAssistantApplication.class)
+                .logStartupInfo(false)
+                .run(args.toArray(String[]::new));
+    }
+
+    /**
+     * Compares the report with the thresholds given in the options.
+     *
+     * @return a description of every threshold that was missed
+     */
+    private static List<String> check(LoadDriver.Report report, Map<String, String> options) {
+        List<String> failures = new ArrayList<>();
+        double maxErrorRate = Double.parseDouble(options.getOrDefault("max-error-rate", "0.01"));
+        if (report.total().errorRate() > maxErrorRate) {
+            failures.add("error rate %.4f > %.4f".formatted(report.total().errorRate(), maxErrorRate));
+        }
+        double minThroughput = Double.parseDouble(options.getOrDefault("min-throughput", "0"));
+        if (report.total().throughput() < minThroughput) {
+            failures.add("throughput %.1f req/s < %.1f req/s".formatted(report.total().throughput(), minThroughput));
+        }
+        if (options.containsKey("max-p99")) {
+            double maxP99 = Double.parseDouble(options.get("max-p99"));
+            report.operations().forEach((operation, stats) -> {
+                if (stats.p99() > maxP99) {
+                    failures.add("%s p99 %.2f ms > %.2f ms".formatted(operation, stats.p99(), maxP99));
+                }
+            });
+        }
+        return failures;
+    }
+
+    private static Duration duration(Map<String, String> options, String name, String defaultValue) {
+        return DurationStyle.detectAndParse(options.getOrDefault(name, defaultValue));
+    }
+}
@@ -1,14 +1,38 @@
 package com.ochwada.expense_assistant.client;
 
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * *******************************************************
  * Package: com.ochwada.expense_assistant.client
@@ -28,9 +52,9 @@ public class CurrencyClient {
     private final RestTemplate template;
 
     /**
-     * Jackson ObjectMapper for converting JSON responses to Java objects.
+     * Streaming JSON factory of the application's shared ObjectMapper, used to read responses token by token.
      */
-    private final ObjectMapper mapper;
+    private final JsonFactory jsonFactory;
 
     /**
      * The API key for accessing the FreeCurrency API. Injected from application properties.
@@ -50,61 +74,382 @@ public class CurrencyClient {
     @Value("${app.defaultTargetCurrency}")
     private String defaultTargetCurrency;
 
+    /**
+     * How long a fetched exchange rate stays valid before it is fetched again. Injected from application properties.
+     */
+    @Value("${currency.cache.ttl:1h}")
+    private Duration cacheTtl;
+
+    /**
+     * Maximum number of currency pairs kept in the rate cache. Injected from application properties.
+     */
+    @Value("${currency.cache.max-size:500}")
+    private long cacheMaxSize;
+
+    /**
+     * In-process cache of exchange rates keyed by currency pair (e.g. "EUR->USD"). Values are futures so that
+     * concurrent misses for the same pair share a single upstream request.
+     */
+    private AsyncCache<String, Double> rateCache;
+
+    /**
+     * How long a refreshed rate table is trusted. Past this age (e.g. because refreshes keep failing) rates are fetched
+     * per pair again. Injected from application properties.
+     */
+    @Value("${currency.refresh.max-age:3h}")
+    private Duration rateTableMaxAge;
+
+    /**
+     * Latest complete rate table, replaced as a whole by {@link #refreshRateTable()} or
+     * {@link #restoreRateTable(RateTable)}; {@code null} until the first successful refresh or restore.
+     */
+    private final AtomicReference<RateTable> rateTable = new AtomicReference<>();
+
+    /**
+     * Whether a failed lookup falls back to the last known rate for the pair. Injected from application properties.
+     */
+    @Value("${currency.fallback.enabled:true}")
+    private boolean fallbackEnabled;
+
+    /**
+     * Most recent successfully fetched rate per currency pair, kept without expiry as the fallback of last resort.
+     */
+    private final Map<String, Double> lastKnownRates = new ConcurrentHashMap<>();
+
+    /**
+     * Circuit breaker, bulkhead and time limiter around every call to the currency API.
+     */
+    private final UpstreamGuard guard;
+
+    /**
+     * Registry the rate cache statistics and upstream failure counts are published to.
+     */
+    private final MeterRegistry meterRegistry;
+
 
     /**
      * Constructs a {@code CurrencyApiClient} with the given RestTemplate.
      *
-     * @param template the RestTemplate used for making HTTP requests
+     * @param template      the RestTemplate used for making HTTP requests
+     * @param mapper        the application's shared ObjectMapper
+     * @param meterRegistry the registry the cache and failure metrics are published to
+     * @param guard         the circuit breaker, bulkhead and time limiter for the currency API
      */
     @Autowired
-    public CurrencyClient(RestTemplate template) {
+    public CurrencyClient(RestTemplate template, ObjectMapper mapper, MeterRegistry meterRegistry,
+                          @Qualifier("currencyGuard") UpstreamGuard guard) {
         this.template = template;
-        this.mapper = new ObjectMapper();
+        this.jsonFactory = mapper.getFactory();
+        this.meterRegistry = meterRegistry;
+        this.guard = guard;
+    }
+
+    /**
+     * Builds the rate cache once the TTL and size settings have been injected, and publishes its statistics under the
+     * name "currency" along with the age of the rate table ({@code currency.rate.table.age}).
+     */
+    @PostConstruct
+    void initRateCache() {
+        this.rateCache = Caffeine.newBuilder()
+                .expireAfterWrite(cacheTtl)
+                .maximumSize(cacheMaxSize)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, rateCache, "currency");
+        Gauge.builder("currency.rate.table.age", rateTable, ref -> ref.get() == null
+                        ? Double.NaN
+                        : Duration.between(ref.get().getFetchedAt(), Instant.now()).toMillis() / 1000.0)
+                .baseUnit("seconds")
+                .description("Time since the exchange-rate table was last refreshed")
+                .register(meterRegistry);
     }
 
 /**
  * Fetch the latest exchange rate from the source currency to the target currency {@code defaultTargetCurrency} using
  * the FreeCurrency API.
  * @param amount  the amount used in the Local currency during travel in different cities
- * @param sourceCurrency the 3-letter ISO code of the source currency (e.g., "EUR") from the amount
+ * @param sourceCurrency the 3-letter ISO code of the source currency (e.g., "EUR") from the amount, in either case
+ * @return the conversion, with the source currency code in upper case as stored and grouped on
  */
     public CurrencyData getExchangeRate(double amount, String sourceCurrency){
-        // Construct the API request URL using source and target currencies
-        String url = String.format(
-                "%s?apikey=%s&base_currency=%s&currencies=%s",
-                apiUrl,
-                apiKey,
-                sourceCurrency,
-                defaultTargetCurrency
-        );
-        try {
-            // Send GET request to the currency API
-            String response = template.getForObject(url, String.class);
+        // Look up the rate for the pair (cached, or fetched once on a miss)
+        double rate = getRate(sourceCurrency);
+
+        // Calculate converted amount using the exchange rate
+        double converted = amount *  rate;
+
+        // Return all information wrapped in a CurrencyData object
+        return new CurrencyData(sourceCurrency.toUpperCase(Locale.ROOT), defaultTargetCurrency, amount, rate, converted);
+    }
 
-            // Parse the JSON response to extract the exchange rate
-            JsonNode root = mapper.readTree(response);
-            JsonNode rateNode = root.path("data").path(defaultTargetCurrency);
+    /**
+     * Returns the exchange rate from {@code sourceCurrency} to {@code defaultTargetCurrency}.
+     *
+     * @param sourceCurrency the 3-letter ISO code of the source currency (e.g., "EUR")
+     * @return the exchange rate
+     * @see #getRate(String, String)
+     */
+    public double getRate(String sourceCurrency) {
+        return getRate(sourceCurrency, defaultTargetCurrency);
+    }
+
+    /**
+     * Returns the exchange rate from {@code sourceCurrency} to {@code targetCurrency}.
+     * <p>
+     * While the rate table is fresh, the rate is computed locally from it without any network call. Otherwise (before
+     * the first refresh, when refreshes have been failing for longer than {@code currency.refresh.max-age}, or for a
+     * currency the table does not list) rates are served from the per-pair cache while they are younger than
+     * {@code currency.cache.ttl}. On a miss the first caller fetches the rate from the API; concurrent callers asking
+     * for the same pair wait for that result instead of issuing their own request. Failed fetches are not cached.
+     * <p>
+     * If the fetch fails (including when the circuit breaker is open or the bulkhead is full) and
+     * {@code currency.fallback.enabled} is set, the last known rate is returned instead: from the rate table whatever
+     * its age, else the last rate fetched for the pair. Fallbacks are counted as {@code upstream.fallbacks}.
+     *
+     * @param sourceCurrency the 3-letter ISO code of the source currency (e.g., "EUR")
+     * @param targetCurrency the 3-letter ISO code of the target currency (e.g., "USD")
+     * @return the exchange rate
+     * @throws RuntimeException if the rate could not be fetched and there is no fallback
+     */
+    public double getRate(String sourceCurrency, String targetCurrency) {
+        OptionalDouble local = getTableRate(sourceCurrency, targetCurrency);
+        if (local.isPresent()) {
+            return local.getAsDouble();
+        }
 
-            // Check if the rate node exists in the response.
-            if (rateNode.isMissingNode()){
-                throw new RuntimeException("Currency rate not found for " + defaultTargetCurrency);
+        String key = sourceCurrency.toUpperCase(Locale.ROOT) + "->" + targetCurrency.toUpperCase(Locale.ROOT);
+        try {
+            return SingleFlight.get(rateCache, key, () -> {
+                double rate = fetchRate(sourceCurrency, targetCurrency);
+                recordFetchedRate(sourceCurrency, targetCurrency, rate);
+                return rate;
+            });
+        } catch (RuntimeException e) {
+            OptionalDouble lastKnown = getFallbackRate(sourceCurrency, targetCurrency);
+            if (lastKnown.isEmpty()) {
+                throw e;
             }
-            // Extract the rate as a double
-            double rate = rateNode.asDouble();
+            return lastKnown.getAsDouble();
+        }
+    }
+
+    /**
+     * Remembers a rate fetched for a pair as its last known rate, for {@link #getFallbackRate}. Called for the rates
+     * this client fetches and for those fetched by {@link ReactiveCurrencyClient}.
+     *
+     * @param sourceCurrency the 3-letter ISO code of the source currency
+     * @param targetCurrency the 3-letter ISO code of the target currency
+     * @param rate           the rate fetched
+     */
+    public void recordFetchedRate(String sourceCurrency, String targetCurrency, double rate) {
+        lastKnownRates.put(sourceCurrency.toUpperCase(Locale.ROOT) + "->" + targetCurrency.toUpperCase(Locale.ROOT),
+                rate);
+    }
+
+    /**
+     * Returns the rate to use when fetching a pair failed: the last known rate ignoring freshness, from the rate table
+     * if it has one, else the last rate fetched for the pair. A fallback returned is counted as
+     * {@code upstream.fallbacks}.
+     *
+     * @param sourceCurrency the 3-letter ISO code of the source currency
+     * @param targetCurrency the 3-letter ISO code of the target currency
+     * @return the last known rate, or empty if there is none or {@code currency.fallback.enabled} is off
+     */
+    public OptionalDouble getFallbackRate(String sourceCurrency, String targetCurrency) {
+        if (!fallbackEnabled) {
+            return OptionalDouble.empty();
+        }
+        RateTable table = rateTable.get();
+        OptionalDouble lastKnown = table != null ? table.rate(sourceCurrency, targetCurrency) : OptionalDouble.empty();
+        if (lastKnown.isEmpty()) {
+            Double lastFetched = lastKnownRates.get(
+                    sourceCurrency.toUpperCase(Locale.ROOT) + "->" + targetCurrency.toUpperCase(Locale.ROOT));
+            lastKnown = lastFetched != null ? OptionalDouble.of(lastFetched) : OptionalDouble.empty();
+        }
+        if (lastKnown.isPresent()) {
+            meterRegistry.counter("upstream.fallbacks", "upstream", "currency").increment();
+        }
+        return lastKnown;
+    }
 
-            // Calculate converted amount using the exchange rate
-            double converted = amount *  rate;
+    /**
+     * Returns whether the currency API quotes {@code currency}, as far as the rate table (whatever its age) tells.
+     *
+     * @param currency the 3-letter ISO code, in any case
+     * @return {@code false} if the rate table lacks {@code currency}; {@code true} if it lists it, or before there is
+     * a rate table
+     */
+    public boolean isQuoted(String currency) {
+        RateTable table = rateTable.get();
+        return table == null || table.lists(currency);
+    }
 
-            // Return all information wrapped in a CurrencyData object
-            return new CurrencyData(sourceCurrency, defaultTargetCurrency, amount, rate, converted);
+    /**
+     * Returns the exchange rate from {@code sourceCurrency} to {@code targetCurrency} from the rate table alone.
+     *
+     * @param sourceCurrency the 3-letter ISO code of the source currency
+     * @param targetCurrency the 3-letter ISO code of the target currency
+     * @return the rate, or empty if there is no fresh table or it lacks either currency
+     */
+    public OptionalDouble getTableRate(String sourceCurrency, String targetCurrency) {
+        RateTable table = rateTable.get();
+        if (table == null || table.getFetchedAt().plus(rateTableMaxAge).isBefore(Instant.now())) {
+            return OptionalDouble.empty();
+        }
+        return table.rate(sourceCurrency, targetCurrency);
+    }
+
+    /**
+     * Fetches every rate against {@code defaultTargetCurrency} in one API call and atomically replaces the rate table.
+     * On failure the previous table is kept.
+     *
+     * @return the new rate table
+     * @throws RuntimeException if the rates could not be fetched
+     */
+    public RateTable refreshRateTable() {
+        // Without "currencies" the API returns every supported currency
+        String url = apiUrl + "?apikey={apikey}&base_currency={base}";
+        try {
+            Map<String, Double> rates = guard.call(() -> template.execute(url, HttpMethod.GET,
+                    request -> request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON)),
+                    response -> parseRates(jsonFactory, response.getBody()),
+                    apiKey, defaultTargetCurrency));
+            RateTable table = new RateTable(defaultTargetCurrency, rates, Instant.now());
+            rateTable.set(table);
+            return table;
 
         } catch (Exception e) {
+            UpstreamFailures.record(meterRegistry, "currency", e);
+            throw new RuntimeException("Failed to refresh exchange rates: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the latest rate table whatever its age, e.g. to persist it in a snapshot.
+     *
+     * @return the rate table, or empty before the first successful refresh or restore
+     */
+    public Optional<RateTable> getRateTable() {
+        return Optional.ofNullable(rateTable.get());
+    }
+
+    /**
+     * Installs a previously saved rate table, unless the current one is at least as recent. The restored table is used
+     * for conversions while it is younger than {@code currency.refresh.max-age}, and as the last known rates after that.
+     *
+     * @param table the saved rate table
+     */
+    public void restoreRateTable(RateTable table) {
+        rateTable.accumulateAndGet(table, (current, restored) ->
+                current == null || restored.getFetchedAt().isAfter(current.getFetchedAt()) ? restored : current);
+    }
+
+    /**
+     * Returns the target (home) currency every rate is quoted against.
+     *
+     * @return the 3-letter ISO code of {@code defaultTargetCurrency}
+     */
+    public String getTargetCurrency() {
+        return defaultTargetCurrency;
+    }
+
+    /**
+     * Fetches a single exchange rate from the FreeCurrency API, bypassing the cache.
+     *
+     * @param sourceCurrency the 3-letter ISO code of the source currency (e.g., "EUR")
+     * @param targetCurrency the 3-letter ISO code of the target currency (e.g., "USD")
+     * @return the exchange rate from {@code sourceCurrency} to {@code targetCurrency}
+     */
+    private double fetchRate(String sourceCurrency, String targetCurrency) {
+        // URI template for the request; the variables are expanded by RestTemplate, so metrics and traces are tagged
+        // with the template rather than with the API key and currency codes
+        String url = apiUrl + "?apikey={apikey}&base_currency={base}&currencies={target}";
+        try {
+            // Send GET request to the currency API and read the rate straight off the response stream
+            return guard.call(() -> template.execute(url, HttpMethod.GET,
+                    request -> request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON)),
+                    response -> parseRate(jsonFactory, response.getBody(), targetCurrency),
+                    apiKey, sourceCurrency, targetCurrency));
+
+        } catch (Exception e) {
+            UpstreamFailures.record(meterRegistry, "currency", e);
             throw new RuntimeException( "Failed to fetch currency conversion data" + e.getMessage(), e);
         }
 
     }
 
+    /**
+     * Extracts {@code data.<targetCurrency>} from a FreeCurrency API response body.
+     * <p>
+     * The body is read token by token and everything other than the wanted rate is skipped, so neither the body text
+     * nor a JSON tree is ever built.
+     *
+     * @param factory        the JSON factory used to create the parser
+     * @param body           the response body
+     * @param targetCurrency the currency whose rate to extract, in any case
+     * @return the exchange rate
+     * @throws IOException if the body is not valid JSON
+     */
+    static double parseRate(JsonFactory factory, InputStream body, String targetCurrency) throws IOException {
+        String wanted = targetCurrency.toUpperCase(Locale.ROOT);
+        try (JsonParser parser = factory.createParser(body)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    if (parser.nextToken() != JsonToken.START_OBJECT || !"data".equals(field)) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    // Inside "data": one field per currency
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String currency = parser.currentName();
+                        if (parser.nextToken().isScalarValue() && currency.toUpperCase(Locale.ROOT).equals(wanted)) {
+                            return parser.getValueAsDouble();
+                        }
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+        // Check if the rate was present in the response.
+        throw new RuntimeException("Currency rate not found for " + targetCurrency);
+    }
+
+
 
+    /**
+     * Reads every {@code data.<CUR>} rate from a FreeCurrency API response body, token by token.
+     *
+     * @param factory the JSON factory used to create the parser
+     * @param body    the response body
+     * @return units of each currency per one unit of the base currency, keyed by ISO code
+     * @throws IOException if the body is not valid JSON
+     */
+    static Map<String, Double> parseRates(JsonFactory factory, InputStream body) throws IOException {
+        Map<String, Double> rates = new HashMap<>();
+        try (JsonParser parser = factory.createParser(body)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    if (parser.nextToken() != JsonToken.START_OBJECT || !"data".equals(field)) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String currency = parser.currentName();
+                        if (parser.nextToken().isNumeric()) {
+                            rates.put(currency.toUpperCase(Locale.ROOT), parser.getDoubleValue());
+                        }
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+        if (rates.isEmpty()) {
+            throw new RuntimeException("No currency rates found in response");
+        }
+        return rates;
+    }
 
     // ==============================CurrencyData POJO =========================================
     @Data
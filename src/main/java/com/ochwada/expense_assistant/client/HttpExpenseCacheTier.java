@@ -0,0 +1,89 @@
+package com.ochwada.expense_assistant.client;
+
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ochwada.expense_assistant.model.Expense;
+import com.ochwada.expense_assistant.service.ExpenseCacheTier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.UncheckedIOException;
+import java.util.Optional;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.client
+ * File: HttpExpenseCacheTier.java
+ * Author: Ochwada
+ * Date: Monday, 19.Oct.2026, 1:20 AM
+ * Description: {@link ExpenseCacheTier} backed by a key-value cache server over HTTP, enabled by setting
+ * {@code app.expense-cache.remote.url}.
+ * Objective:
+ * - Share cached expenses between instances through any server that stores a JSON document per key:
+ * {@code GET {url}/{id}} answers it or {@code 404}, {@code PUT {url}/{id}} stores it, {@code DELETE {url}/{id}}
+ * removes it
+ * - Expire entries on the server's own schedule; this tier never relies on them being fresh beyond that
+ * *******************************************************
+ */
+
+@Component
+@ConditionalOnExpression("!'${app.expense-cache.remote.url:}'.isBlank()")
+public class HttpExpenseCacheTier implements ExpenseCacheTier {
+
+    private final RestTemplate template;
+
+    /**
+     * The application's mapper, which writes expenses in full despite their field filter.
+     */
+    private final ObjectMapper mapper;
+
+    private final String url;
+
+    public HttpExpenseCacheTier(RestTemplate template, ObjectMapper mapper,
+                                @Value("${app.expense-cache.remote.url}") String url) {
+        this.template = template;
+        this.mapper = mapper;
+        this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    @Override
+    public Optional<Expense> get(String id) {
+        try {
+            String body = template.getForObject(url + "/{id}", String.class, id);
+            return body == null ? Optional.empty() : Optional.of(mapper.readValue(body, Expense.class));
+        } catch (HttpClientErrorException.NotFound e) {
+            return Optional.empty();
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void put(Expense expense) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        try {
+            template.exchange(url + "/{id}", HttpMethod.PUT,
+                    new HttpEntity<>(mapper.writeValueAsString(expense), headers), Void.class, expense.getId());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void evict(String id) {
+        try {
+            template.delete(url + "/{id}", id);
+        } catch (HttpClientErrorException.NotFound e) {
+            // Not cached: nothing to evict
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.ochwada.expense_assistant.client;
+
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalDouble;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.client
+ * File: RateTable.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 6:10 PM
+ * Description: Immutable snapshot of every exchange rate for one base currency, as returned by a single FreeCurrency
+ * API call.
+ * Objective:
+ * - Answer a rate for any currency pair locally, using cross rates through the base currency
+ * *******************************************************
+ */
+
+@Getter
+public final class RateTable {
+
+    /**
+     * The currency all rates are quoted against (3-letter ISO code, upper case).
+     */
+    private final String baseCurrency;
+
+    /**
+     * Units of each currency per one unit of {@code baseCurrency}, keyed by upper-case ISO code.
+     */
+    private final Map<String, Double> rates;
+
+    /**
+     * When the rates were fetched.
+     */
+    private final Instant fetchedAt;
+
+    public RateTable(String baseCurrency, Map<String, Double> rates, Instant fetchedAt) {
+        this.baseCurrency = baseCurrency.toUpperCase(Locale.ROOT);
+        this.rates = Map.copyOf(rates);
+        this.fetchedAt = fetchedAt;
+    }
+
+    /**
+     * Returns how many units of {@code target} one unit of {@code source} buys.
+     * <p>
+     * Both rates are quoted against the base currency, so the cross rate is {@code rate(target) / rate(source)}; the
+     * base currency itself has rate 1 whether or not the table lists it.
+     *
+     * @param source the 3-letter ISO code of the currency converted from
+     * @param target the 3-letter ISO code of the currency converted to
+     * @return the rate, or empty if either currency is not in the table
+     */
+    public OptionalDouble rate(String source, String target) {
+        Double sourceRate = unitsPerBase(source);
+        Double targetRate = unitsPerBase(target);
+        if (sourceRate == null || targetRate == null || sourceRate == 0) {
+            return OptionalDouble.empty();
+        }
+        return OptionalDouble.of(targetRate / sourceRate);
+    }
+
+    /**
+     * Returns whether the table has a rate for {@code currency}; the base currency always has one.
+     *
+     * @param currency the 3-letter ISO code, in any case
+     * @return {@code true} if {@code currency} can be converted from and to
+     */
+    public boolean lists(String currency) {
+        return unitsPerBase(currency) != null;
+    }
+
+    private Double unitsPerBase(String currency) {
+        String code = currency.toUpperCase(Locale.ROOT);
+        return code.equals(baseCurrency) ? Double.valueOf(1.0) : rates.get(code);
+    }
+}
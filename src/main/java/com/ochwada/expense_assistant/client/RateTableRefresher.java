@@ -0,0 +1,47 @@
+package com.ochwada.expense_assistant.client;
+
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.client
+ * File: RateTableRefresher.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 6:30 PM
+ * Description: Background job that reloads the complete exchange-rate table on a fixed interval.
+ * Objective:
+ * - Keep currency conversion on the write path free of network calls
+ * - Send the currency API one predictable request per interval
+ * *******************************************************
+ */
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "currency.refresh.enabled", havingValue = "true", matchIfMissing = true)
+public class RateTableRefresher {
+
+    private final CurrencyClient currencyClient;
+
+    public RateTableRefresher(CurrencyClient currencyClient) {
+        this.currencyClient = currencyClient;
+    }
+
+    /**
+     * Refreshes the rate table at startup and then {@code currency.refresh.interval} after each attempt finishes. A
+     * failed refresh keeps the previous table, which stays in use until it is older than
+     * {@code currency.refresh.max-age}.
+     */
+    @Scheduled(fixedDelayString = "${currency.refresh.interval:1h}")
+    public void refresh() {
+        try {
+            RateTable table = currencyClient.refreshRateTable();
+            log.debug("Refreshed {} exchange rates against {}", table.getRates().size(), table.getBaseCurrency());
+        } catch (RuntimeException e) {
+            log.warn("Exchange-rate refresh failed, keeping the previous table: {}", e.getMessage());
+        }
+    }
+}
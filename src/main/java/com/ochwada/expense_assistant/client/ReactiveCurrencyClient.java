@@ -0,0 +1,160 @@
+package com.ochwada.expense_assistant.client;
+
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.OptionalDouble;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.client
+ * File: ReactiveCurrencyClient.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 3:00 PM
+ * Description: Non-blocking client to fetch data from FreeCurrency API, used by the "reactive" profile.
+ * Objective:
+ * - Mirror {@link CurrencyClient} (same URL, same cache settings) without holding a thread while waiting
+ * - Share its circuit breaker, bulkhead, time limiter and last known rates
+ * *******************************************************
+ */
+
+@Component
+@Profile("reactive")
+public class ReactiveCurrencyClient {
+    /**
+     * WebClient used to send HTTP requests to the currency API.
+     */
+    private final WebClient webClient;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Blocking client whose rate table, refreshed in the background, answers most lookups without a network call.
+     */
+    private final CurrencyClient currencyClient;
+
+    /**
+     * Circuit breaker, bulkhead and time limiter around every call to the currency API, shared with
+     * {@link CurrencyClient}.
+     */
+    private final UpstreamGuard guard;
+
+    @Value("${currency.api.key}")
+    private String apiKey;
+
+    @Value("${currency.api.url}")
+    private String apiUrl;
+
+    @Value("${app.defaultTargetCurrency}")
+    private String defaultTargetCurrency;
+
+    @Value("${currency.cache.ttl:1h}")
+    private Duration cacheTtl;
+
+    @Value("${currency.cache.max-size:500}")
+    private long cacheMaxSize;
+
+    /**
+     * In-process cache of exchange rates keyed by currency pair (e.g. "EUR->USD"). Concurrent misses for the same pair
+     * share the in-flight request.
+     */
+    private AsyncCache<String, Double> rateCache;
+
+    /**
+     * Constructs a {@code ReactiveCurrencyClient} with the given WebClient.
+     *
+     * @param webClient     the WebClient used for making HTTP requests
+     * @param meterRegistry  the registry the cache and failure metrics are published to
+     * @param currencyClient the client holding the shared rate table and last known rates
+     * @param guard          the circuit breaker, bulkhead and time limiter for the currency API
+     */
+    @Autowired
+    public ReactiveCurrencyClient(WebClient webClient, MeterRegistry meterRegistry, CurrencyClient currencyClient,
+                                  @Qualifier("currencyGuard") UpstreamGuard guard) {
+        this.webClient = webClient;
+        this.meterRegistry = meterRegistry;
+        this.currencyClient = currencyClient;
+        this.guard = guard;
+    }
+
+    @PostConstruct
+    void initRateCache() {
+        this.rateCache = Caffeine.newBuilder()
+                .expireAfterWrite(cacheTtl)
+                .maximumSize(cacheMaxSize)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, rateCache, "reactive-currency");
+    }
+
+    /**
+     * Converts {@code amount} from {@code sourceCurrency} to {@code defaultTargetCurrency}.
+     *
+     * @param amount         the amount in the source currency
+     * @param sourceCurrency the 3-letter ISO code of the source currency (e.g., "EUR"), in either case
+     * @return the conversion, with the source currency code in upper case, emitted once the rate is known
+     */
+    public Mono<CurrencyClient.CurrencyData> getExchangeRate(double amount, String sourceCurrency) {
+        return getRate(sourceCurrency).map(rate -> new CurrencyClient.CurrencyData(
+                sourceCurrency.toUpperCase(Locale.ROOT), defaultTargetCurrency, amount, rate, amount * rate));
+    }
+
+    /**
+     * Returns the exchange rate from {@code sourceCurrency} to {@code defaultTargetCurrency}: from the shared rate table
+     * while it is fresh, otherwise from the per-pair cache when it is younger than {@code currency.cache.ttl}.
+     * <p>
+     * If the fetch fails (including when the circuit breaker is open, the bulkhead is full or the time limit passes),
+     * the last known rate is emitted instead when {@code currency.fallback.enabled} is set; see
+     * {@link CurrencyClient#getFallbackRate}.
+     *
+     * @param sourceCurrency the 3-letter ISO code of the source currency (e.g., "EUR")
+     * @return the exchange rate
+     */
+    public Mono<Double> getRate(String sourceCurrency) {
+        OptionalDouble local = currencyClient.getTableRate(sourceCurrency, defaultTargetCurrency);
+        if (local.isPresent()) {
+            return Mono.just(local.getAsDouble());
+        }
+        String key = sourceCurrency.toUpperCase(Locale.ROOT) + "->" + defaultTargetCurrency.toUpperCase(Locale.ROOT);
+        return Mono.fromFuture(() -> rateCache.get(key, (k, executor) -> fetchRate(sourceCurrency).toFuture()))
+                .onErrorResume(e -> {
+                    OptionalDouble lastKnown = currencyClient.getFallbackRate(sourceCurrency, defaultTargetCurrency);
+                    return lastKnown.isPresent() ? Mono.just(lastKnown.getAsDouble()) : Mono.error(e);
+                });
+    }
+
+    private Mono<Double> fetchRate(String sourceCurrency) {
+        return webClient.get()
+                .uri(apiUrl + "?apikey={key}&base_currency={base}&currencies={target}",
+                        apiKey, sourceCurrency, defaultTargetCurrency)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .map(root -> {
+                    JsonNode rateNode = root.path("data").path(defaultTargetCurrency.toUpperCase(Locale.ROOT));
+
+                    // Check if the rate node exists in the response.
+                    if (rateNode.isMissingNode()) {
+                        throw new RuntimeException("Currency rate not found for " + defaultTargetCurrency);
+                    }
+                    return rateNode.asDouble();
+                })
+                .transform(guard::decorate)
+                .doOnNext(rate -> currencyClient.recordFetchedRate(sourceCurrency, defaultTargetCurrency, rate))
+                .doOnError(e -> UpstreamFailures.record(meterRegistry, "currency", e))
+                .onErrorMap(e -> new RuntimeException("Failed to fetch currency conversion data" + e.getMessage(), e));
+    }
+}
@@ -0,0 +1,139 @@
+package com.ochwada.expense_assistant.client;
+
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.client
+ * File: ReactiveWeatherClient.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 3:10 PM
+ * Description: Non-blocking client to fetch data from OpenWeather API, used by the "reactive" profile.
+ * Objective:
+ * - Mirror {@link WeatherClient} (same URL, same cache settings) without holding a thread while waiting
+ * - Share its circuit breaker, bulkhead, time limiter and last known weather
+ * *******************************************************
+ */
+
+@Component
+@Profile("reactive")
+public class ReactiveWeatherClient {
+    /**
+     * WebClient used to send HTTP requests to the weather API.
+     */
+    private final WebClient webClient;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Blocking client holding the last known weather and the fallback settings.
+     */
+    private final WeatherClient weatherClient;
+
+    /**
+     * Circuit breaker, bulkhead and time limiter around every call to the weather API, shared with
+     * {@link WeatherClient}.
+     */
+    private final UpstreamGuard guard;
+
+    @Value("${openweather.api.key}")
+    private String apiKey;
+
+    @Value("${openweather.api.url}")
+    private String apiUrl;
+
+    @Value("${openweather.cache.ttl:10m}")
+    private Duration cacheTtl;
+
+    @Value("${openweather.cache.max-size:1000}")
+    private long cacheMaxSize;
+
+    /**
+     * In-process cache of weather data keyed by normalized city name.
+     */
+    private AsyncCache<String, WeatherClient.WeatherData> weatherCache;
+
+    /**
+     * Constructs a {@code ReactiveWeatherClient} with the given WebClient.
+     *
+     * @param webClient     the WebClient used for making HTTP requests
+     * @param meterRegistry the registry the cache and failure metrics are published to
+     * @param weatherClient the client holding the last known weather
+     * @param guard         the circuit breaker, bulkhead and time limiter for the weather API
+     */
+    @Autowired
+    public ReactiveWeatherClient(WebClient webClient, MeterRegistry meterRegistry, WeatherClient weatherClient,
+                                 @Qualifier("weatherGuard") UpstreamGuard guard) {
+        this.webClient = webClient;
+        this.meterRegistry = meterRegistry;
+        this.weatherClient = weatherClient;
+        this.guard = guard;
+    }
+
+    @PostConstruct
+    void initWeatherCache() {
+        this.weatherCache = Caffeine.newBuilder()
+                .expireAfterWrite(cacheTtl)
+                .maximumSize(cacheMaxSize)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, weatherCache, "reactive-weather");
+    }
+
+    /**
+     * Returns the current weather for the given city, from the cache when it is younger than
+     * {@code openweather.cache.ttl}.
+     * <p>
+     * If the fetch fails (including when the circuit breaker is open, the bulkhead is full or the time limit passes),
+     * the last known weather is emitted instead when {@code openweather.fallback.enabled} is set; see
+     * {@link WeatherClient#getFallbackWeather}.
+     *
+     * @param cityName the city to look up
+     * @return the weather description and temperature
+     */
+    public Mono<WeatherClient.WeatherData> getWeatherForCity(String cityName) {
+        String key = cityName.trim().toLowerCase(Locale.ROOT);
+        return Mono.fromFuture(() -> weatherCache.get(key, (k, executor) -> fetchWeather(cityName.trim()).toFuture()))
+                .onErrorResume(e -> Mono.justOrEmpty(weatherClient.getFallbackWeather(cityName))
+                        .switchIfEmpty(Mono.error(e)));
+    }
+
+    /**
+     * Whether callers should store weather "unavailable" instead of failing when {@link #getWeatherForCity} errors.
+     *
+     * @return the value of {@code openweather.fallback.enabled}
+     */
+    public boolean isFallbackEnabled() {
+        return weatherClient.isFallbackEnabled();
+    }
+
+    private Mono<WeatherClient.WeatherData> fetchWeather(String cityName) {
+        return webClient.get()
+                .uri(apiUrl + "?q={city}&appid={key}&units=metric", cityName, apiKey)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .map(root -> new WeatherClient.WeatherData(
+                        root.path("weather").get(0).path("description").asText(),
+                        root.path("main").path("temp").asDouble()))
+                .transform(guard::decorate)
+                .doOnNext(weather -> weatherClient.recordFetchedWeather(cityName, weather))
+                .doOnError(e -> UpstreamFailures.record(meterRegistry, "weather", e))
+                .onErrorMap(e -> new RuntimeException("Failed to fetch weather data: " + e.getMessage(), e));
+    }
+}
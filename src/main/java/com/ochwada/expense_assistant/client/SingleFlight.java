@@ -0,0 +1,62 @@
+package com.ochwada.expense_assistant.client;
+
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.client
+ * File: SingleFlight.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 12:10 PM
+ * Description: Read-through lookup on an {@link AsyncCache} where concurrent misses for the same key share one load.
+ * Objective:
+ * *******************************************************
+ */
+
+final class SingleFlight {
+
+    private SingleFlight() {
+    }
+
+    /**
+     * Returns the cached value for {@code key}, loading it on the calling thread on a miss.
+     * <p>
+     * The first caller to miss registers a future in the cache and runs {@code loader}; concurrent callers for the same
+     * key wait on that future instead of starting their own load. A failed load completes the future exceptionally,
+     * which removes it from the cache so the next caller tries again.
+     *
+     * @param cache  the cache holding loaded (or in-flight) values
+     * @param key    the cache key
+     * @param loader loads the value on a miss; runs at most once per key at a time
+     * @return the cached or freshly loaded value
+     * @throws RuntimeException the exception thrown by {@code loader}, for the caller that ran it and for every caller
+     *                          that waited on it
+     */
+    static <K, V> V get(AsyncCache<K, V> cache, K key, Supplier<V> loader) {
+        // Register our own future on a miss; if another caller got there first, wait on theirs instead.
+        // Going through get() (rather than asMap()) keeps the cache's hit/miss statistics accurate.
+        CompletableFuture<V> pending = new CompletableFuture<>();
+        CompletableFuture<V> existing = cache.get(key, (k, executor) -> pending);
+        if (existing == pending) {
+            try {
+                pending.complete(loader.get());
+            } catch (RuntimeException e) {
+                pending.completeExceptionally(e);
+            }
+        }
+
+        try {
+            return existing.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.ochwada.expense_assistant.client;
+
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.client5.http.impl.classic.RequestFailedException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.client
+ * File: UpstreamFailures.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 5:20 PM
+ * Description: Counts failed calls to the currency and weather APIs as {@code upstream.failures}, tagged with the
+ * upstream and a coarse failure reason.
+ * Objective:
+ * *******************************************************
+ */
+
+final class UpstreamFailures {
+
+    static final String METRIC = "upstream.failures";
+
+    private UpstreamFailures() {
+    }
+
+    /**
+     * Increments {@code upstream.failures{upstream, reason}} for a failed upstream call.
+     *
+     * @param registry the registry the counter lives in
+     * @param upstream "currency" or "weather"
+     * @param failure  the exception the call failed with
+     */
+    static void record(MeterRegistry registry, String upstream, Throwable failure) {
+        registry.counter(METRIC, "upstream", upstream, "reason", reason(failure)).increment();
+    }
+
+    /**
+     * Classifies a failure as {@code circuit_open}, {@code bulkhead_full}, {@code timeout}, {@code unreachable},
+     * {@code client_error} (4xx), {@code server_error} (5xx), {@code invalid_response} (unparseable body) or
+     * {@code error}.
+     */
+    static String reason(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof CallNotPermittedException) {
+                return "circuit_open";
+            }
+            if (t instanceof BulkheadFullException) {
+                return "bulkhead_full";
+            }
+            // RequestFailedException is raised when the total-timeout deadline aborts a request
+            if (t instanceof SocketTimeoutException || t instanceof TimeoutException
+                    || t instanceof RequestFailedException) {
+                return "timeout";
+            }
+            if (t instanceof ConnectException || t instanceof UnknownHostException
+                    || t instanceof NoRouteToHostException) {
+                return "unreachable";
+            }
+            if (t instanceof RestClientResponseException e) {
+                return e.getStatusCode().is4xxClientError() ? "client_error" : "server_error";
+            }
+            if (t instanceof WebClientResponseException e) {
+                return e.getStatusCode().is4xxClientError() ? "client_error" : "server_error";
+            }
+            if (t instanceof JsonProcessingException) {
+                return "invalid_response";
+            }
+        }
+        return "error";
+    }
+}
@@ -0,0 +1,113 @@
+package com.ochwada.expense_assistant.client;
+
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.timelimiter.TimeLimiterOperator;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.client
+ * File: UpstreamGuard.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 8:10 PM
+ * Description: Circuit breaker, bulkhead and time limiter protecting the calls to one upstream API.
+ * Objective:
+ * - Fail fast while the upstream is known to be down or slow (circuit open)
+ * - Cap how many requests may wait on the upstream at once (bulkhead)
+ * - Give up on a call that runs past its time limit, interrupting it so it releases its connection
+ * *******************************************************
+ */
+
+public class UpstreamGuard {
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Bulkhead bulkhead;
+
+    private final TimeLimiter timeLimiter;
+
+    /**
+     * Executor the guarded calls run on, so the caller can stop waiting when the time limit passes.
+     */
+    private final Executor executor;
+
+    /**
+     * Creates a guard from the {@code resilience4j.*.instances.<name>} configuration of each registry. Instances
+     * created through the registries publish their state and call metrics ({@code resilience4j.circuitbreaker.state},
+     * {@code resilience4j.bulkhead.available.concurrent.calls}, ...).
+     *
+     * @param name                   the upstream name, e.g. "currency"
+     * @param circuitBreakerRegistry source of the circuit breaker
+     * @param bulkheadRegistry       source of the bulkhead
+     * @param timeLimiterRegistry    source of the time limiter
+     * @param executor               executor the guarded calls run on
+     */
+    public UpstreamGuard(String name,
+                         CircuitBreakerRegistry circuitBreakerRegistry,
+                         BulkheadRegistry bulkheadRegistry,
+                         TimeLimiterRegistry timeLimiterRegistry,
+                         Executor executor) {
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(name);
+        this.bulkhead = bulkheadRegistry.bulkhead(name);
+        this.timeLimiter = timeLimiterRegistry.timeLimiter(name);
+        this.executor = executor;
+    }
+
+    /**
+     * Runs {@code call} through the circuit breaker, the bulkhead and the time limiter, in that order.
+     * <p>
+     * The call is interrupted when it exceeds its time limit, and when the calling thread is interrupted while
+     * waiting for it, e.g. by a caller that stopped waiting itself.
+     *
+     * @param call the upstream call
+     * @return the call's result
+     * @throws io.github.resilience4j.circuitbreaker.CallNotPermittedException if the circuit is open
+     * @throws io.github.resilience4j.bulkhead.BulkheadFullException            if too many calls are already waiting
+     * @throws java.util.concurrent.TimeoutException                           if the call exceeds its time limit
+     * @throws Exception                                                       the exception thrown by {@code call}
+     */
+    public <T> T call(Supplier<T> call) throws Exception {
+        Callable<T> limited = () -> {
+            // Unlike a CompletableFuture, a FutureTask interrupts the thread running it when cancelled
+            FutureTask<T> task = new FutureTask<>(call::get);
+            executor.execute(task);
+            try {
+                return timeLimiter.decorateFutureSupplier(() -> task).call();
+            } finally {
+                task.cancel(true);
+            }
+        };
+        return circuitBreaker.executeCallable(Bulkhead.decorateCallable(bulkhead, limited));
+    }
+
+    /**
+     * Subscribes to {@code call} through the circuit breaker, the bulkhead and the time limiter, in that order: the
+     * non-blocking counterpart of {@link #call}, sharing its state and limits. A call past its time limit is
+     * cancelled.
+     *
+     * @param call the upstream call
+     * @return the call's result, or an error with one of the exceptions {@link #call} throws
+     */
+    public <T> Mono<T> decorate(Mono<T> call) {
+        return call.transformDeferred(TimeLimiterOperator.of(timeLimiter))
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    public CircuitBreaker.State getState() {
+        return circuitBreaker.getState();
+    }
+}
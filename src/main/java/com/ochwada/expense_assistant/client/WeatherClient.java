@@ -1,16 +1,36 @@
 package com.ochwada.expense_assistant.client;
 
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy.VarExpiration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
 /**
  * *******************************************************
  * Package: com.ochwada.expense_assistant.client
@@ -30,9 +50,9 @@ public class WeatherClient {
     private final RestTemplate template;
 
     /**
-     * Jackson ObjectMapper for converting JSON responses to Java objects.
+     * Streaming JSON factory of the application's shared ObjectMapper, used to read responses token by token.
      */
-    private final ObjectMapper mapper;
+    private final JsonFactory jsonFactory;
 
     /**
      * The API key for accessing the OpenWeather API. Injected from application properties.
@@ -46,47 +66,275 @@ public class WeatherClient {
     @Value("${openweather.api.url}")
     private String apiUrl;
 
+    /**
+     * How long a city's weather is reused before it is fetched again. Injected from application properties.
+     */
+    @Value("${openweather.cache.ttl:10m}")
+    private Duration cacheTtl;
+
+    /**
+     * Maximum number of cities kept in the weather cache. Injected from application properties.
+     */
+    @Value("${openweather.cache.max-size:1000}")
+    private long cacheMaxSize;
+
+    /**
+     * Registry the weather cache statistics and upstream failure counts are published to.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * In-process cache of weather data keyed by normalized city name. Values are futures so that concurrent misses for
+     * the same city share a single upstream request.
+     */
+    private AsyncCache<String, WeatherData> weatherCache;
+
+    /**
+     * Whether a failed lookup falls back to the last known weather for the city, and callers treat a failure as
+     * weather "unavailable" rather than as an error. Injected from application properties.
+     */
+    @Value("${openweather.fallback.enabled:true}")
+    private boolean fallbackEnabled;
+
+    /**
+     * How old the last known weather may be to still serve as a fallback. Injected from application properties.
+     */
+    @Value("${openweather.fallback.max-age:6h}")
+    private Duration fallbackMaxAge;
+
+    /**
+     * Most recent successfully fetched weather per city, outliving the weather cache, used as the fallback.
+     */
+    private Cache<String, WeatherData> lastKnownWeather;
+
+    /**
+     * Circuit breaker, bulkhead and time limiter around every call to the weather API.
+     */
+    private final UpstreamGuard guard;
+
     /**
      * Constructs a {@code WeatherClient} with the given RestTemplate.
      *
-     * @param template the RestTemplate used for making HTTP request.
+     * @param template      the RestTemplate used for making HTTP request.
+     * @param mapper        the application's shared ObjectMapper
+     * @param meterRegistry the registry the cache and failure metrics are published to
+     * @param guard         the circuit breaker, bulkhead and time limiter for the weather API
      */
     @Autowired
-    public WeatherClient(RestTemplate template) {
+    public WeatherClient(RestTemplate template, ObjectMapper mapper, MeterRegistry meterRegistry,
+                         @Qualifier("weatherGuard") UpstreamGuard guard) {
         this.template = template;
-        this.mapper = new ObjectMapper();
+        this.jsonFactory = mapper.getFactory();
+        this.meterRegistry = meterRegistry;
+        this.guard = guard;
     }
 
-    public WeatherData getWeatherForCity(String cityName) {
-        // Construct the full URL with query parameters
-        String url = String.format(
-                "%s?q=%s&appid=%s&units=metric",
-                apiUrl,
-                cityName,
-                apiKey
-        );
+    /**
+     * Builds the weather cache once the freshness and size settings have been injected, and publishes its statistics
+     * ({@code cache.gets} hit/miss, {@code cache.evictions}, {@code cache.size}) under the name "weather".
+     * <p>
+     * When the cache is full, Caffeine evicts using Window TinyLFU, which keeps frequently requested cities over
+     * cities seen only once.
+     * <p>
+     * Both caches expire entries a fixed time after they are written, but through a variable-expiry policy, so that
+     * weather restored by {@link #restoreWeather} only lives for what remains of its original lifetime.
+     */
+    @PostConstruct
+    void initWeatherCache() {
+        this.weatherCache = Caffeine.newBuilder()
+                .expireAfter(Expiry.<String, WeatherData>writing((city, weather) -> cacheTtl))
+                .maximumSize(cacheMaxSize)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, weatherCache, "weather");
+        this.lastKnownWeather = Caffeine.newBuilder()
+                .expireAfter(Expiry.<String, WeatherData>writing((city, weather) -> fallbackMaxAge))
+                .maximumSize(cacheMaxSize)
+                .build();
+    }
 
+    /**
+     * Returns the current weather for the given city.
+     * <p>
+     * Weather is served from the in-process cache while it is younger than {@code openweather.cache.ttl}, so a burst
+     * of expenses from one city costs a single upstream call. City names are trimmed and lower-cased for the cache
+     * key, so "Berlin" and " berlin" share an entry.
+     * <p>
+     * If the fetch fails (including when the circuit breaker is open or the bulkhead is full) and
+     * {@code openweather.fallback.enabled} is set, the last weather fetched for the city within
+     * {@code openweather.fallback.max-age} is returned instead. Fallbacks are counted as {@code upstream.fallbacks}.
+     *
+     * @param cityName the city to look up
+     * @return the weather description and temperature
+     * @throws RuntimeException if the weather could not be fetched and there is no fallback
+     */
+    public WeatherData getWeatherForCity(String cityName) {
+        String key = cityName.trim().toLowerCase(Locale.ROOT);
         try {
-            // Send GET request to the open weather API
-            String response = template.getForObject(url, String.class);
+            return SingleFlight.get(weatherCache, key, () -> {
+                WeatherData weather = fetchWeather(cityName.trim());
+                recordFetchedWeather(cityName, weather);
+                return weather;
+            });
+        } catch (RuntimeException e) {
+            return getFallbackWeather(cityName).orElseThrow(() -> e);
+        }
+    }
+
+    /**
+     * Remembers the weather fetched for a city as its last known weather, for {@link #getFallbackWeather}. Called for
+     * the weather this client fetches and for that fetched by {@link ReactiveWeatherClient}.
+     *
+     * @param cityName the city looked up
+     * @param weather  the weather fetched
+     */
+    public void recordFetchedWeather(String cityName, WeatherData weather) {
+        lastKnownWeather.put(cityName.trim().toLowerCase(Locale.ROOT), weather);
+    }
 
-            // Parse the JSON response to extract weather data
-            JsonNode root = mapper.readTree(response);
+    /**
+     * Returns the weather to use when fetching a city's weather failed: the last weather fetched for it within
+     * {@code openweather.fallback.max-age}. A fallback returned is counted as {@code upstream.fallbacks}.
+     *
+     * @param cityName the city looked up
+     * @return the last known weather, or empty if there is none or {@code openweather.fallback.enabled} is off
+     */
+    public Optional<WeatherData> getFallbackWeather(String cityName) {
+        WeatherData lastKnown = fallbackEnabled
+                ? lastKnownWeather.getIfPresent(cityName.trim().toLowerCase(Locale.ROOT))
+                : null;
+        if (lastKnown != null) {
+            meterRegistry.counter("upstream.fallbacks", "upstream", "weather").increment();
+        }
+        return Optional.ofNullable(lastKnown);
+    }
 
-            //  Extracts the weather description from the JSON tree.
-            String description = root.path("weather").get(0).path("description").asText();
+    /**
+     * Whether callers should store weather "unavailable" instead of failing when {@link #getWeatherForCity} throws.
+     *
+     * @return the value of {@code openweather.fallback.enabled}
+     */
+    public boolean isFallbackEnabled() {
+        return fallbackEnabled;
+    }
 
-            // Extracts the temperature value from the JSON tree.
-            double temperature = root.path("main").path("temp").asDouble();
+    /**
+     * Returns the most frequently fetched cities that still have a last known weather, e.g. to persist them in a
+     * snapshot.
+     *
+     * @param limit maximum number of cities returned
+     * @return the cities' last known weather, hottest first
+     */
+    public List<KnownWeather> getHottestWeather(int limit) {
+        VarExpiration<String, WeatherData> expiration = lastKnownWeather.policy().expireVariably().orElseThrow();
+        Instant now = Instant.now();
+        List<KnownWeather> hottest = new ArrayList<>();
+        lastKnownWeather.policy().eviction().orElseThrow().hottest(limit).forEach((city, weather) ->
+                expiration.getExpiresAfter(city).ifPresent(remaining ->
+                        hottest.add(new KnownWeather(city, weather, now.minus(fallbackMaxAge.minus(remaining))))));
+        return hottest;
+    }
 
-            // Return all information wrapped in a WeatherData object
-            return new WeatherData(description, temperature);
+    /**
+     * Installs previously saved weather for a city, unless newer weather is already cached. It is served from the
+     * weather cache while younger than {@code openweather.cache.ttl} and as the fallback while younger than
+     * {@code openweather.fallback.max-age}; older weather is ignored.
+     *
+     * @param known the saved weather and when it was fetched
+     */
+    public void restoreWeather(KnownWeather known) {
+        Duration age = Duration.between(known.getFetchedAt(), Instant.now());
+        if (age.compareTo(fallbackMaxAge) < 0) {
+            lastKnownWeather.policy().expireVariably().orElseThrow()
+                    .putIfAbsent(known.getCity(), known.getWeather(), fallbackMaxAge.minus(age));
+        }
+        if (age.compareTo(cacheTtl) < 0) {
+            weatherCache.synchronous().policy().expireVariably().orElseThrow()
+                    .putIfAbsent(known.getCity(), known.getWeather(), cacheTtl.minus(age));
+        }
+    }
+
+    /**
+     * Fetches the current weather from the OpenWeather API, bypassing the cache.
+     *
+     * @param cityName the city to look up
+     * @return the weather description and temperature
+     */
+    private WeatherData fetchWeather(String cityName) {
+        // URI template for the request; the variables are expanded (and encoded) by RestTemplate, so metrics and
+        // traces are tagged with the template rather than with the API key and city
+        String url = apiUrl + "?q={city}&appid={appid}&units=metric";
+
+        try {
+            // Send GET request to the open weather API and read the weather straight off the response stream
+            return guard.call(() -> template.execute(url, HttpMethod.GET,
+                    request -> request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON)),
+                    response -> parseWeather(jsonFactory, response.getBody()),
+                    cityName, apiKey));
 
         } catch (Exception e) {
+            UpstreamFailures.record(meterRegistry, "weather", e);
             throw new RuntimeException("Failed to fetch weather data: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Extracts {@code weather[0].description} and {@code main.temp} from an OpenWeather API response body.
+     * <p>
+     * The body is read token by token and every other field is skipped, so neither the body text nor a JSON tree is
+     * ever built.
+     *
+     * @param factory the JSON factory used to create the parser
+     * @param body    the response body
+     * @return the weather description and temperature
+     * @throws IOException if the body is not valid JSON
+     */
+    static WeatherData parseWeather(JsonFactory factory, InputStream body) throws IOException {
+        String description = null;
+        double temperature = 0;
+
+        try (JsonParser parser = factory.createParser(body)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if ("weather".equals(field) && value == JsonToken.START_ARRAY) {
+                        //  Extracts the weather description from the first condition, skipping the rest.
+                        if (parser.nextToken() == JsonToken.START_OBJECT) {
+                            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                                boolean wanted = "description".equals(parser.currentName());
+                                if (parser.nextToken().isScalarValue() && wanted) {
+                                    description = parser.getValueAsString();
+                                }
+                                parser.skipChildren();
+                            }
+                            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                                parser.skipChildren();
+                            }
+                        }
+                    } else if ("main".equals(field) && value == JsonToken.START_OBJECT) {
+                        // Extracts the temperature value.
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            boolean wanted = "temp".equals(parser.currentName());
+                            if (parser.nextToken().isScalarValue() && wanted) {
+                                temperature = parser.getValueAsDouble();
+                            }
+                            parser.skipChildren();
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+
+        if (description == null) {
+            throw new RuntimeException("Weather description not found");
+        }
+        // Return all information wrapped in a WeatherData object
+        return new WeatherData(description, temperature);
+    }
+
     // ======================WeatherData POJO =====================================
     @Data
     @AllArgsConstructor
@@ -96,6 +344,19 @@ public class WeatherClient {
         private double temperature;
     }
 
+    // ======================KnownWeather POJO =====================================
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class KnownWeather {
+        /**
+         * Normalized (trimmed, lower-case) city name.
+         */
+        private String city;
+        private WeatherData weather;
+        private Instant fetchedAt;
+    }
+
 
 }
 
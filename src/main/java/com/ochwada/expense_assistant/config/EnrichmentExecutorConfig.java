@@ -0,0 +1,63 @@
+package com.ochwada.expense_assistant.config;
+
+
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.config
+ * File: EnrichmentExecutorConfig.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 10:05 AM
+ * Description: {@code EnrichmentExecutorConfig} defines the executor used to run the currency and weather lookups of an
+ * expense concurrently.
+ * Objective:
+ * *******************************************************
+ */
+
+/**
+ * Spring {@code @Configuration} class that defines the {@code enrichmentExecutor} bean.
+ * *
+ * The lookups are blocking HTTP calls that spend nearly all of their time waiting on the network, so each one runs on
+ * its own virtual thread instead of occupying a platform thread from a fixed pool.
+ * *
+ * Submitted tasks run with the submitter's observation context, so the lookups and their outbound HTTP calls are
+ * traced as children of the request that started them.
+ */
+
+@Configuration
+public class EnrichmentExecutorConfig {
+
+    /**
+     * Creates an executor that starts a new virtual thread for every submitted task.
+     *
+     * @return a context-propagating virtual-thread-per-task executor, closed on application shutdown
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService enrichmentExecutor() {
+        return ContextExecutorService.wrap(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("enrichment-", 0).factory()),
+                ContextSnapshotFactory.builder().build());
+    }
+
+    /**
+     * Creates the bounded pool that runs the lookups of the asynchronous enrichment worker. Its size caps how many
+     * upstream calls the worker makes at once, however large the backlog.
+     *
+     * @param workers number of worker threads ({@code app.enrichment.workers})
+     * @return a fixed-size executor, shut down on application shutdown
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "app.enrichment.mode", havingValue = "async")
+    public ExecutorService enrichmentWorkerExecutor(@Value("${app.enrichment.workers:4}") int workers) {
+        return Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("enrichment-worker-", 0).factory());
+    }
+}
@@ -0,0 +1,50 @@
+package com.ochwada.expense_assistant.config;
+
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.ochwada.expense_assistant.model.Expense;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.config
+ * File: JacksonConfig.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 11:15 PM
+ * Description: {@code JacksonConfig} adjusts the application's shared ObjectMapper.
+ * Objective:
+ * *******************************************************
+ */
+
+/**
+ * Spring {@code @Configuration} class for JSON serialization.
+ * *
+ * The shared ObjectMapper gives {@link Expense} a Jackson property filter, through a mix-in, so that a response can
+ * leave out the fields a client did not ask for. Everywhere else (full responses, the NDJSON export) no filter is
+ * supplied, and the shared ObjectMapper is told to write every property in that case rather than fail. The model
+ * itself names no filter, so any other ObjectMapper writes it as it is.
+ */
+
+@Configuration
+public class JacksonConfig {
+
+    /**
+     * Names the {@link Expense#FIELDS_FILTER} property filter on expenses, and writes beans whose named property
+     * filter is not supplied with all their properties.
+     *
+     * @return the customizer applied to Spring Boot's ObjectMapper (MVC, WebFlux codecs and injected mappers)
+     */
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer unfilteredByDefault() {
+        return builder -> builder
+                .mixIn(Expense.class, ExpenseFieldsMixIn.class)
+                .filters(new SimpleFilterProvider().setFailOnUnknownId(false));
+    }
+
+    @JsonFilter(Expense.FIELDS_FILTER)
+    interface ExpenseFieldsMixIn {
+    }
+}
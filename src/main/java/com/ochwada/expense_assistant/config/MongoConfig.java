@@ -0,0 +1,26 @@
+package com.ochwada.expense_assistant.config;
+
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.config.EnableMongoAuditing;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.config
+ * File: MongoConfig.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 1:05 PM
+ * Description: {@code MongoConfig} holds MongoDB-related application configuration.
+ * Objective:
+ * *******************************************************
+ */
+
+/**
+ * Spring {@code @Configuration} class that enables MongoDB auditing, so that fields annotated with
+ * {@code @CreatedDate} (e.g., {@code Expense.createdAt}) are filled in when a document is first saved or inserted.
+ */
+
+@Configuration
+@EnableMongoAuditing
+public class MongoConfig {
+}
@@ -0,0 +1,96 @@
+package com.ochwada.expense_assistant.config;
+
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.config.EnableReactiveMongoAuditing;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.config
+ * File: ReactiveConfig.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 2:50 PM
+ * Description: {@code ReactiveConfig} defines the beans of the non-blocking request pipeline, active only with the
+ * "reactive" Spring profile.
+ * Objective:
+ * *******************************************************
+ */
+
+/**
+ * Spring {@code @Configuration} class for the "reactive" profile.
+ * *
+ * Serves WebFlux from Netty (Tomcat is also on the classpath for the default profile and would otherwise be picked),
+ * defines the {@link WebClient} used by the reactive currency and weather clients, backed by a pooled Reactor Netty
+ * client with the same {@code http.client.*} limits and timeouts as the blocking {@code RestTemplate}, and enables
+ * auditing for reactive MongoDB saves so that {@code createdAt} is filled in.
+ */
+
+@Configuration
+@Profile("reactive")
+@EnableReactiveMongoAuditing
+public class ReactiveConfig {
+
+    @Value("${http.client.max-per-route:20}")
+    private int maxPerRoute;
+
+    @Value("${http.client.connect-timeout:2s}")
+    private Duration connectTimeout;
+
+    @Value("${http.client.read-timeout:5s}")
+    private Duration readTimeout;
+
+    @Value("${http.client.pool-acquire-timeout:1s}")
+    private Duration poolAcquireTimeout;
+
+    @Value("${http.client.keep-alive:30s}")
+    private Duration keepAlive;
+
+    @Value("${http.client.idle-eviction:60s}")
+    private Duration idleEviction;
+
+    /**
+     * Runs the reactive application on Reactor Netty; {@code server.*} properties such as the port still apply.
+     *
+     * @return the Netty web server factory
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Creates the {@link WebClient} used for all outbound calls in the reactive pipeline.
+     *
+     * @param builder Spring Boot's pre-configured builder (codecs, instrumentation)
+     * @return a WebClient backed by a pooled, compressing Reactor Netty client
+     */
+    @Bean
+    public WebClient webClient(WebClient.Builder builder) {
+        // Reactor Netty pools connections per remote host, so the per-route limit is the pool size
+        ConnectionProvider provider = ConnectionProvider.builder("outbound")
+                .maxConnections(maxPerRoute)
+                .pendingAcquireTimeout(poolAcquireTimeout)
+                .maxIdleTime(keepAlive)
+                .evictInBackground(idleEviction)
+                .metrics(true)
+                .build();
+
+        HttpClient httpClient = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(readTimeout)
+                .compress(true);
+
+        return builder.clientConnector(new ReactorClientHttpConnector(httpClient)).build();
+    }
+}
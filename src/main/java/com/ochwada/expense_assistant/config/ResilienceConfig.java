@@ -0,0 +1,51 @@
+package com.ochwada.expense_assistant.config;
+
+
+import com.ochwada.expense_assistant.client.UpstreamGuard;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.config
+ * File: ResilienceConfig.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 8:15 PM
+ * Description: {@code ResilienceConfig} defines the {@link UpstreamGuard} of each external API.
+ * Objective:
+ * *******************************************************
+ */
+
+/**
+ * Spring {@code @Configuration} class that defines one {@link UpstreamGuard} per external API.
+ * *
+ * The circuit breaker, bulkhead and time limiter settings come from the {@code resilience4j.*.instances.currency} and
+ * {@code resilience4j.*.instances.weather} properties. Guarded calls run on the {@code enrichmentExecutor}, so they
+ * keep the caller's trace context.
+ */
+
+@Configuration
+public class ResilienceConfig {
+
+    @Bean
+    public UpstreamGuard currencyGuard(CircuitBreakerRegistry circuitBreakers,
+                                       BulkheadRegistry bulkheads,
+                                       TimeLimiterRegistry timeLimiters,
+                                       @Qualifier("enrichmentExecutor") ExecutorService executor) {
+        return new UpstreamGuard("currency", circuitBreakers, bulkheads, timeLimiters, executor);
+    }
+
+    @Bean
+    public UpstreamGuard weatherGuard(CircuitBreakerRegistry circuitBreakers,
+                                      BulkheadRegistry bulkheads,
+                                      TimeLimiterRegistry timeLimiters,
+                                      @Qualifier("enrichmentExecutor") ExecutorService executor) {
+        return new UpstreamGuard("weather", circuitBreakers, bulkheads, timeLimiters, executor);
+    }
+}
@@ -1,10 +1,38 @@
 package com.ochwada.expense_assistant.config;
 
 
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.http.io.entity.HttpEntityWrapper;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 /**
  * *******************************************************
  * Package: com.ochwada.expense_assistant.config
@@ -22,18 +50,181 @@ import org.springframework.web.client.RestTemplate;
  * *
  * By declaring this bean in a central place, it ensures that the same {@code RestTemplate} instance can be injected and
  * reused throughout the application for making HTTP requests.
+ * *
+ * The template is backed by a pooled Apache HttpClient so that connections (and their TLS sessions) to the currency and
+ * weather APIs are kept alive and reused instead of being opened for every call. All limits and timeouts are set
+ * through the {@code http.client.*} properties.
  */
 
 @Configuration
 public class RestTemplateConfig {
 
+    /**
+     * Maximum number of open connections across all hosts.
+     */
+    @Value("${http.client.max-total:100}")
+    private int maxTotal;
+
+    /**
+     * Maximum number of open connections to a single host.
+     */
+    @Value("${http.client.max-per-route:20}")
+    private int maxPerRoute;
+
+    /**
+     * Time allowed to establish a TCP/TLS connection.
+     */
+    @Value("${http.client.connect-timeout:2s}")
+    private Duration connectTimeout;
+
+    /**
+     * Time allowed between two packets of a response (socket read timeout).
+     */
+    @Value("${http.client.read-timeout:5s}")
+    private Duration readTimeout;
+
+    /**
+     * Time allowed to wait for a free connection from the pool.
+     */
+    @Value("${http.client.pool-acquire-timeout:1s}")
+    private Duration poolAcquireTimeout;
+
+    /**
+     * Hard deadline for a whole request, after which it is aborted regardless of progress.
+     */
+    @Value("${http.client.total-timeout:10s}")
+    private Duration totalTimeout;
+
+    /**
+     * How long an idle connection is kept alive when the server does not say otherwise.
+     */
+    @Value("${http.client.keep-alive:30s}")
+    private Duration keepAlive;
+
+    /**
+     * Idle connections older than this are closed by a background evictor.
+     */
+    @Value("${http.client.idle-eviction:60s}")
+    private Duration idleEviction;
+
+    /**
+     * Creates the shared connection pool used by every outbound HTTP call.
+     *
+     * @return a pooling connection manager, closed on application shutdown
+     */
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager httpConnectionManager() {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                // Reuse the most recently used connection first so that the rest can idle out
+                .setConnPoolPolicy(PoolReusePolicy.LIFO)
+                .setDefaultSocketConfig(SocketConfig.custom()
+                        .setSoTimeout(Timeout.of(readTimeout))
+                        .setTcpNoDelay(true)
+                        .build())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+    }
+
+    /**
+     * Creates the scheduler that aborts requests past the {@code http.client.total-timeout} deadline.
+     * <p>
+     * Not a default candidate, so that it is not mistaken for the scheduler of {@code @Scheduled} jobs.
+     *
+     * @return a single-thread scheduler, shut down on application shutdown
+     */
+    @Bean(destroyMethod = "shutdownNow", defaultCandidate = false)
+    public ScheduledExecutorService httpDeadlineScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+                Thread.ofPlatform().daemon().name("http-deadline").factory());
+        // Drop a deadline from the queue as soon as its request completes, not when it would have passed
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    /**
+     * Creates the pooled HTTP client. Response compression (gzip/deflate) is negotiated automatically.
+     *
+     * @param connectionManager the shared connection pool
+     * @param deadlines         the scheduler of the requests' total deadlines
+     * @return the HTTP client, closed on application shutdown
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager connectionManager,
+                                         @Qualifier("httpDeadlineScheduler") ScheduledExecutorService deadlines) {
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(poolAcquireTimeout))
+                        .setResponseTimeout(Timeout.of(readTimeout))
+                        // The default keep-alive strategy honours the server's Keep-Alive header, else uses this
+                        .setConnectionKeepAlive(TimeValue.of(keepAlive))
+                        .build())
+                .addExecInterceptorFirst("total-timeout", (request, scope, chain) -> {
+                    if (!(scope.originalRequest instanceof Cancellable cancellable)) {
+                        return chain.proceed(request, scope);
+                    }
+                    // Abort the request once the total deadline passes, unless the exchange completed before
+                    ScheduledFuture<?> deadline = deadlines.schedule(cancellable::cancel,
+                            totalTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                    boolean streaming = false;
+                    try {
+                        ClassicHttpResponse response = chain.proceed(request, scope);
+                        HttpEntity entity = response.getEntity();
+                        if (entity != null && entity.isStreaming()) {
+                            // The exchange completes when the body is closed, along with the response
+                            response.setEntity(new HttpEntityWrapper(entity) {
+                                @Override
+                                public void close() throws IOException {
+                                    try {
+                                        super.close();
+                                    } finally {
+                                        deadline.cancel(false);
+                                    }
+                                }
+                            });
+                            streaming = true;
+                        }
+                        return response;
+                    } finally {
+                        if (!streaming) {
+                            deadline.cancel(false);
+                        }
+                    }
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(idleEviction))
+                .build();
+    }
+
     /**
      * Creates and exposes a {@link RestTemplate} bean for making HTTP requests.
      *
-     * @return a default RestTemplate instance
+     * @param builder    Spring Boot's pre-configured builder (message converters, instrumentation); not available when
+     *                   running as a reactive web application, in which case a plain builder is used
+     * @param httpClient the pooled HTTP client
+     * @return a RestTemplate backed by the pooled HTTP client
+     */
+    @Bean
+    public RestTemplate restTemplate(ObjectProvider<RestTemplateBuilder> builder, CloseableHttpClient httpClient) {
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        return builder.getIfAvailable(RestTemplateBuilder::new).requestFactory(() -> factory).build();
+    }
+
+    /**
+     * Publishes the connection pool statistics (leased, pending, available, max) as {@code httpcomponents.httpclient.pool.*}
+     * metrics, visible under {@code /actuator/metrics}.
+     *
+     * @param connectionManager the shared connection pool
+     * @return a meter binder for the pool
      */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public MeterBinder httpConnectionPoolMetrics(PoolingHttpClientConnectionManager connectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "outbound");
     }
 }
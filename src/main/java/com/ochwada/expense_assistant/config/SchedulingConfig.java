@@ -0,0 +1,27 @@
+package com.ochwada.expense_assistant.config;
+
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.config
+ * File: SchedulingConfig.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 6:30 PM
+ * Description: {@code SchedulingConfig} enables Spring's {@code @Scheduled} background jobs (e.g. the exchange-rate
+ * refresh).
+ * Objective:
+ * *******************************************************
+ */
+
+/**
+ * Spring {@code @Configuration} class that turns on processing of {@code @Scheduled} methods, which run on the
+ * scheduler Spring Boot auto-configures ({@code spring.task.scheduling.*}).
+ */
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,16 +1,46 @@
 package com.ochwada.expense_assistant.controller;
 
 
+import com.ochwada.expense_assistant.dto.BatchExpenseResponse;
+import com.ochwada.expense_assistant.dto.ExpenseChangeEvent;
+import com.ochwada.expense_assistant.dto.ExpenseDeletionJob;
+import com.ochwada.expense_assistant.dto.ExpenseDeletionRequest;
+import com.ochwada.expense_assistant.dto.ExpenseFields;
+import com.ochwada.expense_assistant.dto.ExpenseFilter;
+import com.ochwada.expense_assistant.dto.ExpenseImportResponse;
+import com.ochwada.expense_assistant.dto.ExpensePage;
 import com.ochwada.expense_assistant.dto.ExpenseRequest;
+import com.ochwada.expense_assistant.dto.ExpenseSummary;
+import com.ochwada.expense_assistant.model.EnrichmentStatus;
 import com.ochwada.expense_assistant.model.Expense;
+import com.ochwada.expense_assistant.service.CurrencyConversionService;
+import com.ochwada.expense_assistant.service.ExpenseChangeFeed;
+import com.ochwada.expense_assistant.service.ExpenseDeletionService;
+import com.ochwada.expense_assistant.service.ExpenseExportService;
+import com.ochwada.expense_assistant.service.ExpenseImportService;
 import com.ochwada.expense_assistant.service.ExpenseService;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
 
+import java.io.InputStream;
+import java.net.URI;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 
 /**
@@ -25,33 +55,188 @@ import java.util.Optional;
  */
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/expenses")
 public class ExpenseController {
 
+    /**
+     * Upper bound on the number of expenses accepted by a single batch request.
+     */
+    private static final int MAX_BATCH_SIZE = 5000;
+
+    /**
+     * Request header carrying the client's key for a submission; retries of the submission reuse the key.
+     */
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    /**
+     * Response header set when a submission was answered with the expense saved by an earlier one with the same key.
+     */
+    private static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
     private final ExpenseService service;
 
+    private final ExpenseExportService exportService;
+
+    private final CurrencyConversionService conversionService;
+
+    private final ExpenseChangeFeed changeFeed;
+
+    private final ExpenseDeletionService deletionService;
+
+    private final ExpenseImportService importService;
+
     @Autowired
-    public ExpenseController(ExpenseService service) {
+    public ExpenseController(ExpenseService service, ExpenseExportService exportService,
+                             CurrencyConversionService conversionService, ExpenseChangeFeed changeFeed,
+                             ExpenseDeletionService deletionService, ExpenseImportService importService) {
         this.service = service;
+        this.exportService = exportService;
+        this.conversionService = conversionService;
+        this.changeFeed = changeFeed;
+        this.deletionService = deletionService;
+        this.importService = importService;
     }
 
     @PostMapping
-    public Expense addExpense(@Valid @RequestBody ExpenseRequest request){
-        return service.addExpense(request);
+    public ResponseEntity<Expense> addExpense(
+            @Valid @RequestBody ExpenseRequest request,
+            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) @Size(min = 1, max = 255) String idempotencyKey){
+        ExpenseService.Submission submission;
+        try {
+            submission = service.addExpense(request, idempotencyKey);
+        } catch (ExpenseService.IdempotencyKeyReusedException e){
+            return ResponseEntity.unprocessableEntity().build();
+        }
+        Expense expense = submission.getExpense();
 
+        // Asynchronous enrichment: accepted, poll the expense until its enrichmentStatus is no longer PENDING
+        ResponseEntity.BodyBuilder response = expense.getEnrichmentStatus() == EnrichmentStatus.PENDING
+                ? ResponseEntity.accepted().location(URI.create("/api/expenses/" + expense.getId()))
+                : ResponseEntity.ok();
+        if (submission.isReplayed()){
+            response.header(IDEMPOTENT_REPLAYED, "true");
+        }
+        return response.body(expense);
+    }
+
+    @PostMapping("/batch")
+    public BatchExpenseResponse addExpenses(
+            @RequestBody @Size(min = 1, max = MAX_BATCH_SIZE) List<@Valid ExpenseRequest> requests){
+        return service.addExpenses(requests);
     }
 
+    /**
+     * Lists expenses one page at a time. {@code fields=id,originalAmount,originalCurrency} reads and returns only
+     * those properties; {@code view=summary} returns {@link ExpenseSummary} views instead. {@code targetCurrency=EUR}
+     * expresses the converted amounts in EUR rather than in the stored home currency.
+     */
     @GetMapping
-    public List<Expense> getAllExpenses(){
-        return  service.getAllExpense();
+    public ResponseEntity<?> getAllExpenses(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") @Min(1) @Max(1000) int limit,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(required = false) @Pattern(regexp = "[A-Za-z]{3}") String targetCurrency){
+        if (cursor != null && !ObjectId.isValid(cursor) || !conversionService.supports(targetCurrency)){
+            return ResponseEntity.badRequest().build();
+        }
+        Set<String> selected;
+        try {
+            selected = ExpenseFields.parse(fields);
+            if (ExpenseFields.isSummaryView(view, selected)){
+                ExpensePage<ExpenseSummary> summaries = service.getExpenseSummaries(cursor, limit);
+                conversionService.convertSummaries(summaries.getItems(), targetCurrency);
+                return ResponseEntity.ok(summaries);
+            }
+        } catch (IllegalArgumentException e){
+            return ResponseEntity.badRequest().build();
+        }
+        ExpensePage<Expense> page = service.getExpenses(cursor, limit, ExpenseFields.toRead(selected, targetCurrency));
+        conversionService.convertExpenses(page.getItems(), targetCurrency);
+        return ResponseEntity.ok(ExpenseFields.select(page, selected));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<ExpenseSummary>> searchExpenses(@Valid ExpenseFilter filter){
+        try {
+            List<ExpenseSummary> found = service.searchExpenses(filter);
+            conversionService.convertSummaries(found, filter.getTargetCurrency());
+            return ResponseEntity.ok(found);
+        } catch (IllegalArgumentException e){
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Streams every expense as {@code format=ndjson} (the default), {@code csv} or {@code columnar}.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportExpenses(@RequestParam(defaultValue = "ndjson") String format){
+        Optional<ExpenseExportService.Format> resolved = ExpenseExportService.Format.fromParameter(format);
+        if (resolved.isEmpty()){
+            return ResponseEntity.badRequest().build();
+        }
+        ExpenseExportService.Format fileFormat = resolved.get();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(fileFormat.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(fileFormat.getFileName()).build().toString())
+                .body(out -> exportService.export(fileFormat, out));
+    }
+
+    /**
+     * Saves the expenses of an uploaded file in any export format, reading the body as it arrives. Answers
+     * {@code 400} with the counts so far if the file is malformed; the rows before the malformed one are kept.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<ExpenseImportResponse> importExpenses(@RequestParam(defaultValue = "ndjson") String format,
+                                                                InputStream body){
+        Optional<ExpenseExportService.Format> resolved = ExpenseExportService.Format.fromParameter(format);
+        if (resolved.isEmpty()){
+            return ResponseEntity.badRequest().build();
+        }
+        ExpenseImportResponse response = importService.importExpenses(resolved.get(), body);
+        return response.getError() == null ? ResponseEntity.ok(response) : ResponseEntity.badRequest().body(response);
+    }
+
+    /**
+     * Pushes every expense created, updated or deleted from now on as a server-sent event, instead of clients polling
+     * {@code GET /api/expenses}.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<ExpenseChangeEvent>> streamChanges(){
+        return changeFeed.stream();
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Expense> getExpenseById(@PathVariable String id){
-        Optional<Expense> expense = service.getExpenseById(id);
+    public ResponseEntity<?> getExpenseById(
+            @PathVariable String id,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(required = false) @Pattern(regexp = "[A-Za-z]{3}") String targetCurrency){
+        Set<String> selected;
+        boolean summary;
+        try {
+            selected = ExpenseFields.parse(fields);
+            summary = ExpenseFields.isSummaryView(view, selected);
+        } catch (IllegalArgumentException e){
+            return ResponseEntity.badRequest().build();
+        }
+        if (!conversionService.supports(targetCurrency)){
+            return ResponseEntity.badRequest().build();
+        }
+
+        if (summary){
+            Optional<ExpenseSummary> expense = service.getExpenseSummaryById(id);
+            expense.ifPresent(found -> conversionService.convertSummaries(List.of(found), targetCurrency));
+            return expense.<ResponseEntity<?>>map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+        }
+        Optional<Expense> expense = service.getExpenseById(id, ExpenseFields.toRead(selected, targetCurrency));
 
         if (expense.isPresent()){
-            return  ResponseEntity.ok(expense.get());
+            conversionService.convertExpenses(List.of(expense.get()), targetCurrency);
+            return  ResponseEntity.ok(ExpenseFields.select(expense.get(), selected));
         }else {
             return ResponseEntity.notFound().build();
         }
@@ -64,5 +249,20 @@ public class ExpenseController {
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Deletes every expense matching the body, in the background. Accepted at once; poll the job at the returned
+     * location for its progress.
+     */
+    @DeleteMapping
+    public ResponseEntity<ExpenseDeletionJob> deleteExpenses(@Valid @RequestBody ExpenseDeletionRequest request){
+        ExpenseDeletionJob job = deletionService.submit(request);
+        return ResponseEntity.accepted().location(URI.create("/api/expenses/deletions/" + job.getId())).body(job);
+    }
+
+    @GetMapping("/deletions/{jobId}")
+    public ResponseEntity<ExpenseDeletionJob> getDeletion(@PathVariable String jobId){
+        return ResponseEntity.of(deletionService.getJob(jobId));
+    }
+
 
 }
@@ -0,0 +1,115 @@
+package com.ochwada.expense_assistant.controller;
+
+
+import com.ochwada.expense_assistant.dto.RollupRebuildResponse;
+import com.ochwada.expense_assistant.dto.SpendingSummary;
+import com.ochwada.expense_assistant.service.CurrencyConversionService;
+import com.ochwada.expense_assistant.service.ExpenseRollupService;
+import com.ochwada.expense_assistant.service.ExpenseSummaryService;
+import jakarta.validation.constraints.Pattern;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.controller
+ * File: ExpenseSummaryController.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 1:40 PM
+ * Description: REST Controller exposing server-side spending summaries.
+ * Objective:
+ * *******************************************************
+ */
+
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/expenses/summary")
+public class ExpenseSummaryController {
+
+    private final ExpenseSummaryService summaryService;
+
+    private final ExpenseRollupService rollupService;
+
+    private final CurrencyConversionService conversionService;
+
+    @Autowired
+    public ExpenseSummaryController(ExpenseSummaryService summaryService, ExpenseRollupService rollupService,
+                                    CurrencyConversionService conversionService) {
+        this.summaryService = summaryService;
+        this.rollupService = rollupService;
+        this.conversionService = conversionService;
+    }
+
+    /**
+     * Summarizes spending grouped by {@code homeCurrency}, {@code originalCurrency}, {@code city}, {@code day},
+     * {@code week} or {@code month}, optionally restricted to expenses recorded between {@code from} and {@code to}
+     * (inclusive dates, UTC). With {@code targetCurrency}, the amounts are expressed in that currency, one row per
+     * group.
+     */
+    @GetMapping
+    public ResponseEntity<List<SpendingSummary>> getSummary(
+            @RequestParam(defaultValue = "homeCurrency") String groupBy,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) @Pattern(regexp = "[A-Za-z]{3}") String targetCurrency){
+        Optional<ExpenseSummaryService.GroupBy> dimension = ExpenseSummaryService.GroupBy.fromParameter(groupBy);
+
+        if (dimension.isEmpty() || !conversionService.supports(targetCurrency)){
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(conversionService.convertSpending(
+                summaryService.summarize(dimension.get(), start(from), end(to)), targetCurrency));
+    }
+
+    /**
+     * Same as {@link #getSummary}, but served from the precomputed daily rollups: the cost depends on the number of
+     * days and groups in the range, not on the number of expenses. Percentiles are not available ({@code null}).
+     */
+    @GetMapping("/rollups")
+    public ResponseEntity<List<SpendingSummary>> getRollupSummary(
+            @RequestParam(defaultValue = "homeCurrency") String groupBy,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) @Pattern(regexp = "[A-Za-z]{3}") String targetCurrency){
+        Optional<ExpenseSummaryService.GroupBy> dimension = ExpenseSummaryService.GroupBy.fromParameter(groupBy);
+
+        if (dimension.isEmpty() || !conversionService.supports(targetCurrency)){
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(conversionService.convertSpending(
+                rollupService.summarize(dimension.get(), start(from), end(to)), targetCurrency));
+    }
+
+    /**
+     * Recomputes the rollups of the days between {@code from} and {@code to} (inclusive, UTC; all days if omitted)
+     * from the raw expenses.
+     */
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<RollupRebuildResponse> rebuildRollups(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        return ResponseEntity.ok(rollupService.rebuild(start(from), end(to)));
+    }
+
+    static Instant start(LocalDate from) {
+        return from != null ? from.atStartOfDay(ZoneOffset.UTC).toInstant() : null;
+    }
+
+    static Instant end(LocalDate to) {
+        return to != null ? to.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant() : null;
+    }
+}
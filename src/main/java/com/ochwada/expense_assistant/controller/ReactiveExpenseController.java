@@ -0,0 +1,287 @@
+package com.ochwada.expense_assistant.controller;
+
+
+import com.ochwada.expense_assistant.dto.BatchExpenseResponse;
+import com.ochwada.expense_assistant.dto.ExpenseChangeEvent;
+import com.ochwada.expense_assistant.dto.ExpenseDeletionJob;
+import com.ochwada.expense_assistant.dto.ExpenseDeletionRequest;
+import com.ochwada.expense_assistant.dto.ExpenseFields;
+import com.ochwada.expense_assistant.dto.ExpenseFilter;
+import com.ochwada.expense_assistant.dto.ExpenseImportResponse;
+import com.ochwada.expense_assistant.dto.ExpenseRequest;
+import com.ochwada.expense_assistant.dto.ExpenseSummary;
+import com.ochwada.expense_assistant.model.Expense;
+import com.ochwada.expense_assistant.service.CurrencyConversionService;
+import com.ochwada.expense_assistant.service.ExpenseChangeFeed;
+import com.ochwada.expense_assistant.service.ExpenseDeletionService;
+import com.ochwada.expense_assistant.service.ExpenseExportService;
+import com.ochwada.expense_assistant.service.ExpenseImportService;
+import com.ochwada.expense_assistant.service.ExpenseService;
+import com.ochwada.expense_assistant.service.ReactiveExpenseService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.controller
+ * File: ReactiveExpenseController.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 3:45 PM
+ * Description: WebFlux REST Controller serving the same {@code /api/expenses} contract as {@link ExpenseController},
+ * active only with the "reactive" profile.
+ * Objective:
+ * - Serve single writes, reads, deletes and the export without blocking a thread
+ * - Serve the batch import, file import and search through the blocking services on the bounded-elastic scheduler
+ * - Hand bulk deletions to the same background jobs as {@link ExpenseController}
+ * *******************************************************
+ */
+
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/expenses")
+public class ReactiveExpenseController {
+
+    private static final int MAX_BATCH_SIZE = 5000;
+
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
+    /**
+     * Expenses read ahead of a CSV or columnar export, and body buffers read ahead of an import.
+     */
+    private static final int EXPORT_PREFETCH = 256;
+    private static final int IMPORT_PREFETCH = 16;
+
+    private final ReactiveExpenseService service;
+
+    private final ExpenseService blockingService;
+
+    private final CurrencyConversionService conversionService;
+
+    private final ExpenseChangeFeed changeFeed;
+
+    private final ExpenseDeletionService deletionService;
+
+    private final ExpenseExportService exportService;
+
+    private final ExpenseImportService importService;
+
+    @Autowired
+    public ReactiveExpenseController(ReactiveExpenseService service, ExpenseService blockingService,
+                                     CurrencyConversionService conversionService, ExpenseChangeFeed changeFeed,
+                                     ExpenseDeletionService deletionService, ExpenseExportService exportService,
+                                     ExpenseImportService importService) {
+        this.service = service;
+        this.blockingService = blockingService;
+        this.conversionService = conversionService;
+        this.changeFeed = changeFeed;
+        this.deletionService = deletionService;
+        this.exportService = exportService;
+        this.importService = importService;
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<Expense>> addExpense(
+            @Valid @RequestBody ExpenseRequest request,
+            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) @Size(min = 1, max = 255) String idempotencyKey){
+        return service.addExpense(request, idempotencyKey)
+                .map(submission -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (submission.isReplayed()){
+                        response.header(IDEMPOTENT_REPLAYED, "true");
+                    }
+                    return response.body(submission.getExpense());
+                })
+                .onErrorResume(ExpenseService.IdempotencyKeyReusedException.class,
+                        e -> Mono.just(ResponseEntity.unprocessableEntity().build()));
+    }
+
+    @PostMapping("/batch")
+    public Mono<BatchExpenseResponse> addExpenses(
+            @RequestBody @Size(min = 1, max = MAX_BATCH_SIZE) List<@Valid ExpenseRequest> requests){
+        return Mono.fromCallable(() -> blockingService.addExpenses(requests))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<?>> getAllExpenses(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") @Min(1) @Max(1000) int limit,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(required = false) @Pattern(regexp = "[A-Za-z]{3}") String targetCurrency){
+        if (cursor != null && !ObjectId.isValid(cursor) || !conversionService.supports(targetCurrency)){
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        Set<String> selected;
+        try {
+            selected = ExpenseFields.parse(fields);
+            if (ExpenseFields.isSummaryView(view, selected)){
+                return convert(service.getExpenseSummaries(cursor, limit), targetCurrency,
+                        page -> conversionService.convertSummaries(page.getItems(), targetCurrency))
+                        .map(ResponseEntity::ok);
+            }
+        } catch (IllegalArgumentException e){
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return convert(service.getExpenses(cursor, limit, ExpenseFields.toRead(selected, targetCurrency)),
+                targetCurrency, page -> conversionService.convertExpenses(page.getItems(), targetCurrency))
+                .map(page -> ResponseEntity.ok(ExpenseFields.select(page, selected)));
+    }
+
+    @GetMapping("/search")
+    public Mono<ResponseEntity<List<ExpenseSummary>>> searchExpenses(@Valid ExpenseFilter filter){
+        return Mono.fromCallable(() -> {
+                    List<ExpenseSummary> found = blockingService.searchExpenses(filter);
+                    conversionService.convertSummaries(found, filter.getTargetCurrency());
+                    return ResponseEntity.ok(found);
+                })
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().build()))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Streams every expense as {@code format=ndjson} (the default), {@code csv} or {@code columnar}. NDJSON is
+     * encoded expense by expense without blocking; the other formats are written from the reactive cursor on the
+     * bounded-elastic scheduler, since they are produced by blocking writers.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<Flux<DataBuffer>> exportExpenses(@RequestParam(defaultValue = "ndjson") String format,
+                                                           ServerHttpResponse response){
+        Optional<ExpenseExportService.Format> resolved = ExpenseExportService.Format.fromParameter(format);
+        if (resolved.isEmpty()){
+            return ResponseEntity.badRequest().build();
+        }
+        ExpenseExportService.Format fileFormat = resolved.get();
+        DataBufferFactory buffers = response.bufferFactory();
+        Flux<DataBuffer> body = fileFormat == ExpenseExportService.Format.NDJSON
+                ? service.streamExpenses().map(expense -> buffers.wrap(exportService.toNdjsonLine(expense)))
+                : Flux.from(DataBufferUtils.outputStreamPublisher(out -> {
+                    // Closing the stream cancels the cursor if the client goes away
+                    try (Stream<Expense> expenses = service.streamExpenses().toStream(EXPORT_PREFETCH)){
+                        exportService.write(fileFormat, expenses.iterator(), out);
+                    } catch (IOException e){
+                        throw new UncheckedIOException(e);
+                    }
+                }, buffers, Schedulers.boundedElastic()::schedule));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(fileFormat.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(fileFormat.getFileName()).build().toString())
+                .body(body);
+    }
+
+    /**
+     * Saves the expenses of an uploaded file; see {@link ExpenseController#importExpenses}. The body is read as it
+     * arrives, by the blocking import on the bounded-elastic scheduler.
+     */
+    @PostMapping("/import")
+    public Mono<ResponseEntity<ExpenseImportResponse>> importExpenses(
+            @RequestParam(defaultValue = "ndjson") String format, @RequestBody Flux<DataBuffer> body){
+        Optional<ExpenseExportService.Format> resolved = ExpenseExportService.Format.fromParameter(format);
+        if (resolved.isEmpty()){
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return Mono.fromCallable(() -> {
+                    try (InputStream in = DataBufferUtils.subscriberInputStream(body, IMPORT_PREFETCH)){
+                        return importService.importExpenses(resolved.get(), in);
+                    }
+                })
+                .map(response -> response.getError() == null
+                        ? ResponseEntity.ok(response)
+                        : ResponseEntity.badRequest().body(response))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<ExpenseChangeEvent>> streamChanges(){
+        return changeFeed.stream();
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<?>> getExpenseById(
+            @PathVariable String id,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(required = false) @Pattern(regexp = "[A-Za-z]{3}") String targetCurrency){
+        Set<String> selected;
+        boolean summary;
+        try {
+            selected = ExpenseFields.parse(fields);
+            summary = ExpenseFields.isSummaryView(view, selected);
+        } catch (IllegalArgumentException e){
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        if (!conversionService.supports(targetCurrency)){
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        Mono<?> expense = summary
+                ? convert(service.getExpenseSummaryById(id), targetCurrency,
+                        found -> conversionService.convertSummaries(List.of(found), targetCurrency))
+                : convert(service.getExpenseById(id, ExpenseFields.toRead(selected, targetCurrency)), targetCurrency,
+                        found -> conversionService.convertExpenses(List.of(found), targetCurrency));
+        return expense
+                .<ResponseEntity<?>>map(found -> ResponseEntity.ok(ExpenseFields.select(found, selected)))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Applies a {@code targetCurrency} conversion on the bounded-elastic scheduler: a rate that is not in the rate
+     * table is fetched with a blocking call.
+     */
+    private static <T> Mono<T> convert(Mono<T> result, String targetCurrency, Consumer<T> conversion) {
+        return targetCurrency == null ? result : result.publishOn(Schedulers.boundedElastic()).doOnNext(conversion);
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Expense>> deleteExpense(@PathVariable String id){
+        return service.deleteExpense(id).thenReturn(ResponseEntity.noContent().build());
+    }
+
+    /**
+     * Queues a bulk deletion; see {@link ExpenseController#deleteExpenses}. Submitting does no I/O.
+     */
+    @DeleteMapping
+    public Mono<ResponseEntity<ExpenseDeletionJob>> deleteExpenses(@Valid @RequestBody ExpenseDeletionRequest request){
+        return Mono.fromSupplier(() -> deletionService.submit(request))
+                .map(job -> ResponseEntity.accepted()
+                        .location(URI.create("/api/expenses/deletions/" + job.getId()))
+                        .body(job));
+    }
+
+    @GetMapping("/deletions/{jobId}")
+    public Mono<ResponseEntity<ExpenseDeletionJob>> getDeletion(@PathVariable String jobId){
+        return Mono.just(ResponseEntity.of(deletionService.getJob(jobId)));
+    }
+}
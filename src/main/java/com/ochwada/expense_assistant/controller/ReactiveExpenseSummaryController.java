@@ -0,0 +1,110 @@
+package com.ochwada.expense_assistant.controller;
+
+
+import com.ochwada.expense_assistant.dto.RollupRebuildResponse;
+import com.ochwada.expense_assistant.dto.SpendingSummary;
+import com.ochwada.expense_assistant.service.CurrencyConversionService;
+import com.ochwada.expense_assistant.service.ExpenseRollupService;
+import com.ochwada.expense_assistant.service.ExpenseSummaryService;
+import jakarta.validation.constraints.Pattern;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static com.ochwada.expense_assistant.controller.ExpenseSummaryController.end;
+import static com.ochwada.expense_assistant.controller.ExpenseSummaryController.start;
+
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.controller
+ * File: ReactiveExpenseSummaryController.java
+ * Author: Ochwada
+ * Date: Monday, 19.Oct.2026, 3:10 AM
+ * Description: WebFlux REST Controller serving the same {@code /api/expenses/summary} contract as
+ * {@link ExpenseSummaryController}, active only with the "reactive" profile.
+ * Objective:
+ * - Run the blocking aggregations, rollup reads and rebuilds on the bounded-elastic scheduler, never on a Netty thread
+ * *******************************************************
+ */
+
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/expenses/summary")
+public class ReactiveExpenseSummaryController {
+
+    private final ExpenseSummaryService summaryService;
+
+    private final ExpenseRollupService rollupService;
+
+    private final CurrencyConversionService conversionService;
+
+    @Autowired
+    public ReactiveExpenseSummaryController(ExpenseSummaryService summaryService, ExpenseRollupService rollupService,
+                                            CurrencyConversionService conversionService) {
+        this.summaryService = summaryService;
+        this.rollupService = rollupService;
+        this.conversionService = conversionService;
+    }
+
+    /**
+     * See {@link ExpenseSummaryController#getSummary}.
+     */
+    @GetMapping
+    public Mono<ResponseEntity<List<SpendingSummary>>> getSummary(
+            @RequestParam(defaultValue = "homeCurrency") String groupBy,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) @Pattern(regexp = "[A-Za-z]{3}") String targetCurrency){
+        Optional<ExpenseSummaryService.GroupBy> dimension = ExpenseSummaryService.GroupBy.fromParameter(groupBy);
+
+        if (dimension.isEmpty() || !conversionService.supports(targetCurrency)){
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return Mono.fromCallable(() -> ResponseEntity.ok(conversionService.convertSpending(
+                        summaryService.summarize(dimension.get(), start(from), end(to)), targetCurrency)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * See {@link ExpenseSummaryController#getRollupSummary}.
+     */
+    @GetMapping("/rollups")
+    public Mono<ResponseEntity<List<SpendingSummary>>> getRollupSummary(
+            @RequestParam(defaultValue = "homeCurrency") String groupBy,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) @Pattern(regexp = "[A-Za-z]{3}") String targetCurrency){
+        Optional<ExpenseSummaryService.GroupBy> dimension = ExpenseSummaryService.GroupBy.fromParameter(groupBy);
+
+        if (dimension.isEmpty() || !conversionService.supports(targetCurrency)){
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return Mono.fromCallable(() -> ResponseEntity.ok(conversionService.convertSpending(
+                        rollupService.summarize(dimension.get(), start(from), end(to)), targetCurrency)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * See {@link ExpenseSummaryController#rebuildRollups}.
+     */
+    @PostMapping("/rollups/rebuild")
+    public Mono<ResponseEntity<RollupRebuildResponse>> rebuildRollups(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        return Mono.fromCallable(() -> ResponseEntity.ok(rollupService.rebuild(start(from), end(to))))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,63 @@
+package com.ochwada.expense_assistant.dto;
+
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.dto
+ * File: BatchExpenseResponse.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 9:15 AM
+ * Description: Data Transfer Object describing the outcome of a bulk expense import.
+ * Objective:
+ * - Report how many expenses were created and how many failed
+ * - Report the outcome of every submitted item, in submission order
+ * *******************************************************
+ */
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchExpenseResponse {
+    /**
+     * Number of expenses that were persisted.
+     */
+    private int created;
+
+    /**
+     * Number of expenses that could not be enriched or persisted.
+     */
+    private int failed;
+
+    /**
+     * Per-item outcomes, one per submitted request and in the same order.
+     */
+    private List<ItemResult> items = new ArrayList<>();
+
+    // ============================== ItemResult POJO =========================================
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class ItemResult {
+        /** Position of the item in the submitted list (0-based). */
+        private int index;
+
+        /** Whether the item was persisted. */
+        private Status status;
+
+        /** ID of the persisted expense, or {@code null} if the item failed. */
+        private String id;
+
+        /** Reason the item failed, or {@code null} if it was persisted. */
+        private String error;
+    }
+
+    public enum Status {
+        CREATED,
+        FAILED
+    }
+}
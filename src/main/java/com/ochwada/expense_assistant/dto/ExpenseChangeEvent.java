@@ -0,0 +1,69 @@
+package com.ochwada.expense_assistant.dto;
+
+
+import com.ochwada.expense_assistant.model.Expense;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.dto
+ * File: ExpenseChangeEvent.java
+ * Author: Ochwada
+ * Date: Monday, 19.Oct.2026, 12:30 AM
+ * Description: An expense was created, updated or deleted, on this instance or (with the change stream enabled) on any
+ * instance sharing the database.
+ * Objective:
+ * - Tell in-process listeners (e.g. caches) which expense changed
+ * - Be pushed to dashboards over {@code GET /api/expenses/stream}
+ * *******************************************************
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExpenseChangeEvent {
+
+    /**
+     * What happened to the expense.
+     */
+    private Type type;
+
+    /**
+     * ID of the expense.
+     */
+    private String id;
+
+    /**
+     * The expense after the change; {@code null} for {@link Type#DELETED}, or if it was deleted again before the change
+     * was read.
+     */
+    private Expense expense;
+
+    /**
+     * When the change was observed.
+     */
+    private Instant observedAt;
+
+    public static ExpenseChangeEvent created(Expense expense) {
+        return new ExpenseChangeEvent(Type.CREATED, expense.getId(), expense, Instant.now());
+    }
+
+    public static ExpenseChangeEvent updated(Expense expense) {
+        return new ExpenseChangeEvent(Type.UPDATED, expense.getId(), expense, Instant.now());
+    }
+
+    public static ExpenseChangeEvent deleted(String id) {
+        return new ExpenseChangeEvent(Type.DELETED, id, null, Instant.now());
+    }
+
+    // ============================== Type =========================================
+
+    public enum Type {
+        CREATED,
+        /** Enriched, claimed for enrichment, or otherwise modified. */
+        UPDATED,
+        DELETED
+    }
+}
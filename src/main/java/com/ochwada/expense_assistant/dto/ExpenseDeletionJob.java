@@ -0,0 +1,61 @@
+package com.ochwada.expense_assistant.dto;
+
+
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.dto
+ * File: ExpenseDeletionJob.java
+ * Author: Ochwada
+ * Date: Monday, 19.Oct.2026, 1:50 AM
+ * Description: Progress of a bulk deletion started with {@code DELETE /api/expenses}, polled at
+ * {@code GET /api/expenses/deletions/{id}}.
+ * Objective:
+ * *******************************************************
+ */
+
+@Data
+@RequiredArgsConstructor
+public class ExpenseDeletionJob {
+    /** ID of the job. */
+    private final String id;
+
+    /** What the job deletes. */
+    private final ExpenseDeletionRequest request;
+
+    /** When the job was submitted. */
+    private final Instant submittedAt;
+
+    // Updated by the thread running the job and read by request threads
+
+    private volatile Status status = Status.QUEUED;
+
+    /** Number of expenses matching the request when the job started; more may match while it runs. */
+    private volatile long matched;
+
+    /** Number of expenses deleted so far. */
+    private volatile long deleted;
+
+    /** Number of chunks deleted so far. */
+    private volatile int chunks;
+
+    private volatile Instant startedAt;
+
+    private volatile Instant finishedAt;
+
+    /** Why the job failed, if it did. Chunks deleted before the failure stay deleted. */
+    private volatile String error;
+
+    // ============================== Status =========================================
+
+    public enum Status {
+        /** Waiting for an earlier job to finish. */
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -0,0 +1,53 @@
+package com.ochwada.expense_assistant.dto;
+
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.dto
+ * File: ExpenseDeletionRequest.java
+ * Author: Ochwada
+ * Date: Monday, 19.Oct.2026, 1:50 AM
+ * Description: Body of {@code DELETE /api/expenses}: which expenses to delete.
+ * Objective:
+ * - Select expenses by ID, city, original currency and/or age; every criterion given must match
+ * - Never select every expense by accident: at least one criterion is required
+ * *******************************************************
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExpenseDeletionRequest {
+    /** IDs of the expenses to delete. */
+    @Size(max = 100_000)
+    private List<@NotBlank String> ids;
+
+    /** Exact city name (as recorded). */
+    private String city;
+
+    /** Original currency code (as recorded, e.g. EUR). */
+    private String currency;
+
+    /** Delete expenses created before this day (UTC). */
+    private LocalDate before;
+
+    /** Delete expenses older than this, e.g. {@code "P365D"}. */
+    private Duration olderThan;
+
+    /**
+     * Whether at least one criterion is set.
+     */
+    @JsonIgnore
+    @AssertTrue(message = "at least one of ids, city, currency, before or olderThan is required")
+    public boolean isSelective() {
+        return ids != null || city != null || currency != null || before != null || olderThan != null;
+    }
+}
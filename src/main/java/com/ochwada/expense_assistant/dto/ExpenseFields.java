@@ -0,0 +1,123 @@
+package com.ochwada.expense_assistant.dto;
+
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.ochwada.expense_assistant.model.Expense;
+import org.springframework.http.converter.json.MappingJacksonValue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.dto
+ * File: ExpenseFields.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 11:10 PM
+ * Description: The {@code fields} query parameter of the expense read endpoints: which {@link Expense} properties to
+ * read from MongoDB and write to the response.
+ * Objective:
+ * - Reject unknown field names before they reach a query
+ * - Leave the properties that were not read out of the JSON, instead of writing them as null or 0
+ * *******************************************************
+ */
+
+public final class ExpenseFields {
+
+    /**
+     * Every property of {@link Expense} that can be requested, by its JSON (and Java) name.
+     */
+    public static final Set<String> ALL = Arrays.stream(Expense.class.getDeclaredFields())
+            .filter(field -> !Modifier.isStatic(field.getModifiers()))
+            .map(Field::getName)
+            .collect(Collectors.toUnmodifiableSet());
+
+    private ExpenseFields() {
+    }
+
+    /**
+     * Validates a {@code fields} parameter such as {@code id,originalAmount,originalCurrency}.
+     *
+     * @param requested the requested names, possibly with surrounding blanks; {@code null} or empty for all fields
+     * @return the trimmed names in request order, or {@code null} if every field should be returned
+     * @throws IllegalArgumentException if a name is not a property of {@link Expense}
+     */
+    public static Set<String> parse(Collection<String> requested) {
+        if (requested == null) {
+            return null;
+        }
+        Set<String> fields = new LinkedHashSet<>();
+        for (String name : requested) {
+            String field = name.trim();
+            if (field.isEmpty()) {
+                continue;
+            }
+            if (!ALL.contains(field)) {
+                throw new IllegalArgumentException("Unknown expense field: " + field);
+            }
+            fields.add(field);
+        }
+        return fields.isEmpty() ? null : fields;
+    }
+
+    /**
+     * The fields to read from MongoDB in order to write {@code fields}: converting {@code convertedAmount} to a
+     * {@code targetCurrency} needs the {@code homeCurrency} it is stored in, even when that is not written.
+     *
+     * @param fields         the parsed {@code fields} parameter, or {@code null} for all fields
+     * @param targetCurrency the requested currency, or {@code null}
+     * @return the fields to read, or {@code null} for all fields
+     */
+    public static Set<String> toRead(Set<String> fields, String targetCurrency) {
+        if (fields == null || targetCurrency == null || !fields.contains("convertedAmount")) {
+            return fields;
+        }
+        Set<String> read = new LinkedHashSet<>(fields);
+        read.add("homeCurrency");
+        return read;
+    }
+
+    /**
+     * Reads the {@code view} parameter that accompanies {@code fields}.
+     *
+     * @param view {@code summary} for {@link ExpenseSummary} views, {@code full} or {@code null} for expenses
+     * @param fields the parsed {@code fields} parameter, which only applies to full expenses
+     * @return whether summaries were requested
+     * @throws IllegalArgumentException if the view is unknown or combined with {@code fields}
+     */
+    public static boolean isSummaryView(String view, Set<String> fields) {
+        if (view == null || view.equalsIgnoreCase("full")) {
+            return false;
+        }
+        if (!view.equalsIgnoreCase("summary")) {
+            throw new IllegalArgumentException("Unknown view: " + view);
+        }
+        if (fields != null) {
+            throw new IllegalArgumentException("fields cannot be combined with view=summary");
+        }
+        return true;
+    }
+
+    /**
+     * Wraps a response body so that every {@link Expense} in it is written with only the given fields.
+     *
+     * @param body   an expense, or an object containing expenses
+     * @param fields the fields to write, as returned by {@link #parse}; {@code null} writes every field
+     * @return the body to return from a controller
+     */
+    public static Object select(Object body, Set<String> fields) {
+        if (fields == null) {
+            return body;
+        }
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        value.setFilters(new SimpleFilterProvider()
+                .addFilter(Expense.FIELDS_FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(fields)));
+        return value;
+    }
+}
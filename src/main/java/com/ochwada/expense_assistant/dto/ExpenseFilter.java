@@ -0,0 +1,53 @@
+package com.ochwada.expense_assistant.dto;
+
+
+import jakarta.validation.constraints.*;
+import lombok.*;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.dto
+ * File: ExpenseFilter.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 2:15 PM
+ * Description: Query parameters of {@code GET /api/expenses/search}.
+ * Objective:
+ * - Filter by one of city, original currency or converted-amount range
+ * - Optionally narrow a city or currency filter (or filter on its own) by creation date
+ * *******************************************************
+ */
+
+@Data
+public class ExpenseFilter {
+    /** Exact city name (as recorded). */
+    private String city;
+
+    /** Original currency code (as recorded, e.g. EUR). */
+    private String currency;
+
+    /** Inclusive lower bound on the converted amount. */
+    private Double minAmount;
+
+    /** Inclusive upper bound on the converted amount. */
+    private Double maxAmount;
+
+    /** First creation day to include (UTC). */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+
+    /** Last creation day to include (UTC). */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+
+    /** Maximum number of results. */
+    @Min(1)
+    @Max(1000)
+    private int limit = 100;
+
+    /** Currency to express the converted amounts in (e.g. EUR); the stored home currency if not set. */
+    @Pattern(regexp = "[A-Za-z]{3}")
+    private String targetCurrency;
+}
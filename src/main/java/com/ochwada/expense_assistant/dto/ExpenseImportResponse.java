@@ -0,0 +1,43 @@
+package com.ochwada.expense_assistant.dto;
+
+
+import lombok.*;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.dto
+ * File: ExpenseImportResponse.java
+ * Author: Ochwada
+ * Date: Monday, 19.Oct.2026, 2:30 AM
+ * Description: Data Transfer Object for the outcome of importing an NDJSON, CSV or columnar file of expenses.
+ * Objective:
+ * - Report how many rows were saved, skipped as already present, or rejected
+ * - Report where a malformed file stopped the import
+ * *******************************************************
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExpenseImportResponse {
+    /** Number of rows read from the file. */
+    private long read;
+
+    /** Number of expenses saved. */
+    private long imported;
+
+    /** Number of rows skipped because their ID or idempotency key is already taken, e.g. a re-imported export. */
+    private long duplicates;
+
+    /** Number of rows MongoDB rejected for any other reason. */
+    private long failed;
+
+    /**
+     * Why the import stopped before the end of the file, or {@code null} if it read the whole file. Rows before the
+     * malformed one have been imported.
+     */
+    private String error;
+
+    /** How long the import took, in milliseconds. */
+    private long durationMs;
+}
@@ -0,0 +1,35 @@
+package com.ochwada.expense_assistant.dto;
+
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.dto
+ * File: ExpensePage.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 11:20 AM
+ * Description: Data Transfer Object for one page of expenses returned by {@code GET /api/expenses}, either as full
+ * {@code Expense} documents or as {@code ExpenseSummary} views.
+ * Objective:
+ * - Return a bounded number of expenses per request
+ * - Hand the client a continuation token for the next page
+ * *******************************************************
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExpensePage<T> {
+    /**
+     * The expenses of this page, in {@code _id} order.
+     */
+    private List<T> items;
+
+    /**
+     * Token to pass as {@code cursor} to fetch the next page, or {@code null} if this is the last page.
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,44 @@
+package com.ochwada.expense_assistant.dto;
+
+
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.dto
+ * File: ExpenseSummary.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 2:10 PM
+ * Description: Compact, read-only view of an expense used as a query projection.
+ * Objective:
+ * - Read only the fields a list screen needs from MongoDB (no weather or description)
+ * *******************************************************
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExpenseSummary {
+    /** Unique identifier of the expense. */
+    private String id;
+
+    /** Amount spent in the original (local) currency. */
+    private double originalAmount;
+
+    /** The original currency code (e.g., EUR, GBP). */
+    private String originalCurrency;
+
+    /** Converted amount in the home currency; {@code null} while the expense is still being enriched. */
+    private Double convertedAmount;
+
+    /** The home currency code (e.g., USD). */
+    private String homeCurrency;
+
+    /** City where the expense occurred. */
+    private String city;
+
+    /** When the expense was recorded. */
+    private Instant createdAt;
+}
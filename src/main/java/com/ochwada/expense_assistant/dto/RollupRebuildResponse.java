@@ -0,0 +1,37 @@
+package com.ochwada.expense_assistant.dto;
+
+
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.dto
+ * File: RollupRebuildResponse.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 10:05 PM
+ * Description: Data Transfer Object for the outcome of rebuilding the expense rollups of a date range.
+ * Objective:
+ * *******************************************************
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RollupRebuildResponse {
+    /** Inclusive start of the rebuilt range; {@code null} if unbounded. */
+    private Instant from;
+
+    /** Exclusive end of the rebuilt range; {@code null} if unbounded. */
+    private Instant to;
+
+    /** Number of buckets recomputed and written. */
+    private long buckets;
+
+    /** Number of buckets removed because none of their expenses remain. */
+    private long removed;
+
+    /** How long the rebuild took, in milliseconds. */
+    private long durationMs;
+}
@@ -0,0 +1,55 @@
+package com.ochwada.expense_assistant.dto;
+
+
+import lombok.*;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.dto
+ * File: SpendingSummary.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 1:10 PM
+ * Description: Data Transfer Object for one group of a spending summary computed by MongoDB.
+ * Objective:
+ * - Report totals, counts, averages and percentiles of {@code convertedAmount} for one group
+ * *******************************************************
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SpendingSummary {
+    /**
+     * The group's key: a currency code, a city, or the first day (yyyy-MM-dd) of a day/week/month bucket.
+     */
+    private String key;
+
+    /**
+     * The home currency all amounts of this group are expressed in.
+     */
+    private String currency;
+
+    /** Number of expenses in the group. */
+    private long count;
+
+    /** Sum of converted amounts. */
+    private double total;
+
+    /** Mean converted amount. */
+    private double average;
+
+    /** Smallest converted amount. */
+    private double min;
+
+    /** Largest converted amount. */
+    private double max;
+
+    /** Median converted amount; {@code null} when summarized from the rollups. */
+    private Double p50;
+
+    /** 90th percentile of converted amounts; {@code null} when summarized from the rollups. */
+    private Double p90;
+
+    /** 99th percentile of converted amounts; {@code null} when summarized from the rollups. */
+    private Double p99;
+}
@@ -0,0 +1,31 @@
+package com.ochwada.expense_assistant.model;
+
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.model
+ * File: EnrichmentStatus.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 7:05 PM
+ * Description: Progress of the currency and weather enrichment of an {@link Expense}.
+ * Objective:
+ * *******************************************************
+ */
+
+public enum EnrichmentStatus {
+
+    /**
+     * Saved with the submitted data only; the enrichment worker has not yet filled in currency and weather.
+     */
+    PENDING,
+
+    /**
+     * Converted amount and weather are filled in.
+     */
+    COMPLETED,
+
+    /**
+     * The exchange rate could not be fetched within the allowed attempts; see {@code enrichmentError}.
+     */
+    FAILED
+}
@@ -4,8 +4,13 @@ package com.ochwada.expense_assistant.model;
 import jakarta.validation.constraints.*;
 import lombok.*;
 import org.springframework.data.annotation.*;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Instant;
+
 /**
  * *******************************************************
  * Package: com.ochwada.expense_assistant.model
@@ -24,8 +29,22 @@ import org.springframework.data.mongodb.core.mapping.Document;
 @AllArgsConstructor
 @NoArgsConstructor
 @Document(collection = "expenses")
+@CompoundIndexes({
+        // Expenses in a city / in an original currency, newest first
+        @CompoundIndex(name = "city_createdAt", def = "{'city': 1, 'createdAt': -1}"),
+        @CompoundIndex(name = "originalCurrency_createdAt", def = "{'originalCurrency': 1, 'createdAt': -1}"),
+        // Work queue of the asynchronous enrichment: only pending expenses are indexed
+        @CompoundIndex(name = "enrichment_queue", def = "{'enrichmentStatus': 1, 'nextEnrichmentAt': 1}",
+                partialFilter = "{'enrichmentStatus': 'PENDING'}")
+})
 public class Expense {
 
+    /**
+     * Id of the Jackson property filter that Spring Boot's ObjectMapper applies to expenses; see {@code JacksonConfig}
+     * and {@code ExpenseFields}.
+     */
+    public static final String FIELDS_FILTER = "expenseFields";
+
     /**
      * Unique identifier for the expense record.
      */
@@ -43,9 +62,10 @@ public class Expense {
     private String originalCurrency; // CurrencyClient
 
     /**
-     *  Converted amount in the user's base or home currency
+     *  Converted amount in the user's base or home currency. {@code null} until the expense has been enriched.
      */
-    private double convertedAmount; // CurrencyClient
+    @Indexed
+    private Double convertedAmount; // CurrencyClient
 
     /**
      *  The target or home currency code for conversion - i.e. defaultTargetCurrency USD.
@@ -70,8 +90,49 @@ public class Expense {
 
     /**
      * Current temperature in degrees Celsius at the time of expense,
-     * fetched from the OpenWeather API.
+     * fetched from the OpenWeather API. {@code null} when the weather was unavailable.
+     */
+    private Double temperature; // WeatherClient
+
+    /**
+     * When the expense was recorded; set automatically on first save and used for date-range summaries.
+     */
+    @CreatedDate
+    @Indexed
+    private Instant createdAt;
+
+    /**
+     * Progress of the currency and weather enrichment. Poll this field after a {@code 202 Accepted} response.
+     */
+    private EnrichmentStatus enrichmentStatus;
+
+    /**
+     * Number of enrichment attempts made so far (asynchronous enrichment only).
+     */
+    private Integer enrichmentAttempts;
+
+    /**
+     * When the next enrichment attempt is due; {@code null} once enrichment has finished.
+     */
+    private Instant nextEnrichmentAt;
+
+    /**
+     * Why the last enrichment attempt failed, if it did.
+     */
+    private String enrichmentError;
+
+    /**
+     * The {@code Idempotency-Key} the expense was submitted with, if any. Unique, so a retried or concurrent duplicate
+     * of the submission cannot save a second expense; expenses submitted without a key are left out of the index.
+     */
+    @Indexed(unique = true, sparse = true)
+    private String idempotencyKey;
+
+    /**
+     * When MongoDB's TTL monitor deletes the expense. Set on insert when {@code app.retention.expire-after} is
+     * configured, otherwise {@code null} and the expense is kept until deleted.
      */
-    private double temperature; // WeatherClient
+    @Indexed(expireAfter = "0s", sparse = true)
+    private Instant expiresAt;
 
 }
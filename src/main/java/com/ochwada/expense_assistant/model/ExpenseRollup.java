@@ -0,0 +1,91 @@
+package com.ochwada.expense_assistant.model;
+
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.model
+ * File: ExpenseRollup.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 9:30 PM
+ * Description: Precomputed totals of the converted expenses of one UTC day, either overall or for one city or original
+ * currency, kept in the {@code expense_rollups} collection.
+ * Objective:
+ * - Serve spending dashboards without scanning the {@code expenses} collection
+ * - Be maintained incrementally, with atomic upserts, as expenses are added and deleted
+ * *******************************************************
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "expense_rollups")
+// One bucket per dimension, day, key and home currency; also serves the dimension + day range reads
+@CompoundIndex(name = "bucket", def = "{'dimension': 1, 'day': 1, 'key': 1, 'homeCurrency': 1}", unique = true)
+public class ExpenseRollup {
+
+    /**
+     * {@code key} of the buckets of the {@link Dimension#TOTAL} dimension.
+     */
+    public static final String TOTAL_KEY = "all";
+
+    @Id
+    private String id;
+
+    /**
+     * What the bucket is split by.
+     */
+    private Dimension dimension;
+
+    /**
+     * Start (midnight UTC) of the day the bucket covers.
+     */
+    private Instant day;
+
+    /**
+     * The city or original currency of the bucket, or {@value #TOTAL_KEY}.
+     */
+    private String key;
+
+    /**
+     * The home currency the amounts are expressed in.
+     */
+    private String homeCurrency;
+
+    /** Number of expenses in the bucket. */
+    private long count;
+
+    /** Sum of converted amounts. */
+    private double total;
+
+    /** Smallest converted amount. */
+    private Double min;
+
+    /** Largest converted amount. */
+    private Double max;
+
+    /**
+     * When the bucket was last changed.
+     */
+    private Instant updatedAt;
+
+    // ============================== Dimension =========================================
+
+    /**
+     * The splits maintained per day.
+     */
+    public enum Dimension {
+        /** All expenses of the day. */
+        TOTAL,
+        /** Expenses of the day per {@code city}. */
+        CITY,
+        /** Expenses of the day per {@code originalCurrency}. */
+        CURRENCY
+    }
+}
@@ -0,0 +1,78 @@
+package com.ochwada.expense_assistant.model;
+
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.model
+ * File: UpstreamSnapshot.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 8:40 PM
+ * Description: Saved copy of the exchange-rate table and the most requested cities' weather, kept in the
+ * {@code upstream_snapshots} collection next to {@code expenses}.
+ * Objective:
+ * - Start new instances with warm currency and weather state instead of a burst of upstream calls
+ * - Give conversions and weather a fallback when an upstream is down at boot
+ * *******************************************************
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "upstream_snapshots")
+public class UpstreamSnapshot {
+
+    /**
+     * Id of the single snapshot document; every instance overwrites it, so the most recent save wins.
+     */
+    public static final String LATEST = "latest";
+
+    @Id
+    private String id;
+
+    /**
+     * When the snapshot was written.
+     */
+    private Instant savedAt;
+
+    /**
+     * The currency every rate is quoted against; {@code null} if no rate table had been fetched yet.
+     */
+    private String baseCurrency;
+
+    /**
+     * Units of each currency per one unit of {@code baseCurrency}, keyed by ISO code.
+     */
+    private Map<String, Double> rates;
+
+    /**
+     * When the rates were fetched from the currency API.
+     */
+    private Instant ratesFetchedAt;
+
+    /**
+     * Last known weather of the most requested cities, hottest first.
+     */
+    private List<CityWeather> weather;
+
+    // ======================CityWeather POJO =====================================
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class CityWeather {
+        /**
+         * Normalized (trimmed, lower-case) city name.
+         */
+        private String city;
+        private String weather;
+        private double temperature;
+        private Instant fetchedAt;
+    }
+}
@@ -1,9 +1,17 @@
 package com.ochwada.expense_assistant.repository;
 
 
+import com.ochwada.expense_assistant.dto.ExpenseSummary;
 import com.ochwada.expense_assistant.model.Expense;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Range;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 /**
  * *******************************************************
  * Package: com.ochwada.expense_assistant.repository
@@ -13,6 +21,8 @@ import org.springframework.data.mongodb.repository.MongoRepository;
  * Description: Repository interface for the conversion document. Spring Data MongoDB automatically implements the
  * interface at runtime, providing built-in CRUD methods
  * Objective:
+ * - Expose one query method per supported access pattern, each backed by an index declared on {@link Expense}
+ * - Return {@link ExpenseSummary} projections so only the listed fields are read from MongoDB
  * *******************************************************
  */
 
@@ -20,4 +30,97 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 public interface ExpenseRepository extends MongoRepository<Expense, String> {
 
     // MongoRepository provides out-of-the-box CRUD methods
+
+    /**
+     * Returns the first page of expenses in {@code _id} order.
+     *
+     * @param limit the maximum number of expenses to return
+     * @return up to {@code limit} expenses, oldest first
+     */
+    List<Expense> findAllByOrderByIdAsc(Limit limit);
+
+    /**
+     * Returns the page of expenses that follows the given ID (keyset pagination on {@code _id}).
+     *
+     * @param id    the ID of the last expense of the previous page
+     * @param limit the maximum number of expenses to return
+     * @return up to {@code limit} expenses whose ID is greater than {@code id}, in {@code _id} order
+     */
+    List<Expense> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
+
+    /**
+     * Returns the first page of expense summaries in {@code _id} order; only the fields of {@link ExpenseSummary} are
+     * read.
+     */
+    List<ExpenseSummary> findSummariesByOrderByIdAsc(Limit limit);
+
+    /**
+     * Returns the page of expense summaries that follows the given ID; only the fields of {@link ExpenseSummary} are
+     * read.
+     */
+    List<ExpenseSummary> findSummariesByIdGreaterThanOrderByIdAsc(String id, Limit limit);
+
+    /**
+     * Finds the summary of one expense; only the fields of {@link ExpenseSummary} are read.
+     */
+    Optional<ExpenseSummary> findSummaryById(String id);
+
+    /**
+     * Streams every expense straight from a MongoDB cursor. The caller must close the stream.
+     *
+     * @return a lazily populated stream of all expenses
+     */
+    Stream<Expense> streamAllBy();
+
+    /**
+     * Deletes an expense and returns it, in one atomic {@code findAndModify}, so that of two concurrent deletes only
+     * one sees the expense.
+     *
+     * @param id the ID of the expense to delete
+     * @return the deleted expense, or empty if there was none
+     */
+    Optional<Expense> removeById(String id);
+
+    /**
+     * Finds the expense submitted with an {@code Idempotency-Key}. Uses the unique {@code idempotencyKey} index.
+     *
+     * @param idempotencyKey the key sent by the client
+     * @return the expense, or empty if no expense was submitted with the key
+     */
+    Optional<Expense> findByIdempotencyKey(String idempotencyKey);
+
+    // ------------------------------ filtered, projected queries ------------------------------
+
+    /**
+     * Expenses recorded in a city, newest first. Uses the {@code city_createdAt} index.
+     */
+    List<ExpenseSummary> findByCityOrderByCreatedAtDesc(String city, Limit limit);
+
+    /**
+     * Expenses recorded in a city within a creation-time range, newest first. Uses the {@code city_createdAt} index.
+     */
+    List<ExpenseSummary> findByCityAndCreatedAtBetweenOrderByCreatedAtDesc(
+            String city, Range<Instant> createdAt, Limit limit);
+
+    /**
+     * Expenses paid in an original currency, newest first. Uses the {@code originalCurrency_createdAt} index.
+     */
+    List<ExpenseSummary> findByOriginalCurrencyOrderByCreatedAtDesc(String originalCurrency, Limit limit);
+
+    /**
+     * Expenses paid in an original currency within a creation-time range, newest first. Uses the
+     * {@code originalCurrency_createdAt} index.
+     */
+    List<ExpenseSummary> findByOriginalCurrencyAndCreatedAtBetweenOrderByCreatedAtDesc(
+            String originalCurrency, Range<Instant> createdAt, Limit limit);
+
+    /**
+     * Expenses whose converted amount lies in a range, smallest first. Uses the {@code convertedAmount} index.
+     */
+    List<ExpenseSummary> findByConvertedAmountBetweenOrderByConvertedAmountAsc(Range<Double> amount, Limit limit);
+
+    /**
+     * Expenses recorded within a creation-time range, newest first. Uses the {@code createdAt} index.
+     */
+    List<ExpenseSummary> findByCreatedAtBetweenOrderByCreatedAtDesc(Range<Instant> createdAt, Limit limit);
 }
@@ -0,0 +1,62 @@
+package com.ochwada.expense_assistant.repository;
+
+
+import com.ochwada.expense_assistant.dto.ExpenseSummary;
+import com.ochwada.expense_assistant.model.Expense;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.repository
+ * File: ReactiveExpenseRepository.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 3:20 PM
+ * Description: Non-blocking repository interface for the expense document, used by the "reactive" profile. Spring Data
+ * MongoDB implements it at runtime on top of the reactive driver.
+ * Objective:
+ * *******************************************************
+ */
+
+
+public interface ReactiveExpenseRepository extends ReactiveMongoRepository<Expense, String> {
+
+    // ReactiveMongoRepository provides out-of-the-box non-blocking CRUD methods
+
+    /**
+     * Emits the first page of expenses in {@code _id} order.
+     */
+    Flux<Expense> findAllByOrderByIdAsc(Limit limit);
+
+    /**
+     * Emits the page of expenses that follows the given ID (keyset pagination on {@code _id}).
+     */
+    Flux<Expense> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
+
+    /**
+     * Emits the first page of expense summaries in {@code _id} order, reading only the fields of {@link ExpenseSummary}.
+     */
+    Flux<ExpenseSummary> findSummariesByOrderByIdAsc(Limit limit);
+
+    /**
+     * Emits the page of expense summaries that follows the given ID, reading only the fields of {@link ExpenseSummary}.
+     */
+    Flux<ExpenseSummary> findSummariesByIdGreaterThanOrderByIdAsc(String id, Limit limit);
+
+    /**
+     * Emits the summary of one expense, reading only the fields of {@link ExpenseSummary}.
+     */
+    Mono<ExpenseSummary> findSummaryById(String id);
+
+    /**
+     * Deletes an expense and emits it, in one atomic {@code findAndModify}; completes empty if there was none.
+     */
+    Mono<Expense> removeById(String id);
+
+    /**
+     * Emits the expense submitted with an {@code Idempotency-Key}; completes empty if there is none.
+     */
+    Mono<Expense> findByIdempotencyKey(String idempotencyKey);
+}
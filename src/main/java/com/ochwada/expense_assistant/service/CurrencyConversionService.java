@@ -0,0 +1,159 @@
+package com.ochwada.expense_assistant.service;
+
+
+import com.ochwada.expense_assistant.client.CurrencyClient;
+import com.ochwada.expense_assistant.dto.ExpenseSummary;
+import com.ochwada.expense_assistant.dto.SpendingSummary;
+import com.ochwada.expense_assistant.model.Expense;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.service
+ * File: CurrencyConversionService.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 11:40 PM
+ * Description: Re-expresses stored amounts in a currency chosen per request ({@code targetCurrency}), at response
+ * time.
+ * Objective:
+ * - Keep {@code convertedAmount}/{@code homeCurrency} as the single normalized amount stored per expense
+ * - Report in any currency from the cached rate table, without upstream calls or document rewrites
+ * *******************************************************
+ */
+
+@Service
+public class CurrencyConversionService {
+
+    private final CurrencyClient currencyClient;
+
+    public CurrencyConversionService(CurrencyClient currencyClient) {
+        this.currencyClient = currencyClient;
+    }
+
+    /**
+     * Returns whether amounts can be expressed in {@code targetCurrency}, so that requests for any other currency can
+     * be rejected before doing any work. Only the rate table is consulted: a currency it lacks is one the currency
+     * API does not quote.
+     *
+     * @param targetCurrency the 3-letter ISO code, or {@code null} for the stored home currency
+     * @return {@code false} if the rate table lacks {@code targetCurrency}
+     */
+    public boolean supports(String targetCurrency) {
+        return targetCurrency == null || currencyClient.isQuoted(targetCurrency);
+    }
+
+    /**
+     * Converts the {@code convertedAmount} of each expense from its {@code homeCurrency} to {@code targetCurrency}, in
+     * place. The result is only returned, never saved. Pending expenses (no converted amount yet) are left as they are.
+     *
+     * @param expenses       the expenses to convert
+     * @param targetCurrency the 3-letter ISO code to express the amounts in, or {@code null} to leave them as stored
+     * @throws IllegalArgumentException if {@code targetCurrency} is not {@linkplain #supports supported}
+     * @throws RuntimeException         if a rate is neither in the rate table nor available from the currency API
+     */
+    public void convertExpenses(Collection<Expense> expenses, String targetCurrency) {
+        if (targetCurrency == null) {
+            return;
+        }
+        Rates rates = new Rates(targetCurrency);
+        for (Expense expense : expenses) {
+            if (expense.getConvertedAmount() != null && expense.getHomeCurrency() != null) {
+                expense.setConvertedAmount(expense.getConvertedAmount() * rates.from(expense.getHomeCurrency()));
+                expense.setHomeCurrency(rates.target);
+            }
+        }
+    }
+
+    /**
+     * Converts expense summaries in place, like {@link #convertExpenses}.
+     */
+    public void convertSummaries(Collection<ExpenseSummary> summaries, String targetCurrency) {
+        if (targetCurrency == null) {
+            return;
+        }
+        Rates rates = new Rates(targetCurrency);
+        for (ExpenseSummary summary : summaries) {
+            if (summary.getConvertedAmount() != null && summary.getHomeCurrency() != null) {
+                summary.setConvertedAmount(summary.getConvertedAmount() * rates.from(summary.getHomeCurrency()));
+                summary.setHomeCurrency(rates.target);
+            }
+        }
+    }
+
+    /**
+     * Re-expresses spending summaries in {@code targetCurrency}.
+     * <p>
+     * Summaries are split by home currency, so one key can have a row per currency that was ever the home currency.
+     * Those rows are merged into one row per key once they share the target currency. Counts, totals, min, max and the
+     * average are exact. Percentiles of a single row are scaled by the rate; percentiles of merged rows cannot be
+     * derived from the rows and are {@code null}.
+     *
+     * @param summaries      the summaries, in the order to keep
+     * @param targetCurrency the 3-letter ISO code to express the amounts in, or {@code null} to leave them as stored
+     * @return the converted summaries, one per key
+     * @throws IllegalArgumentException if {@code targetCurrency} is not {@linkplain #supports supported}
+     */
+    public List<SpendingSummary> convertSpending(List<SpendingSummary> summaries, String targetCurrency) {
+        if (targetCurrency == null) {
+            return summaries;
+        }
+        Rates rates = new Rates(targetCurrency);
+        Map<String, SpendingSummary> byKey = new LinkedHashMap<>();
+        for (SpendingSummary row : summaries) {
+            double rate = rates.from(row.getCurrency());
+            SpendingSummary converted = new SpendingSummary(row.getKey(), rates.target, row.getCount(),
+                    row.getTotal() * rate, row.getAverage() * rate, row.getMin() * rate, row.getMax() * rate,
+                    scale(row.getP50(), rate), scale(row.getP90(), rate), scale(row.getP99(), rate));
+            byKey.merge(row.getKey(), converted, CurrencyConversionService::merge);
+        }
+        return new ArrayList<>(byKey.values());
+    }
+
+    private static SpendingSummary merge(SpendingSummary a, SpendingSummary b) {
+        long count = a.getCount() + b.getCount();
+        double total = a.getTotal() + b.getTotal();
+        return new SpendingSummary(a.getKey(), a.getCurrency(), count, total, count > 0 ? total / count : 0,
+                Math.min(a.getMin(), b.getMin()), Math.max(a.getMax(), b.getMax()), null, null, null);
+    }
+
+    private static Double scale(Double amount, double rate) {
+        return amount != null ? amount * rate : null;
+    }
+
+    // ============================== Rates =========================================
+
+    /**
+     * Rates into one target currency, looked up once per source currency for the duration of a response. Each lookup
+     * is served from the rate table while it is fresh, so a response costs no upstream call however many currencies
+     * it reports in.
+     */
+    private final class Rates {
+
+        private final String target;
+
+        private final Map<String, Double> bySource = new HashMap<>();
+
+        Rates(String targetCurrency) {
+            if (!supports(targetCurrency)) {
+                throw new IllegalArgumentException("Unsupported target currency: " + targetCurrency);
+            }
+            this.target = targetCurrency.toUpperCase(Locale.ROOT);
+        }
+
+        double from(String sourceCurrency) {
+            String source = sourceCurrency.toUpperCase(Locale.ROOT);
+            if (source.equals(target)) {
+                return 1.0;
+            }
+            return bySource.computeIfAbsent(source, s -> currencyClient.getRate(s, target));
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.ochwada.expense_assistant.service;
+
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.ochwada.expense_assistant.client.CurrencyClient;
+import com.ochwada.expense_assistant.client.WeatherClient;
+import com.ochwada.expense_assistant.dto.ExpenseChangeEvent;
+import com.ochwada.expense_assistant.model.EnrichmentStatus;
+import com.ochwada.expense_assistant.model.Expense;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.service
+ * File: EnrichmentWorker.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 7:20 PM
+ * Description: Background worker of the asynchronous enrichment mode ({@code app.enrichment.mode=async}). It fills in
+ * the currency and weather fields of expenses saved as {@link EnrichmentStatus#PENDING}.
+ * Objective:
+ * - Claim due expenses in batches so that several application instances can share the queue
+ * - Look up each distinct currency and city of a batch once, on a bounded pool
+ * - Retry failed lookups with exponential backoff, up to a maximum number of attempts
+ * - Add completed expenses to the spending rollups
+ * *******************************************************
+ */
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.enrichment.mode", havingValue = "async")
+public class EnrichmentWorker {
+
+    private final MongoTemplate mongoTemplate;
+
+    private final CurrencyClient currencyClient;
+
+    private final WeatherClient weatherClient;
+
+    /**
+     * Bounded pool the lookups of a batch run on.
+     */
+    private final ExecutorService workerExecutor;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ExpenseRollupService rollupService;
+
+    private final ExpenseChangeFeed changeFeed;
+
+    /**
+     * Maximum number of expenses claimed and enriched together.
+     */
+    @Value("${app.enrichment.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * Attempts after which an expense whose exchange rate still cannot be fetched is marked {@code FAILED}. On the
+     * last attempt a missing weather no longer blocks completion; it is stored as unavailable.
+     */
+    @Value("${app.enrichment.max-attempts:8}")
+    private int maxAttempts;
+
+    /**
+     * Delay before the first retry; doubled after each further failure, up to {@code max-backoff}.
+     */
+    @Value("${app.enrichment.initial-backoff:1s}")
+    private Duration initialBackoff;
+
+    @Value("${app.enrichment.max-backoff:5m}")
+    private Duration maxBackoff;
+
+    /**
+     * How long a claimed expense is reserved for the claiming worker. If the worker dies mid-batch, the expense
+     * becomes due again once the lease runs out.
+     */
+    @Value("${app.enrichment.lease:1m}")
+    private Duration lease;
+
+    public EnrichmentWorker(MongoTemplate mongoTemplate,
+                            CurrencyClient currencyClient,
+                            WeatherClient weatherClient,
+                            @Qualifier("enrichmentWorkerExecutor") ExecutorService workerExecutor,
+                            MeterRegistry meterRegistry,
+                            ExpenseRollupService rollupService,
+                            ExpenseChangeFeed changeFeed) {
+        this.mongoTemplate = mongoTemplate;
+        this.currencyClient = currencyClient;
+        this.weatherClient = weatherClient;
+        this.workerExecutor = workerExecutor;
+        this.meterRegistry = meterRegistry;
+        this.rollupService = rollupService;
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * Enriches due expenses batch by batch until the queue has no more due work, then waits
+     * {@code app.enrichment.poll-interval} before looking again.
+     */
+    @Scheduled(fixedDelayString = "${app.enrichment.poll-interval:500ms}")
+    public void drain() {
+        List<Expense> batch;
+        do {
+            batch = claim();
+            if (!batch.isEmpty()) {
+                enrich(batch);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    /**
+     * Claims up to {@code batchSize} due expenses, oldest due first. Each claim atomically counts the attempt and
+     * pushes {@code nextEnrichmentAt} out by the lease, so no other worker picks the same expense meanwhile.
+     *
+     * @return the claimed expenses, with their attempt count already incremented
+     */
+    List<Expense> claim() {
+        Instant now = Instant.now();
+        Query due = Query.query(Criteria.where("enrichmentStatus").is(EnrichmentStatus.PENDING)
+                        .and("nextEnrichmentAt").lte(now))
+                .with(Sort.by("nextEnrichmentAt"));
+        Update reserve = new Update()
+                .set("nextEnrichmentAt", now.plus(lease))
+                .inc("enrichmentAttempts", 1);
+
+        List<Expense> batch = new ArrayList<>();
+        while (batch.size() < batchSize) {
+            Expense claimed = mongoTemplate.findAndModify(due, reserve,
+                    FindAndModifyOptions.options().returnNew(true), Expense.class);
+            if (claimed == null) {
+                break;
+            }
+            batch.add(claimed);
+        }
+        return batch;
+    }
+
+    /**
+     * Looks up each distinct currency and city of the batch once, concurrently on the worker pool, then writes every
+     * outcome in a single unordered bulk write.
+     *
+     * @param batch claimed expenses
+     */
+    void enrich(List<Expense> batch) {
+        Map<String, CompletableFuture<Double>> rates = lookups(batch,
+                e -> e.getOriginalCurrency().toUpperCase(Locale.ROOT), Expense::getOriginalCurrency,
+                currencyClient::getRate);
+        Map<String, CompletableFuture<WeatherClient.WeatherData>> weather = lookups(batch,
+                e -> ExpenseService.cityKey(e.getCity()), e -> e.getCity().trim(),
+                weatherClient::getWeatherForCity);
+
+        Instant now = Instant.now();
+        BulkOperations updates = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Expense.class);
+        List<Expense> completed = new ArrayList<>();
+        for (Expense expense : batch) {
+            CompletableFuture<Double> rate = rates.get(expense.getOriginalCurrency().toUpperCase(Locale.ROOT));
+            CompletableFuture<WeatherClient.WeatherData> cityWeather = weather.get(ExpenseService.cityKey(expense.getCity()));
+            boolean lastAttempt = expense.getEnrichmentAttempts() >= maxAttempts;
+
+            Update update;
+            String outcome;
+            if (!rate.isCompletedExceptionally() && (!cityWeather.isCompletedExceptionally() || lastAttempt)) {
+                update = completed(expense, rate.join(),
+                        cityWeather.isCompletedExceptionally() ? null : cityWeather.join());
+                outcome = "completed";
+                completed.add(expense);
+            } else if (lastAttempt) {
+                update = new Update()
+                        .set("enrichmentStatus", EnrichmentStatus.FAILED)
+                        .set("enrichmentError", failure(rate, cityWeather))
+                        .unset("nextEnrichmentAt");
+                outcome = "failed";
+            } else {
+                update = new Update()
+                        .set("nextEnrichmentAt", now.plus(backoff(expense.getEnrichmentAttempts())))
+                        .set("enrichmentError", failure(rate, cityWeather));
+                outcome = "retried";
+            }
+            // Only touch expenses that are still pending (e.g. not deleted and re-created meanwhile)
+            updates.updateOne(Query.query(Criteria.where("_id").is(expense.getId())
+                    .and("enrichmentStatus").is(EnrichmentStatus.PENDING)), update);
+            meterRegistry.counter("expense.enrichment", "outcome", outcome).increment();
+        }
+        BulkWriteResult result = updates.execute();
+        List<Expense> applied = result.getMatchedCount() == batch.size() ? completed : stillCompleted(completed);
+        rollupService.record(applied);
+        changeFeed.local(applied, ExpenseChangeEvent::updated);
+    }
+
+    /**
+     * Of the expenses this worker completed, those whose update actually applied: still present and not re-claimed by
+     * another worker after the lease ran out (which would have counted another attempt). Only needed when some updates
+     * of a batch matched nothing.
+     */
+    private List<Expense> stillCompleted(List<Expense> completed) {
+        Map<String, Expense> byId = new HashMap<>();
+        completed.forEach(expense -> byId.put(expense.getId(), expense));
+        Query applied = Query.query(Criteria.where("_id").in(byId.keySet())
+                .and("enrichmentStatus").is(EnrichmentStatus.COMPLETED));
+        applied.fields().include("enrichmentAttempts");
+        return mongoTemplate.find(applied, Expense.class).stream()
+                .filter(found -> byId.get(found.getId()).getEnrichmentAttempts().equals(found.getEnrichmentAttempts()))
+                .map(found -> byId.get(found.getId()))
+                .toList();
+    }
+
+    /**
+     * Starts one lookup per distinct key of the batch on the worker pool and waits for all of them.
+     *
+     * @param key      the normalized key lookups are shared by
+     * @param argument the value passed to the lookup, taken from the first expense with that key
+     */
+    private <T> Map<String, CompletableFuture<T>> lookups(List<Expense> batch,
+                                                          Function<Expense, String> key,
+                                                          Function<Expense, String> argument,
+                                                          Function<String, T> lookup) {
+        Map<String, CompletableFuture<T>> lookups = new HashMap<>();
+        for (Expense expense : batch) {
+            lookups.computeIfAbsent(key.apply(expense), k -> {
+                String value = argument.apply(expense);
+                return CompletableFuture.supplyAsync(() -> lookup.apply(value), workerExecutor);
+            });
+        }
+        CompletableFuture.allOf(lookups.values().toArray(CompletableFuture[]::new))
+                .exceptionally(e -> null)
+                .join();
+        return lookups;
+    }
+
+    /**
+     * The update that fills in an expense the same way {@link ExpenseService#toExpense} builds one. The same values are
+     * set on {@code expense}, for the rollups and the change feed.
+     */
+    private Update completed(Expense expense, double rate, WeatherClient.WeatherData weatherData) {
+        expense.setConvertedAmount(expense.getOriginalAmount() * rate);
+        expense.setHomeCurrency(currencyClient.getTargetCurrency());
+        expense.setEnrichmentStatus(EnrichmentStatus.COMPLETED);
+        expense.setNextEnrichmentAt(null);
+        expense.setEnrichmentError(null);
+        expense.setWeather(weatherData != null ? weatherData.getWeather() : ExpenseService.WEATHER_UNAVAILABLE);
+        expense.setTemperature(weatherData != null ? weatherData.getTemperature() : null);
+        Update update = new Update()
+                .set("convertedAmount", expense.getConvertedAmount())
+                .set("homeCurrency", expense.getHomeCurrency())
+                .set("enrichmentStatus", EnrichmentStatus.COMPLETED)
+                .unset("nextEnrichmentAt")
+                .unset("enrichmentError");
+        if (weatherData != null) {
+            update.set("weather", weatherData.getWeather()).set("temperature", weatherData.getTemperature());
+        } else {
+            update.set("weather", ExpenseService.WEATHER_UNAVAILABLE);
+        }
+        return update;
+    }
+
+    /**
+     * Delay before the next attempt: {@code initialBackoff * 2^(attempts - 1)}, capped at {@code maxBackoff}.
+     */
+    Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private static String failure(CompletableFuture<?> rate, CompletableFuture<?> weather) {
+        CompletableFuture<?> failed = rate.isCompletedExceptionally() ? rate : weather;
+        return failed.handle((value, e) -> e.getCause() != null ? e.getCause().getMessage() : e.getMessage()).join();
+    }
+}
@@ -0,0 +1,253 @@
+package com.ochwada.expense_assistant.service;
+
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.ochwada.expense_assistant.dto.ExpenseChangeEvent;
+import com.ochwada.expense_assistant.model.EnrichmentStatus;
+import com.ochwada.expense_assistant.model.Expense;
+import com.ochwada.expense_assistant.repository.ExpenseRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.service
+ * File: ExpenseCache.java
+ * Author: Ochwada
+ * Date: Monday, 19.Oct.2026, 1:20 AM
+ * Description: Bounded, in-process read-through cache of single expenses for {@code GET /api/expenses/{id}}, with an
+ * optional shared {@link ExpenseCacheTier} behind it.
+ * Objective:
+ * - Serve repeated reads of the same expense without a MongoDB round trip
+ * - Never serve an expense after this instance has seen it change: entries are dropped on every
+ * {@link ExpenseChangeEvent}, which covers other instances' writes too while the change stream is enabled. This
+ * instance's own writes are applied at once, without waiting for the change stream
+ * *******************************************************
+ */
+
+@Slf4j
+@Component
+public class ExpenseCache {
+
+    private final ExpenseRepository repository;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * The shared second tier, or {@code null} when no {@link ExpenseCacheTier} bean is declared.
+     */
+    private final ExpenseCacheTier secondTier;
+
+    /**
+     * Counts invalidations, so that a read started before one does not put what it read afterwards.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * When disabled, every read goes to MongoDB.
+     */
+    @Value("${app.expense-cache.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Maximum number of expenses kept in process.
+     */
+    @Value("${app.expense-cache.max-size:10000}")
+    private long maxSize;
+
+    /**
+     * How long an expense is kept after it was read. Bounds how stale an entry can get when a change is missed, e.g.
+     * another instance's write while the change stream is disabled.
+     */
+    @Value("${app.expense-cache.ttl:5m}")
+    private Duration ttl;
+
+    private Cache<String, Expense> cache;
+
+    public ExpenseCache(ExpenseRepository repository, MeterRegistry meterRegistry,
+                        ObjectProvider<ExpenseCacheTier> secondTier) {
+        this.repository = repository;
+        this.meterRegistry = meterRegistry;
+        this.secondTier = secondTier.getIfAvailable();
+    }
+
+    /**
+     * Builds the cache once its settings have been injected, and publishes its statistics ({@code cache.gets}
+     * hit/miss, {@code cache.evictions}, {@code cache.size}) under the name "expenses".
+     * <p>
+     * An expense with an {@code expiresAt} (see {@link ExpenseExpiryListener}) is not kept past it.
+     */
+    @PostConstruct
+    void initCache() {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.<String, Expense>writing((id, expense) -> expense.getExpiresAt() == null
+                        ? ttl
+                        : clamp(Duration.between(Instant.now(), expense.getExpiresAt()))))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "expenses");
+    }
+
+    /**
+     * Returns an expense from the cache, or reads it from the second tier or from MongoDB and caches it. Concurrent
+     * misses for the same ID share one read.
+     * <p>
+     * Expenses still {@link EnrichmentStatus#PENDING} are returned but not cached, since the enrichment worker keeps
+     * changing them.
+     *
+     * @param id the ID of the expense
+     * @return a copy of the expense the caller may modify, or empty if it does not exist
+     */
+    public Optional<Expense> findById(String id) {
+        if (!enabled) {
+            return repository.findById(id);
+        }
+        Expense[] uncached = new Expense[1];
+        Expense cached = cache.get(id, key -> {
+            Expense loaded = load(key);
+            if (loaded != null && !isCacheable(loaded)) {
+                uncached[0] = loaded;
+                return null;
+            }
+            return loaded;
+        });
+        return cached != null ? Optional.of(copy(cached)) : Optional.ofNullable(uncached[0]);
+    }
+
+    /**
+     * Returns an expense only if it is cached in process; never blocks on I/O.
+     *
+     * @param id the ID of the expense
+     * @return a copy of the expense the caller may modify, or empty on a miss
+     */
+    public Optional<Expense> getIfPresent(String id) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(cache.getIfPresent(id)).map(ExpenseCache::copy);
+    }
+
+    /**
+     * Marks the start of a read that will be cached with {@link #putIfUnchanged}.
+     */
+    public long ticket() {
+        return invalidations.get();
+    }
+
+    /**
+     * Caches an expense read by the caller, unless an invalidation has happened since {@code ticket} was taken: the
+     * expense may then already be out of date. For reads that cannot go through {@link #findById}, such as the
+     * reactive ones.
+     *
+     * @param expense the expense as read from MongoDB
+     * @param ticket  the {@link #ticket()} taken before the read
+     */
+    public void putIfUnchanged(Expense expense, long ticket) {
+        if (!enabled || !isCacheable(expense)) {
+            return;
+        }
+        Expense entry = copy(expense);
+        // Runs under the key's lock, like the invalidation, so one cannot slip between the check and the put
+        cache.asMap().compute(expense.getId(), (id, current) -> invalidations.get() == ticket ? entry : current);
+    }
+
+    /**
+     * Keeps the cache in step with every change: a created expense is cached at once (it is likely to be read back
+     * soon), an updated or deleted one is dropped from both tiers.
+     */
+    @EventListener
+    public void onChange(ExpenseChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.getType() == ExpenseChangeEvent.Type.CREATED && event.getExpense() != null) {
+            if (isCacheable(event.getExpense())) {
+                cache.put(event.getId(), copy(event.getExpense()));
+            }
+            return;
+        }
+        cache.asMap().compute(event.getId(), (id, current) -> {
+            invalidations.incrementAndGet();
+            return null;
+        });
+        if (secondTier != null) {
+            tierCall("evict", () -> {
+                secondTier.evict(event.getId());
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Reads an expense on an in-process miss: from the second tier if there is one, else from MongoDB, filling the
+     * second tier.
+     */
+    private Expense load(String id) {
+        if (secondTier != null) {
+            Optional<Expense> shared = tierCall("get", () -> secondTier.get(id));
+            if (shared != null && shared.isPresent()) {
+                meterRegistry.counter("expense.cache.tier", "result", "hit").increment();
+                return shared.get();
+            }
+            if (shared != null) {
+                meterRegistry.counter("expense.cache.tier", "result", "miss").increment();
+            }
+        }
+        Expense loaded = repository.findById(id).orElse(null);
+        if (loaded != null && secondTier != null && isCacheable(loaded)) {
+            tierCall("put", () -> {
+                secondTier.put(loaded);
+                return null;
+            });
+        }
+        return loaded;
+    }
+
+    /**
+     * Runs a call to the second tier. A failing tier only costs the read its shortcut: the failure is counted as
+     * {@code expense.cache.tier{result=error}} and {@code null} is returned.
+     */
+    private <T> T tierCall(String operation, Supplier<T> call) {
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            meterRegistry.counter("expense.cache.tier", "result", "error").increment();
+            log.debug("Expense cache tier {} failed: {}", operation, e.toString());
+            return null;
+        }
+    }
+
+    private Duration clamp(Duration untilExpiry) {
+        return untilExpiry.isNegative() ? Duration.ZERO : untilExpiry.compareTo(ttl) < 0 ? untilExpiry : ttl;
+    }
+
+    private static boolean isCacheable(Expense expense) {
+        return expense.getEnrichmentStatus() != EnrichmentStatus.PENDING;
+    }
+
+    /**
+     * Cached expenses are never handed out or taken in directly: responses convert amounts in place (see
+     * {@link CurrencyConversionService}), which must not reach the cached entry.
+     */
+    private static Expense copy(Expense expense) {
+        Expense copy = new Expense();
+        BeanUtils.copyProperties(expense, copy);
+        return copy;
+    }
+}
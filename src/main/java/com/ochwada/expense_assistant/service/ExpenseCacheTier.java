@@ -0,0 +1,40 @@
+package com.ochwada.expense_assistant.service;
+
+
+import com.ochwada.expense_assistant.model.Expense;
+
+import java.util.Optional;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.service
+ * File: ExpenseCacheTier.java
+ * Author: Ochwada
+ * Date: Monday, 19.Oct.2026, 1:20 AM
+ * Description: A second, shared cache tier behind the in-process {@link ExpenseCache}, e.g. a cache server that every
+ * instance reads from. Declare a bean implementing it to enable it.
+ * Objective:
+ * - Let an instance with a cold in-process cache skip MongoDB for expenses another instance has already read
+ * - Keep the tier optional and replaceable: {@link ExpenseCache} works the same without one
+ * *******************************************************
+ */
+
+public interface ExpenseCacheTier {
+
+    /**
+     * @param id the ID of the expense
+     * @return the cached expense, or empty on a miss
+     * @throws RuntimeException if the tier cannot be reached; the read then goes to MongoDB
+     */
+    Optional<Expense> get(String id);
+
+    /**
+     * Stores a complete expense under its ID.
+     */
+    void put(Expense expense);
+
+    /**
+     * Removes the expense with the given ID, if it is cached.
+     */
+    void evict(String id);
+}
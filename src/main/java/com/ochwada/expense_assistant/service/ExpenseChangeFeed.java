@@ -0,0 +1,139 @@
+package com.ochwada.expense_assistant.service;
+
+
+import com.ochwada.expense_assistant.dto.ExpenseChangeEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.service
+ * File: ExpenseChangeFeed.java
+ * Author: Ochwada
+ * Date: Monday, 19.Oct.2026, 12:40 AM
+ * Description: Distributes {@link ExpenseChangeEvent}s to in-process listeners (as Spring application events) and to
+ * the server-sent-events subscribers of {@code GET /api/expenses/stream}.
+ * Objective:
+ * - Take changes from the services' own writes, or from the MongoDB change stream when it is enabled (which also sees
+ * the writes of other instances), never from both
+ * - Keep the {@link ExpenseCache} in step with this instance's own writes at once, without waiting for the change
+ * stream
+ * - Never let a slow subscriber hold up a write: each one has a bounded buffer that drops its oldest events
+ * *******************************************************
+ */
+
+@Component
+public class ExpenseChangeFeed {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ExpenseCache expenseCache;
+
+    /**
+     * Hot source of the SSE streams; events published while nobody is subscribed are not kept.
+     */
+    private final Sinks.Many<ExpenseChangeEvent> sink = Sinks.many().multicast().directBestEffort();
+
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    private final Counter dropped;
+
+    /**
+     * With the change stream enabled, the {@link ExpenseChangeStreamListener} publishes every change, including this
+     * instance's own writes, so the services' local notifications only reach the {@link ExpenseCache}.
+     */
+    @Value("${app.change-stream.enabled:false}")
+    private boolean changeStreamEnabled;
+
+    /**
+     * Events held per subscriber that reads slower than expenses change.
+     */
+    @Value("${app.change-feed.buffer:256}")
+    private int bufferSize;
+
+    /**
+     * Interval of the comment lines sent on an idle stream, so proxies do not close it.
+     */
+    @Value("${app.change-feed.heartbeat:15s}")
+    private Duration heartbeat;
+
+    public ExpenseChangeFeed(ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+                             ExpenseCache expenseCache) {
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        this.expenseCache = expenseCache;
+        this.dropped = Counter.builder("expense.feed.dropped")
+                .description("Change events dropped for stream subscribers that fell behind")
+                .register(meterRegistry);
+        Gauge.builder("expense.feed.subscribers", subscribers, AtomicInteger::get)
+                .description("Open GET /api/expenses/stream connections")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reports changes made by this instance's services. While the change stream is enabled, which reports them too,
+     * they are only applied to the {@link ExpenseCache}: it must not serve an expense this instance has just changed
+     * until the change stream catches up. The cache then sees each change twice, which is harmless.
+     *
+     * @param expenses the changed expenses
+     * @param toEvent  builds the event of one expense, e.g. {@link ExpenseChangeEvent#created}
+     */
+    public <T> void local(Collection<T> expenses, Function<T, ExpenseChangeEvent> toEvent) {
+        if (!changeStreamEnabled) {
+            expenses.forEach(expense -> publish(toEvent.apply(expense)));
+        } else {
+            expenses.forEach(expense -> expenseCache.onChange(toEvent.apply(expense)));
+        }
+    }
+
+    /**
+     * Delivers a change to the in-process listeners, synchronously, and to every stream subscriber.
+     *
+     * @param event the change
+     */
+    public void publish(ExpenseChangeEvent event) {
+        meterRegistry.counter("expense.changes", "type", event.getType().name()).increment();
+        eventPublisher.publishEvent(event);
+        // A sink accepts one emission at a time; changes are published from request and worker threads alike
+        synchronized (sink) {
+            sink.tryEmitNext(event);
+        }
+    }
+
+    /**
+     * The stream of changes from now on, as server-sent events named after the change type, with a comment line
+     * every {@code app.change-feed.heartbeat} while idle. Changes are not replayed: a client that reconnects should
+     * refresh its view with {@code GET /api/expenses} first.
+     *
+     * @return an endless stream, completed by the client disconnecting
+     */
+    public Flux<ServerSentEvent<ExpenseChangeEvent>> stream() {
+        Flux<ServerSentEvent<ExpenseChangeEvent>> changes = sink.asFlux()
+                .onBackpressureBuffer(bufferSize, event -> dropped.increment(), BufferOverflowStrategy.DROP_OLDEST)
+                .map(event -> ServerSentEvent.builder(event)
+                        .id(event.getId())
+                        .event(event.getType().name().toLowerCase(Locale.ROOT))
+                        .build());
+        Flux<ServerSentEvent<ExpenseChangeEvent>> heartbeats = Flux.interval(heartbeat)
+                .map(tick -> ServerSentEvent.<ExpenseChangeEvent>builder().comment("heartbeat").build());
+        return Flux.merge(changes, heartbeats)
+                .doOnSubscribe(subscription -> subscribers.incrementAndGet())
+                .doFinally(signal -> subscribers.decrementAndGet());
+    }
+}
@@ -0,0 +1,137 @@
+package com.ochwada.expense_assistant.service;
+
+
+import com.mongodb.MongoException;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.ochwada.expense_assistant.dto.ExpenseChangeEvent;
+import com.ochwada.expense_assistant.model.Expense;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Subscription;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.service
+ * File: ExpenseChangeStreamListener.java
+ * Author: Ochwada
+ * Date: Monday, 19.Oct.2026, 12:55 AM
+ * Description: Follows the MongoDB change stream of the {@code expenses} collection and publishes every insert,
+ * update and delete, from any instance, to the {@link ExpenseChangeFeed}.
+ * Objective:
+ * - Keep caches and live dashboards of every instance in step with writes made elsewhere
+ * - Resume after an error from the last change seen, so no change is skipped
+ * *******************************************************
+ */
+
+@Slf4j
+@Component
+// Change streams need a replica set or sharded cluster; a standalone server rejects them
+@ConditionalOnProperty(name = "app.change-stream.enabled", havingValue = "true")
+public class ExpenseChangeStreamListener {
+
+    /**
+     * Error code of a resume token whose change is no longer in the oplog.
+     */
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    private final MongoTemplate mongoTemplate;
+
+    private final ExpenseChangeFeed changeFeed;
+
+    private final MessageListenerContainer container;
+
+    private volatile Subscription subscription;
+
+    /**
+     * Resume token of the last change published; {@code null} until the first one.
+     */
+    private volatile BsonValue resumeToken;
+
+    public ExpenseChangeStreamListener(MongoTemplate mongoTemplate, ExpenseChangeFeed changeFeed) {
+        this.mongoTemplate = mongoTemplate;
+        this.changeFeed = changeFeed;
+        this.container = new DefaultMessageListenerContainer(mongoTemplate,
+                new SimpleAsyncTaskExecutor("expense-change-stream-"),
+                this::onError);
+    }
+
+    @PostConstruct
+    void start() {
+        container.start();
+        subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        container.stop();
+    }
+
+    /**
+     * Re-opens the change stream after it failed (e.g. on a replica-set election), resuming after the last change
+     * that was published.
+     */
+    @Scheduled(fixedDelayString = "${app.change-stream.watchdog-interval:30s}")
+    void watchdog() {
+        Subscription current = subscription;
+        if (current != null && !current.isActive()) {
+            log.info("Re-opening the expense change stream");
+            container.remove(current);
+            subscribe();
+        }
+    }
+
+    private void subscribe() {
+        // builder() without a listener returns a raw builder; this overload keeps the request typed
+        ChangeStreamRequest.ChangeStreamRequestBuilder<Expense> request = ChangeStreamRequest.<Expense>builder(
+                        this::onChange)
+                .collection(mongoTemplate.getCollectionName(Expense.class))
+                .filter(newAggregation(match(where("operationType").in("insert", "update", "replace", "delete"))))
+                .fullDocumentLookup(FullDocument.UPDATE_LOOKUP);
+        if (resumeToken != null) {
+            request.resumeAfter(resumeToken);
+        }
+        subscription = container.register(request.build(), Expense.class);
+    }
+
+    private void onError(Throwable e) {
+        log.warn("Expense change stream failed: {}", e.getMessage());
+        if (NestedExceptionUtils.getMostSpecificCause(e) instanceof MongoException mongo
+                && mongo.getCode() == CHANGE_STREAM_HISTORY_LOST) {
+            // Changes were missed; listeners were not told about them, but the stream can only restart from now
+            log.warn("Expense change stream resume point is no longer in the oplog, restarting from now");
+            resumeToken = null;
+        }
+    }
+
+    private void onChange(Message<ChangeStreamDocument<Document>, Expense> message) {
+        ChangeStreamDocument<Document> change = message.getRaw();
+        String id = change.getDocumentKey().get("_id").asObjectId().getValue().toHexString();
+        ExpenseChangeEvent event = switch (change.getOperationType()) {
+            case INSERT -> new ExpenseChangeEvent(ExpenseChangeEvent.Type.CREATED, id, message.getBody(), Instant.now());
+            case DELETE -> ExpenseChangeEvent.deleted(id);
+            default -> new ExpenseChangeEvent(ExpenseChangeEvent.Type.UPDATED, id, message.getBody(), Instant.now());
+        };
+        changeFeed.publish(event);
+        resumeToken = change.getResumeToken();
+    }
+}
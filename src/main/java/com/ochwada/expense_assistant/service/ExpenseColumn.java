@@ -0,0 +1,145 @@
+package com.ochwada.expense_assistant.service;
+
+
+import com.ochwada.expense_assistant.model.EnrichmentStatus;
+import com.ochwada.expense_assistant.model.Expense;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.service
+ * File: ExpenseColumn.java
+ * Author: Ochwada
+ * Date: Monday, 19.Oct.2026, 2:30 AM
+ * Description: The columns of the CSV and columnar expense files: one per {@link Expense} property, in file order.
+ * Objective:
+ * - Define once how each property is read from and written to an expense, and as which value type
+ * - Let both file formats round-trip every property, {@code null}s included
+ * *******************************************************
+ */
+
+enum ExpenseColumn {
+
+    ID("id", Type.STRING, Expense::getId, (e, v) -> e.setId((String) v)),
+    ORIGINAL_AMOUNT("originalAmount", Type.DOUBLE, Expense::getOriginalAmount,
+            (e, v) -> e.setOriginalAmount((Double) v)),
+    ORIGINAL_CURRENCY("originalCurrency", Type.STRING, Expense::getOriginalCurrency,
+            (e, v) -> e.setOriginalCurrency((String) v)),
+    CONVERTED_AMOUNT("convertedAmount", Type.DOUBLE, Expense::getConvertedAmount,
+            (e, v) -> e.setConvertedAmount((Double) v)),
+    HOME_CURRENCY("homeCurrency", Type.STRING, Expense::getHomeCurrency, (e, v) -> e.setHomeCurrency((String) v)),
+    CITY("city", Type.STRING, Expense::getCity, (e, v) -> e.setCity((String) v)),
+    DESCRIPTION("description", Type.STRING, Expense::getDescription, (e, v) -> e.setDescription((String) v)),
+    WEATHER("weather", Type.STRING, Expense::getWeather, (e, v) -> e.setWeather((String) v)),
+    TEMPERATURE("temperature", Type.DOUBLE, Expense::getTemperature, (e, v) -> e.setTemperature((Double) v)),
+    CREATED_AT("createdAt", Type.TIMESTAMP, Expense::getCreatedAt, (e, v) -> e.setCreatedAt((Instant) v)),
+    ENRICHMENT_STATUS("enrichmentStatus", Type.STRING,
+            e -> e.getEnrichmentStatus() != null ? e.getEnrichmentStatus().name() : null,
+            (e, v) -> e.setEnrichmentStatus(EnrichmentStatus.valueOf((String) v))),
+    ENRICHMENT_ATTEMPTS("enrichmentAttempts", Type.LONG,
+            e -> e.getEnrichmentAttempts() != null ? e.getEnrichmentAttempts().longValue() : null,
+            (e, v) -> e.setEnrichmentAttempts(Math.toIntExact((Long) v))),
+    NEXT_ENRICHMENT_AT("nextEnrichmentAt", Type.TIMESTAMP, Expense::getNextEnrichmentAt,
+            (e, v) -> e.setNextEnrichmentAt((Instant) v)),
+    ENRICHMENT_ERROR("enrichmentError", Type.STRING, Expense::getEnrichmentError,
+            (e, v) -> e.setEnrichmentError((String) v)),
+    IDEMPOTENCY_KEY("idempotencyKey", Type.STRING, Expense::getIdempotencyKey,
+            (e, v) -> e.setIdempotencyKey((String) v)),
+    EXPIRES_AT("expiresAt", Type.TIMESTAMP, Expense::getExpiresAt, (e, v) -> e.setExpiresAt((Instant) v));
+
+    /**
+     * Columns an imported file must have.
+     */
+    static final ExpenseColumn[] REQUIRED = {ORIGINAL_AMOUNT, ORIGINAL_CURRENCY};
+
+    /**
+     * The property name, used as the column name.
+     */
+    final String name;
+
+    final Type type;
+
+    private final Function<Expense, Object> getter;
+
+    private final BiConsumer<Expense, Object> setter;
+
+    ExpenseColumn(String name, Type type, Function<Expense, Object> getter, BiConsumer<Expense, Object> setter) {
+        this.name = name;
+        this.type = type;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    static Optional<ExpenseColumn> byName(String name) {
+        return Arrays.stream(values()).filter(column -> column.name.equals(name)).findFirst();
+    }
+
+    /**
+     * @return the property's value as a {@link Type} value ({@code String}, {@code Double}, {@code Long} or
+     * {@code Instant}), or {@code null}
+     */
+    Object get(Expense expense) {
+        return getter.apply(expense);
+    }
+
+    /**
+     * Sets the property from a {@link Type} value; {@code null} leaves it unset.
+     *
+     * @throws IllegalArgumentException if the value does not fit the property, e.g. an unknown enrichment status
+     */
+    void set(Expense expense, Object value) {
+        if (value != null) {
+            setter.accept(expense, value);
+        }
+    }
+
+    // ============================== Type =========================================
+
+    /**
+     * How a column's values are represented in memory and as text. The ordinal is the type's code in columnar files,
+     * so new types go last.
+     */
+    enum Type {
+        STRING {
+            @Override
+            Object parse(String text) {
+                return text;
+            }
+        },
+        DOUBLE {
+            @Override
+            Object parse(String text) {
+                return Double.parseDouble(text);
+            }
+        },
+        LONG {
+            @Override
+            Object parse(String text) {
+                return Long.parseLong(text);
+            }
+        },
+        /** UTC instants, at millisecond precision like MongoDB dates; ISO-8601 as text. */
+        TIMESTAMP {
+            @Override
+            Object parse(String text) {
+                return Instant.parse(text);
+            }
+        };
+
+        /**
+         * Parses the text written by {@link #format}.
+         *
+         * @throws RuntimeException if the text is not a value of this type
+         */
+        abstract Object parse(String text);
+
+        String format(Object value) {
+            return value.toString();
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.ochwada.expense_assistant.service;
+
+
+import com.ochwada.expense_assistant.model.Expense;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.service
+ * File: ExpenseColumnarFormat.java
+ * Author: Ochwada
+ * Date: Monday, 19.Oct.2026, 2:30 AM
+ * Description: Writes and reads expenses in a compact, Parquet-style columnar binary format: rows are stored in row
+ * groups, and within a group column by column, each column encoded for its type.
+ * Objective:
+ * - Make exports a fraction of the size of JSON or CSV: repeated strings (currencies, cities, statuses) are stored
+ * once per row group, numbers and timestamps as binary or small deltas
+ * - Stream in both directions, holding one row group at a time
+ * *******************************************************
+ * <p>
+ * Layout (varints are unsigned LEB128, strings a varint byte length and UTF-8 bytes):
+ * <pre>
+ * file      = "EXPC" version:byte columnCount:varint (name:string type:byte)* rowGroup* 0:varint
+ * rowGroup  = rowCount:varint (chunkLength:varint chunk)*      -- one chunk per column, in schema order
+ * STRING    = dictionarySize:varint string* index:varint*      -- per row: 0 for null, else 1 + dictionary index
+ * DOUBLE    = presence:bitmap value:float64*                   -- big-endian, present rows only
+ * LONG      = presence:bitmap delta:varint*                    -- zigzag delta from the previous present value
+ * TIMESTAMP = as LONG, of epoch milliseconds
+ * </pre>
+ * Chunks carry their length so that a reader can skip columns it does not know.
+ */
+
+final class ExpenseColumnarFormat {
+
+    private static final byte[] MAGIC = "EXPC".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int VERSION = 1;
+
+    /**
+     * Rows per row group: large enough for dictionaries and deltas to pay off, small enough to bound the memory of
+     * either side.
+     */
+    private static final int ROW_GROUP_SIZE = 4096;
+
+    /**
+     * Largest row group and column chunk a reader accepts, so that a malformed file cannot make it allocate
+     * without bound.
+     */
+    private static final int MAX_GROUP_ROWS = 64 * 1024;
+    private static final int MAX_CHUNK_BYTES = 64 * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ExpenseColumnarFormat() {
+    }
+
+    /**
+     * Writes every column of the expenses.
+     *
+     * @param expenses the expenses, consumed as they are written
+     * @param out      the stream to write to; it is flushed but not closed
+     */
+    static void write(Iterator<Expense> expenses, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        ExpenseColumn[] columns = ExpenseColumn.values();
+        data.write(MAGIC);
+        data.writeByte(VERSION);
+        writeVarLong(data, columns.length);
+        for (ExpenseColumn column : columns) {
+            writeString(data, column.name);
+            data.writeByte(column.type.ordinal());
+        }
+
+        List<Expense> group = new ArrayList<>(ROW_GROUP_SIZE);
+        ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+        while (expenses.hasNext()) {
+            group.add(expenses.next());
+            if (group.size() == ROW_GROUP_SIZE || !expenses.hasNext()) {
+                writeVarLong(data, group.size());
+                for (ExpenseColumn column : columns) {
+                    chunk.reset();
+                    writeChunk(new DataOutputStream(chunk), column, group);
+                    writeVarLong(data, chunk.size());
+                    chunk.writeTo(data);
+                }
+                group.clear();
+            }
+        }
+        writeVarLong(data, 0);
+        data.flush();
+    }
+
+    /**
+     * Reads expenses written by {@link #write}. Columns this version does not know are skipped; the
+     * {@linkplain ExpenseColumn#REQUIRED required} ones must be there.
+     *
+     * @param in the stream to read; not closed
+     * @return the expenses, decoded a row group at a time as they are iterated. Iterating throws
+     * {@link IllegalArgumentException} if the data is malformed or truncated, and {@link UncheckedIOException} if
+     * reading fails
+     * @throws IllegalArgumentException if the stream does not start with a valid header
+     */
+    static Iterator<Expense> read(InputStream in) {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+        ExpenseColumn[] columns;
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            data.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IllegalArgumentException("Not a columnar expense file");
+            }
+            int version = data.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported columnar expense file version " + version);
+            }
+            columns = new ExpenseColumn[readCount(data, 1024)];
+            for (int i = 0; i < columns.length; i++) {
+                String name = readString(data);
+                int type = data.readUnsignedByte();
+                // Unknown columns are left null and skipped, as are known ones stored as another type
+                columns[i] = ExpenseColumn.byName(name)
+                        .filter(column -> column.type.ordinal() == type)
+                        .orElse(null);
+            }
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Columnar expense file is truncated");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<ExpenseColumn> known = Arrays.asList(columns);
+        for (ExpenseColumn required : ExpenseColumn.REQUIRED) {
+            if (!known.contains(required)) {
+                throw new IllegalArgumentException("Missing column: " + required.name);
+            }
+        }
+
+        return new Iterator<>() {
+            private Expense[] group = new Expense[0];
+            private int next;
+            private boolean ended;
+
+            @Override
+            public boolean hasNext() {
+                if (next == group.length && !ended) {
+                    group = readGroup(data, columns);
+                    next = 0;
+                    ended = group.length == 0;
+                }
+                return next < group.length;
+            }
+
+            @Override
+            public Expense next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Expense expense = group[next];
+                group[next++] = null;
+                return expense;
+            }
+        };
+    }
+
+    // ============================== Writing =========================================
+
+    private static void writeChunk(DataOutputStream chunk, ExpenseColumn column, List<Expense> group)
+            throws IOException {
+        if (column.type == ExpenseColumn.Type.STRING) {
+            Map<String, Integer> dictionary = new HashMap<>();
+            int[] indices = new int[group.size()];
+            for (int row = 0; row < indices.length; row++) {
+                String value = (String) column.get(group.get(row));
+                indices[row] = value == null ? 0 : dictionary.computeIfAbsent(value, v -> dictionary.size() + 1);
+            }
+            String[] entries = new String[dictionary.size()];
+            dictionary.forEach((value, index) -> entries[index - 1] = value);
+            writeVarLong(chunk, entries.length);
+            for (String entry : entries) {
+                writeString(chunk, entry);
+            }
+            for (int index : indices) {
+                writeVarLong(chunk, index);
+            }
+            return;
+        }
+
+        Object[] values = new Object[group.size()];
+        byte[] presence = new byte[(values.length + 7) / 8];
+        for (int row = 0; row < values.length; row++) {
+            values[row] = column.get(group.get(row));
+            if (values[row] != null) {
+                presence[row / 8] |= (byte) (1 << (row % 8));
+            }
+        }
+        chunk.write(presence);
+        long previous = 0;
+        for (Object value : values) {
+            if (value == null) {
+                continue;
+            }
+            if (column.type == ExpenseColumn.Type.DOUBLE) {
+                chunk.writeDouble((Double) value);
+            } else {
+                long current = value instanceof Instant instant ? instant.toEpochMilli() : (Long) value;
+                long delta = current - previous;
+                writeVarLong(chunk, (delta << 1) ^ (delta >> 63));
+                previous = current;
+            }
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    // ============================== Reading =========================================
+
+    /**
+     * @return the expenses of the next row group, or none at the end of the file
+     */
+    private static Expense[] readGroup(DataInputStream data, ExpenseColumn[] columns) {
+        try {
+            Expense[] group = new Expense[readCount(data, MAX_GROUP_ROWS)];
+            if (group.length == 0) {
+                // The end of the file
+                return group;
+            }
+            for (int row = 0; row < group.length; row++) {
+                group[row] = new Expense();
+            }
+            for (ExpenseColumn column : columns) {
+                int length = readCount(data, MAX_CHUNK_BYTES);
+                if (column == null) {
+                    data.skipNBytes(length);
+                    continue;
+                }
+                byte[] chunk = new byte[length];
+                data.readFully(chunk);
+                readChunk(new DataInputStream(new ByteArrayInputStream(chunk)), column, group);
+            }
+            return group;
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Columnar expense file is truncated");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void readChunk(DataInputStream chunk, ExpenseColumn column, Expense[] group) throws IOException {
+        if (column.type == ExpenseColumn.Type.STRING) {
+            String[] dictionary = new String[readCount(chunk, group.length)];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = readString(chunk);
+            }
+            for (Expense expense : group) {
+                int index = readCount(chunk, dictionary.length);
+                column.set(expense, index == 0 ? null : dictionary[index - 1]);
+            }
+            return;
+        }
+
+        byte[] presence = new byte[(group.length + 7) / 8];
+        chunk.readFully(presence);
+        long previous = 0;
+        for (int row = 0; row < group.length; row++) {
+            if ((presence[row / 8] & (1 << (row % 8))) == 0) {
+                continue;
+            }
+            if (column.type == ExpenseColumn.Type.DOUBLE) {
+                column.set(group[row], chunk.readDouble());
+                continue;
+            }
+            long zigzag = readVarLong(chunk);
+            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+            column.set(group[row], column.type == ExpenseColumn.Type.TIMESTAMP
+                    ? Instant.ofEpochMilli(previous)
+                    : (Object) previous);
+        }
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    /**
+     * Reads a varint used as a count, length or index.
+     *
+     * @throws IllegalArgumentException if it is above {@code max}
+     */
+    private static int readCount(DataInputStream in, int max) throws IOException {
+        long value = readVarLong(in);
+        if (value < 0 || value > max) {
+            throw new IllegalArgumentException("Malformed columnar expense file: %d where at most %d is allowed"
+                    .formatted(value, max));
+        }
+        return (int) value;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readCount(in, MAX_CHUNK_BYTES)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
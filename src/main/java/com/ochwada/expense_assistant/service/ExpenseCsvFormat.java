@@ -0,0 +1,273 @@
+package com.ochwada.expense_assistant.service;
+
+
+import com.ochwada.expense_assistant.model.Expense;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.service
+ * File: ExpenseCsvFormat.java
+ * Author: Ochwada
+ * Date: Monday, 19.Oct.2026, 2:30 AM
+ * Description: Writes and reads expenses as CSV (RFC 4180, UTF-8): a header row of {@link ExpenseColumn} names, then
+ * one row per expense.
+ * Objective:
+ * - Stream in both directions, one row at a time, so file size never shows in heap use
+ * - Round-trip every value: an empty field is {@code null}, a quoted empty field ({@code ""}) is an empty string
+ * *******************************************************
+ */
+
+final class ExpenseCsvFormat {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ExpenseCsvFormat() {
+    }
+
+    /**
+     * Writes the header row and a row per expense, with every column.
+     *
+     * @param expenses the expenses, consumed as they are written
+     * @param out      the stream to write to; it is flushed but not closed
+     */
+    static void write(Iterator<Expense> expenses, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        ExpenseColumn[] columns = ExpenseColumn.values();
+        for (int i = 0; i < columns.length; i++) {
+            writer.write(i > 0 ? "," : "");
+            writer.write(columns[i].name);
+        }
+        writer.write("\r\n");
+
+        while (expenses.hasNext()) {
+            Expense expense = expenses.next();
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                Object value = columns[i].get(expense);
+                if (value != null) {
+                    writeField(writer, columns[i].type.format(value));
+                }
+            }
+            writer.write("\r\n");
+        }
+        writer.flush();
+    }
+
+    /**
+     * Reads expenses from CSV with a header row. The columns may be any subset of {@link ExpenseColumn}, in any order,
+     * as long as the {@linkplain ExpenseColumn#REQUIRED required} ones are there.
+     *
+     * @param in the stream to read; not closed
+     * @return the expenses, parsed one row at a time as they are iterated. Iterating throws
+     * {@link IllegalArgumentException} naming the line of a malformed row, and {@link UncheckedIOException} if
+     * reading fails
+     * @throws IllegalArgumentException if the header is missing, names an unknown column or lacks a required one
+     */
+    static Iterator<Expense> read(InputStream in) {
+        RecordReader records = new RecordReader(
+                new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE));
+        List<String> header = records.next();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV is empty: expected a header row");
+        }
+        // A UTF-8 byte order mark, as spreadsheet programs write it, is not part of the first column's name
+        if (!header.isEmpty() && header.get(0) != null && header.get(0).startsWith("\uFEFF")) {
+            header.set(0, header.get(0).substring(1));
+        }
+        List<ExpenseColumn> columns = new ArrayList<>();
+        for (String name : header) {
+            columns.add(ExpenseColumn.byName(name)
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown CSV column: " + name)));
+        }
+        for (ExpenseColumn required : ExpenseColumn.REQUIRED) {
+            if (!columns.contains(required)) {
+                throw new IllegalArgumentException("Missing CSV column: " + required.name);
+            }
+        }
+
+        return new Iterator<>() {
+            private List<String> row = records.next();
+
+            @Override
+            public boolean hasNext() {
+                return row != null;
+            }
+
+            @Override
+            public Expense next() {
+                if (row == null) {
+                    throw new NoSuchElementException();
+                }
+                int line = records.recordLine;
+                if (row.size() != columns.size()) {
+                    throw new IllegalArgumentException("Line %d: %d fields, expected %d"
+                            .formatted(line, row.size(), columns.size()));
+                }
+                Expense expense = new Expense();
+                for (int i = 0; i < columns.size(); i++) {
+                    String text = row.get(i);
+                    ExpenseColumn column = columns.get(i);
+                    try {
+                        column.set(expense, text != null ? column.type.parse(text) : null);
+                    } catch (RuntimeException e) {
+                        throw new IllegalArgumentException("Line %d: invalid %s '%s'".formatted(line, column.name,
+                                text));
+                    }
+                }
+                row = records.next();
+                return expense;
+            }
+        };
+    }
+
+    private static void writeField(Writer writer, String text) throws IOException {
+        boolean quote = text.isEmpty();
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    // ============================== RecordReader =========================================
+
+    /**
+     * Splits CSV text into records. Quoted fields may contain commas, doubled quotes and line breaks; records end at
+     * an unquoted {@code \n} or {@code \r\n}.
+     */
+    private static final class RecordReader {
+
+        private final Reader reader;
+
+        /**
+         * A character read ahead after a {@code \r}, or -2 if there is none.
+         */
+        private int lookahead = -2;
+
+        /** Line the current character is on. */
+        private int line = 1;
+
+        /** Line the last record returned by {@link #next} started on. */
+        private int recordLine;
+
+        RecordReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @return the fields of the next record ({@code null} for an empty unquoted field), or {@code null} at the end
+         */
+        List<String> next() {
+            try {
+                int c = read();
+                // A blank line, such as the last line break of the file, is not a record
+                while (c == '\r' || c == '\n') {
+                    skipLineBreak(c);
+                    c = read();
+                }
+                if (c == -1) {
+                    return null;
+                }
+                recordLine = line;
+                List<String> fields = new ArrayList<>();
+                StringBuilder field = new StringBuilder();
+                boolean quoted = false;
+                while (true) {
+                    if (c == '"' && field.isEmpty() && !quoted) {
+                        quoted = true;
+                        c = readQuoted(field);
+                        continue;
+                    }
+                    if (c == ',' || c == '\n' || c == '\r' || c == -1) {
+                        fields.add(field.isEmpty() && !quoted ? null : field.toString());
+                        if (c != ',') {
+                            skipLineBreak(c);
+                            return fields;
+                        }
+                        field.setLength(0);
+                        quoted = false;
+                    } else if (quoted) {
+                        throw new IllegalArgumentException("Line %d: text after a closing quote".formatted(line));
+                    } else {
+                        field.append((char) c);
+                    }
+                    c = read();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Reads a quoted field's content up to its closing quote.
+         *
+         * @return the character after the closing quote
+         */
+        private int readQuoted(StringBuilder field) throws IOException {
+            while (true) {
+                int c = read();
+                if (c == -1) {
+                    throw new IllegalArgumentException("Line %d: unterminated quoted field".formatted(recordLine));
+                }
+                if (c == '"') {
+                    int after = read();
+                    if (after != '"') {
+                        return after;
+                    }
+                } else if (c == '\n') {
+                    line++;
+                }
+                field.append((char) c);
+            }
+        }
+
+        /**
+         * Consumes the rest of a line break starting with {@code c}: the {@code \n} of a {@code \r\n}.
+         */
+        private void skipLineBreak(int c) throws IOException {
+            if (c == -1) {
+                return;
+            }
+            line++;
+            if (c == '\r') {
+                int next = read();
+                if (next != '\n') {
+                    lookahead = next;
+                }
+            }
+        }
+
+        private int read() throws IOException {
+            if (lookahead == -2) {
+                return reader.read();
+            }
+            int c = lookahead;
+            lookahead = -2;
+            return c;
+        }
+    }
+}
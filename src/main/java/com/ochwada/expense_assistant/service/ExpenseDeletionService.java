@@ -0,0 +1,218 @@
+package com.ochwada.expense_assistant.service;
+
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ochwada.expense_assistant.dto.ExpenseChangeEvent;
+import com.ochwada.expense_assistant.dto.ExpenseDeletionJob;
+import com.ochwada.expense_assistant.dto.ExpenseDeletionRequest;
+import com.ochwada.expense_assistant.model.Expense;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.service
+ * File: ExpenseDeletionService.java
+ * Author: Ochwada
+ * Date: Monday, 19.Oct.2026, 1:50 AM
+ * Description: Runs the bulk deletions of {@code DELETE /api/expenses} as background jobs, in bounded chunks of one
+ * {@code deleteMany} each.
+ * Objective:
+ * - Purge many expenses in a few round trips per thousand, instead of a request per expense
+ * - Keep the spending rollups, caches and change feed consistent, exactly as single deletions do
+ * - Bound the load on MongoDB: one job runs at a time, one chunk at a time
+ * *******************************************************
+ */
+
+@Slf4j
+@Service
+public class ExpenseDeletionService {
+
+    /**
+     * Fields of a deleted expense the rollups need to retract it.
+     */
+    private static final String[] ROLLUP_FIELDS =
+            {"convertedAmount", "homeCurrency", "city", "originalCurrency", "createdAt"};
+
+    private final MongoTemplate mongoTemplate;
+
+    private final ExpenseRollupService rollupService;
+
+    private final ExpenseChangeFeed changeFeed;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Runs the jobs one after another, in submission order.
+     */
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(Thread.ofPlatform().name("expense-deletion").factory());
+
+    /**
+     * Maximum number of expenses removed by one {@code deleteMany}.
+     */
+    @Value("${app.bulk-delete.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * Jobs by ID, kept for {@code app.bulk-delete.job-retention} after they were submitted.
+     */
+    private final Cache<String, ExpenseDeletionJob> jobs;
+
+    public ExpenseDeletionService(MongoTemplate mongoTemplate,
+                                  ExpenseRollupService rollupService,
+                                  ExpenseChangeFeed changeFeed,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.bulk-delete.job-retention:24h}") Duration jobRetention) {
+        this.mongoTemplate = mongoTemplate;
+        this.rollupService = rollupService;
+        this.changeFeed = changeFeed;
+        this.meterRegistry = meterRegistry;
+        this.jobs = Caffeine.newBuilder().expireAfterWrite(jobRetention).build();
+    }
+
+    /**
+     * Queues the deletion of every expense matching the request.
+     *
+     * @param request which expenses to delete; every criterion given must match
+     * @return the queued job, to be polled with {@link #getJob}
+     */
+    public ExpenseDeletionJob submit(ExpenseDeletionRequest request) {
+        ExpenseDeletionJob job = new ExpenseDeletionJob(UUID.randomUUID().toString(), request, Instant.now());
+        jobs.put(job.getId(), job);
+        executor.execute(() -> run(job));
+        return job;
+    }
+
+    public Optional<ExpenseDeletionJob> getJob(String id) {
+        return Optional.ofNullable(jobs.getIfPresent(id));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Interrupts the running job between two chunks; queued jobs are dropped
+        executor.shutdownNow();
+    }
+
+    private void run(ExpenseDeletionJob job) {
+        job.setStartedAt(Instant.now());
+        job.setStatus(ExpenseDeletionJob.Status.RUNNING);
+        try {
+            List<Criteria> scopes = scopes(job.getRequest());
+            long matched = 0;
+            for (Criteria scope : scopes) {
+                matched += mongoTemplate.count(Query.query(scope), Expense.class);
+            }
+            job.setMatched(matched);
+
+            for (Criteria scope : scopes) {
+                while (deleteChunk(scope, job)) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new IllegalStateException("Interrupted by shutdown");
+                    }
+                }
+            }
+            job.setStatus(ExpenseDeletionJob.Status.COMPLETED);
+        } catch (RuntimeException e) {
+            job.setError(e.getMessage());
+            job.setStatus(ExpenseDeletionJob.Status.FAILED);
+            log.warn("Bulk deletion {} failed after deleting {} expenses: {}", job.getId(), job.getDeleted(),
+                    e.getMessage());
+        } finally {
+            job.setFinishedAt(Instant.now());
+            meterRegistry.counter("expense.bulk.deletions", "status", job.getStatus().name()).increment();
+            log.info("Bulk deletion {} {}: {} of {} matched expenses deleted in {} chunks, {} ms", job.getId(),
+                    job.getStatus(), job.getDeleted(), job.getMatched(), job.getChunks(),
+                    Duration.between(job.getStartedAt(), job.getFinishedAt()).toMillis());
+        }
+    }
+
+    /**
+     * Deletes up to {@code chunkSize} expenses matching {@code scope}: reads their IDs and the fields the rollups
+     * need, removes them with one {@code deleteMany}, then retracts them from the rollups and reports them to the
+     * change feed.
+     * <p>
+     * If fewer expenses are removed than were read, some were deleted concurrently, by a request that has retracted
+     * them itself; which ones cannot be told, so the chunk is not retracted and the rollups of its days need a
+     * rebuild, as logged.
+     *
+     * @return whether more expenses may match
+     */
+    private boolean deleteChunk(Criteria scope, ExpenseDeletionJob job) {
+        Query chunk = Query.query(scope).limit(chunkSize);
+        chunk.fields().include(ROLLUP_FIELDS);
+        List<Expense> found = mongoTemplate.find(chunk, Expense.class);
+        if (found.isEmpty()) {
+            return false;
+        }
+
+        List<String> ids = found.stream().map(Expense::getId).toList();
+        long removed = mongoTemplate.remove(Query.query(Criteria.where("id").in(ids)), Expense.class)
+                .getDeletedCount();
+        if (removed == ids.size()) {
+            rollupService.retract(found);
+        } else {
+            log.warn("Bulk deletion {}: {} of {} expenses were already deleted; rebuild the rollups of {} to {}",
+                    job.getId(), ids.size() - removed, ids.size(),
+                    found.stream().map(Expense::getCreatedAt).min(Instant::compareTo).orElse(null),
+                    found.stream().map(Expense::getCreatedAt).max(Instant::compareTo).orElse(null));
+        }
+        changeFeed.local(ids, ExpenseChangeEvent::deleted);
+
+        job.setDeleted(job.getDeleted() + removed);
+        job.setChunks(job.getChunks() + 1);
+        // Nothing removed means nothing will be next time either
+        return removed > 0 && found.size() == chunkSize;
+    }
+
+    /**
+     * The criteria of the request, once per chunk of {@code ids} when IDs are given, so that no query carries more
+     * than a chunk's worth of them.
+     */
+    private List<Criteria> scopes(ExpenseDeletionRequest request) {
+        List<Criteria> predicates = new ArrayList<>();
+        if (request.getCity() != null) {
+            predicates.add(Criteria.where("city").is(request.getCity()));
+        }
+        if (request.getCurrency() != null) {
+            predicates.add(Criteria.where("originalCurrency").is(request.getCurrency().toUpperCase(Locale.ROOT)));
+        }
+        if (request.getBefore() != null) {
+            predicates.add(Criteria.where("createdAt")
+                    .lt(request.getBefore().atStartOfDay(ZoneOffset.UTC).toInstant()));
+        }
+        if (request.getOlderThan() != null) {
+            predicates.add(Criteria.where("createdAt").lt(Instant.now().minus(request.getOlderThan())));
+        }
+
+        if (request.getIds() == null) {
+            return List.of(new Criteria().andOperator(predicates));
+        }
+        List<Criteria> scopes = new ArrayList<>();
+        List<String> ids = request.getIds().stream().distinct().toList();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Criteria> scope = new ArrayList<>(predicates);
+            scope.add(Criteria.where("id").in(ids.subList(from, Math.min(from + chunkSize, ids.size()))));
+            scopes.add(new Criteria().andOperator(scope));
+        }
+        return scopes;
+    }
+}
@@ -0,0 +1,54 @@
+package com.ochwada.expense_assistant.service;
+
+
+import com.ochwada.expense_assistant.model.Expense;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.service
+ * File: ExpenseExpiryListener.java
+ * Author: Ochwada
+ * Date: Monday, 19.Oct.2026, 2:05 AM
+ * Description: Stamps new expenses with an {@code expiresAt} time when a retention period is configured
+ * ({@code app.retention.expire-after}), so MongoDB's TTL index deletes them without any purge job.
+ * Objective:
+ * - Cover every insert path (single, batch, idempotent, reactive, file import) in one place
+ * - Leave expenses saved before retention was enabled alone; purge those with {@code DELETE /api/expenses}
+ * *******************************************************
+ */
+
+@Component
+@ConditionalOnExpression("!'${app.retention.expire-after:}'.isBlank()")
+public class ExpenseExpiryListener extends AbstractMongoEventListener<Expense> {
+
+    /**
+     * How long an expense is kept after it was recorded.
+     */
+    private final Duration expireAfter;
+
+    public ExpenseExpiryListener(@Value("${app.retention.expire-after}") Duration expireAfter) {
+        this.expireAfter = expireAfter;
+    }
+
+    /**
+     * Sets {@code expiresAt} on an expense about to be written without one. Expenses are only ever inserted (later
+     * changes are partial updates), so an expense keeps the time it was first given and changing the retention period
+     * only affects new expenses. Imported expenses keep the {@code expiresAt} they were exported with, if any.
+     */
+    @Override
+    public void onBeforeConvert(BeforeConvertEvent<Expense> event) {
+        Expense expense = event.getSource();
+        if (expense.getExpiresAt() == null) {
+            Instant recorded = expense.getCreatedAt() != null ? expense.getCreatedAt() : Instant.now();
+            expense.setExpiresAt(recorded.plus(expireAfter));
+        }
+    }
+}
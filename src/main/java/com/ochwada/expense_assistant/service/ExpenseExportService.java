@@ -0,0 +1,179 @@
+package com.ochwada.expense_assistant.service;
+
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ochwada.expense_assistant.model.Expense;
+import com.ochwada.expense_assistant.repository.ExpenseRepository;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.service
+ * File: ExpenseExportService.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 11:30 AM
+ * Description: {@code ExpenseExportService} writes the "expenses" collection to an output stream as it is read from
+ * MongoDB, as NDJSON, CSV or a compact columnar format.
+ * Objective:
+ * - Export any number of expenses with flat memory use
+ * - Offer the formats {@link ExpenseImportService} reads back
+ * *******************************************************
+ */
+
+@Service
+public class ExpenseExportService {
+
+    /**
+     * Repository used to open a cursor over the MongoDB "expenses" collection.
+     */
+    private final ExpenseRepository repository;
+
+    /**
+     * Writer for single expenses; flushing is left to the generator's buffer instead of happening after every value, and
+     * documents are separated only by the newline written after each one.
+     */
+    private final ObjectWriter writer;
+
+    /**
+     * ExpenseExportService with required dependencies.
+     *
+     * @param repository the {@link ExpenseRepository} used to stream expenses
+     * @param mapper     the application's shared {@link ObjectMapper}
+     */
+    public ExpenseExportService(ExpenseRepository repository, ObjectMapper mapper) {
+        this.repository = repository;
+        this.writer = mapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("");
+    }
+
+    /**
+     * Writes every expense in the given format.
+     * <p>
+     * Documents are serialized as the MongoDB cursor yields them, so only the cursor's current batch (and, for
+     * {@link Format#COLUMNAR}, one row group) is held in memory regardless of the collection size.
+     *
+     * @param format the file format
+     * @param out    the stream to write to; it is flushed but not closed
+     * @throws IOException if writing to {@code out} fails
+     */
+    public void export(Format format, OutputStream out) throws IOException {
+        try (Stream<Expense> expenses = repository.streamAllBy()) {
+            write(format, expenses.iterator(), out);
+        }
+    }
+
+    /**
+     * Writes expenses in the given format, as {@link #export} does, from any source.
+     *
+     * @param format   the file format
+     * @param expenses the expenses, consumed as they are written
+     * @param out      the stream to write to; it is flushed but not closed
+     * @throws IOException if writing to {@code out} fails
+     */
+    public void write(Format format, Iterator<Expense> expenses, OutputStream out) throws IOException {
+        switch (format) {
+            case NDJSON -> writeNdjson(expenses, out);
+            case CSV -> ExpenseCsvFormat.write(expenses, out);
+            case COLUMNAR -> ExpenseColumnarFormat.write(expenses, out);
+        }
+    }
+
+    /**
+     * Serializes one expense as an NDJSON line, for exports that write expense by expense themselves.
+     *
+     * @throws UncheckedIOException if the expense cannot be serialized
+     */
+    public byte[] toNdjsonLine(Expense expense) {
+        byte[] json;
+        try {
+            json = writer.writeValueAsBytes(expense);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] line = Arrays.copyOf(json, json.length + 1);
+        line[json.length] = '\n';
+        return line;
+    }
+
+    private void writeNdjson(Iterator<Expense> expenses, OutputStream out) throws IOException {
+        try (JsonGenerator generator = writer.createGenerator(out)) {
+            // Leave closing the stream to the caller, e.g. the servlet container
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            while (expenses.hasNext()) {
+                writer.writeValue(generator, expenses.next());
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        }
+    }
+
+    // ============================== Format =========================================
+
+    /**
+     * File formats of the export and the import.
+     */
+    public enum Format {
+        /**
+         * One JSON document per line.
+         */
+        NDJSON("ndjson", "application/x-ndjson", "ndjson"),
+        /**
+         * RFC 4180 CSV with a header row; see {@link ExpenseCsvFormat}.
+         */
+        CSV("csv", "text/csv", "csv"),
+        /**
+         * Parquet-style row groups of dictionary- and delta-encoded columns; see {@link ExpenseColumnarFormat}.
+         */
+        COLUMNAR("columnar", "application/vnd.expense-assistant.columnar", "expc");
+
+        /**
+         * The value accepted in the {@code format} request parameter.
+         */
+        private final String parameter;
+
+        private final String mediaType;
+
+        private final String extension;
+
+        Format(String parameter, String mediaType, String extension) {
+            this.parameter = parameter;
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        /**
+         * Resolves a {@code format} request parameter (e.g., "csv").
+         *
+         * @param parameter the request parameter value
+         * @return the matching format, or empty if there is none
+         */
+        public static Optional<Format> fromParameter(String parameter) {
+            return Arrays.stream(values()).filter(f -> f.parameter.equalsIgnoreCase(parameter)).findFirst();
+        }
+
+        public String getMediaType() {
+            return mediaType;
+        }
+
+        /**
+         * The name suggested for a downloaded export, e.g. "expenses.csv".
+         */
+        public String getFileName() {
+            return "expenses." + extension;
+        }
+    }
+}
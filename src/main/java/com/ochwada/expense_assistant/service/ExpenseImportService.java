@@ -0,0 +1,255 @@
+package com.ochwada.expense_assistant.service;
+
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.mongodb.bulk.BulkWriteError;
+import com.ochwada.expense_assistant.dto.ExpenseChangeEvent;
+import com.ochwada.expense_assistant.dto.ExpenseImportResponse;
+import com.ochwada.expense_assistant.model.EnrichmentStatus;
+import com.ochwada.expense_assistant.model.Expense;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.service
+ * File: ExpenseImportService.java
+ * Author: Ochwada
+ * Date: Monday, 19.Oct.2026, 2:30 AM
+ * Description: Imports expenses from an NDJSON, CSV or columnar file, such as one written by
+ * {@link ExpenseExportService}, as it is uploaded.
+ * Objective:
+ * - Import any number of expenses with flat memory use: rows are parsed as they arrive and saved in batches of one
+ * unordered bulk insert each
+ * - Make re-importing an export harmless: expenses that already exist are skipped, not duplicated
+ * - Keep the spending rollups, caches and change feed consistent, exactly as single submissions do
+ * *******************************************************
+ */
+
+@Slf4j
+@Service
+public class ExpenseImportService {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+
+    private final ExpenseRollupService rollupService;
+
+    private final ExpenseChangeFeed changeFeed;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Reader of NDJSON rows.
+     */
+    private final ObjectReader reader;
+
+    /**
+     * Maximum number of expenses saved by one bulk insert.
+     */
+    @Value("${app.import.batch-size:1000}")
+    private int batchSize;
+
+    public ExpenseImportService(MongoTemplate mongoTemplate,
+                                ExpenseRollupService rollupService,
+                                ExpenseChangeFeed changeFeed,
+                                MeterRegistry meterRegistry,
+                                ObjectMapper mapper) {
+        this.mongoTemplate = mongoTemplate;
+        this.rollupService = rollupService;
+        this.changeFeed = changeFeed;
+        this.meterRegistry = meterRegistry;
+        this.reader = mapper.readerFor(Expense.class);
+    }
+
+    /**
+     * Saves every expense of a file.
+     * <p>
+     * Rows keep the ID they were exported with, so a row whose expense still exists is skipped and counted as a
+     * duplicate. Rows without an ID get a new one; rows without a {@code createdAt} are recorded now. A row without
+     * an {@code enrichmentStatus} is {@code COMPLETED} if it has a converted amount, else queued as {@code PENDING}
+     * for the enrichment worker ({@code app.enrichment.mode=async}).
+     * <p>
+     * The import is not atomic: it stops at the first malformed row, keeping the rows before it, and reports why in
+     * {@link ExpenseImportResponse#getError()}.
+     *
+     * @param format the file format
+     * @param in     the file's content; read to its end (or the malformed row) but not closed
+     * @return how many rows were read, saved and skipped
+     * @throws UncheckedIOException if reading {@code in} fails
+     */
+    public ExpenseImportResponse importExpenses(ExpenseExportService.Format format, InputStream in) {
+        ExpenseImportResponse response = new ExpenseImportResponse();
+        Instant started = Instant.now();
+        List<Expense> batch = new ArrayList<>(batchSize);
+        try {
+            Iterator<Expense> rows = read(format, in);
+            while (rows.hasNext()) {
+                Expense expense = rows.next();
+                response.setRead(response.getRead() + 1);
+                batch.add(prepare(expense, response.getRead()));
+                if (batch.size() == batchSize) {
+                    insert(batch, response);
+                    batch.clear();
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            response.setError(e.getMessage());
+        }
+        insert(batch, response);
+
+        response.setDurationMs(Duration.between(started, Instant.now()).toMillis());
+        meterRegistry.counter("expense.imports", "format", format.name(),
+                "status", response.getError() == null ? "COMPLETED" : "FAILED").increment();
+        log.info("Import of {} {}: {} rows read, {} imported, {} duplicates, {} failed, {} ms", format,
+                response.getError() == null ? "completed" : "stopped (" + response.getError() + ")",
+                response.getRead(), response.getImported(), response.getDuplicates(), response.getFailed(),
+                response.getDurationMs());
+        return response;
+    }
+
+    /**
+     * @return the rows of the file, parsed as they are iterated
+     */
+    private Iterator<Expense> read(ExpenseExportService.Format format, InputStream in) {
+        try {
+            return switch (format) {
+                case NDJSON -> ndjson(reader.readValues(in));
+                case CSV -> ExpenseCsvFormat.read(in);
+                case COLUMNAR -> ExpenseColumnarFormat.read(in);
+            };
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reports malformed NDJSON as {@link IllegalArgumentException}s, like the other formats do.
+     */
+    private static Iterator<Expense> ndjson(Iterator<Expense> rows) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return parse(rows::hasNext);
+            }
+
+            @Override
+            public Expense next() {
+                return parse(rows::next);
+            }
+        };
+    }
+
+    private static <T> T parse(Supplier<T> step) {
+        try {
+            return step.get();
+        } catch (RuntimeJsonMappingException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        } catch (RuntimeException e) {
+            // Syntax errors come wrapped in a plain RuntimeException
+            if (e.getCause() instanceof JsonProcessingException json) {
+                throw new IllegalArgumentException(json.getOriginalMessage() + " at line "
+                        + (json.getLocation() != null ? json.getLocation().getLineNr() : "?"));
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Checks a row and fills in what the file left out.
+     *
+     * @param row the row's 1-based position in the file
+     */
+    private static Expense prepare(Expense expense, long row) {
+        if (expense.getOriginalCurrency() == null || !expense.getOriginalCurrency().matches("[A-Za-z]{3}")) {
+            throw new IllegalArgumentException("Row %d: originalCurrency must be a 3-letter code, was '%s'"
+                    .formatted(row, expense.getOriginalCurrency()));
+        }
+        expense.setOriginalCurrency(expense.getOriginalCurrency().toUpperCase(Locale.ROOT));
+        if (expense.getId() == null) {
+            // Assigned here rather than by MongoDB, so that the rows of a partly failed insert can be told apart
+            expense.setId(new ObjectId().toHexString());
+        } else if (!ObjectId.isValid(expense.getId())) {
+            // Pages are keyed by ObjectId, which any other ID would fall outside of
+            throw new IllegalArgumentException("Row %d: id must be an ObjectId, was '%s'".formatted(row,
+                    expense.getId()));
+        }
+        if (expense.getCreatedAt() == null) {
+            expense.setCreatedAt(Instant.now());
+        }
+        if (expense.getEnrichmentStatus() == null) {
+            expense.setEnrichmentStatus(expense.getConvertedAmount() != null
+                    ? EnrichmentStatus.COMPLETED
+                    : EnrichmentStatus.PENDING);
+        }
+        if (expense.getEnrichmentStatus() == EnrichmentStatus.PENDING) {
+            if (expense.getEnrichmentAttempts() == null) {
+                expense.setEnrichmentAttempts(0);
+            }
+            if (expense.getNextEnrichmentAt() == null) {
+                expense.setNextEnrichmentAt(Instant.now());
+            }
+        }
+        return expense;
+    }
+
+    /**
+     * Saves a batch with one unordered bulk insert: a rejected row does not stop the others. The rows saved are added
+     * to the rollups and reported to the change feed.
+     */
+    private void insert(List<Expense> batch, ExpenseImportResponse response) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Expense> inserted = batch;
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Expense.class).insert(batch).execute();
+        } catch (BulkOperationException e) {
+            Set<Integer> rejected = new HashSet<>();
+            for (BulkWriteError error : e.getErrors()) {
+                rejected.add(error.getIndex());
+                if (error.getCode() == DUPLICATE_KEY) {
+                    response.setDuplicates(response.getDuplicates() + 1);
+                } else {
+                    response.setFailed(response.getFailed() + 1);
+                    log.debug("Import rejected expense {}: {}", batch.get(error.getIndex()).getId(),
+                            error.getMessage());
+                }
+            }
+            inserted = new ArrayList<>(batch.size() - rejected.size());
+            for (int i = 0; i < batch.size(); i++) {
+                if (!rejected.contains(i)) {
+                    inserted.add(batch.get(i));
+                }
+            }
+        }
+        response.setImported(response.getImported() + inserted.size());
+        rollupService.record(inserted);
+        changeFeed.local(inserted, ExpenseChangeEvent::created);
+    }
+}
@@ -0,0 +1,489 @@
+package com.ochwada.expense_assistant.service;
+
+
+import com.ochwada.expense_assistant.dto.RollupRebuildResponse;
+import com.ochwada.expense_assistant.dto.SpendingSummary;
+import com.ochwada.expense_assistant.model.Expense;
+import com.ochwada.expense_assistant.model.ExpenseRollup;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.service
+ * File: ExpenseRollupService.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 9:45 PM
+ * Description: {@code ExpenseRollupService} maintains the per-day {@link ExpenseRollup} buckets (overall, per city and
+ * per original currency) and serves spending summaries from them.
+ * Objective:
+ * - Add converted expenses to their buckets with atomic {@code $inc}/{@code $min}/{@code $max} upserts
+ * - Retract deleted expenses, recomputing a bucket's min/max only when the deleted amount was one of them
+ * - Rebuild the buckets of a date range from the raw expenses, for backfills and repairs
+ * - Summarize at a cost that depends on the number of buckets, not on the number of expenses
+ * *******************************************************
+ */
+
+@Slf4j
+@Service
+public class ExpenseRollupService {
+
+    /**
+     * Number of bucket upserts sent per bulk write during a rebuild.
+     */
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Whether buckets are maintained on every write. When off, the rollups are only changed by {@link #rebuild}.
+     */
+    @Value("${app.rollups.enabled:true}")
+    private boolean enabled;
+
+    public ExpenseRollupService(MongoTemplate mongoTemplate, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Adds converted expenses to their buckets. Expenses of the same bucket are combined first, so a batch costs one
+     * upsert per distinct bucket, all sent in a single unordered bulk write. Expenses without a converted amount (not
+     * yet enriched) are skipped; they are added once the enrichment completes.
+     * <p>
+     * A failure is logged and counted as {@code expense.rollup.failures} but not thrown: the expenses are already
+     * saved, and {@link #rebuild} repairs the affected buckets.
+     *
+     * @param expenses saved expenses
+     */
+    public void record(Collection<Expense> expenses) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Map<Bucket, Totals> buckets = totals(expenses);
+            if (buckets.isEmpty()) {
+                return;
+            }
+
+            Instant now = Instant.now();
+            BulkOperations upserts = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ExpenseRollup.class);
+            buckets.forEach((bucket, totals) -> upserts.upsert(bucket.query(), new Update()
+                    .inc("count", totals.count)
+                    .inc("total", totals.total)
+                    .min("min", totals.min)
+                    .max("max", totals.max)
+                    .set("updatedAt", now)));
+            upserts.execute();
+        } catch (RuntimeException e) {
+            failed("record", e);
+        }
+    }
+
+    /**
+     * Removes a deleted expense from its buckets. Count and total are decremented atomically; min and max cannot be,
+     * so they are recomputed from the bucket's remaining expenses (one day of one city or currency, read through the
+     * {@code createdAt} indexes) only if the deleted amount was the bucket's min or max. Emptied buckets are removed.
+     * <p>
+     * Failures are handled as in {@link #record}.
+     *
+     * @param expense the deleted expense
+     */
+    public void retract(Expense expense) {
+        if (!enabled || expense.getConvertedAmount() == null || expense.getCreatedAt() == null) {
+            return;
+        }
+        try {
+            double amount = expense.getConvertedAmount();
+            for (Bucket bucket : Bucket.of(expense)) {
+                ExpenseRollup rollup = mongoTemplate.findAndModify(bucket.query(), new Update()
+                                .inc("count", -1)
+                                .inc("total", -amount)
+                                .set("updatedAt", Instant.now()),
+                        FindAndModifyOptions.options().returnNew(true), ExpenseRollup.class);
+                if (rollup == null) {
+                    continue;
+                }
+                if (rollup.getCount() <= 0) {
+                    mongoTemplate.remove(bucket.query().addCriteria(Criteria.where("count").lte(0)), ExpenseRollup.class);
+                } else if (rollup.getMin() == null || rollup.getMax() == null
+                        || amount <= rollup.getMin() || amount >= rollup.getMax()) {
+                    recomputeExtremes(bucket);
+                }
+            }
+        } catch (RuntimeException e) {
+            failed("retract", e);
+        }
+    }
+
+    /**
+     * Removes many deleted expenses from their buckets, for bulk deletions. As in {@link #record}, expenses of the same
+     * bucket are combined and every bucket is decremented in a single unordered bulk write. Emptied buckets are then
+     * removed, and min/max are recomputed only for the remaining buckets that lost their min or max, so purging whole
+     * days costs no recomputation at all.
+     * <p>
+     * Failures are handled as in {@link #record}.
+     *
+     * @param expenses the deleted expenses, with at least their ID, amounts, currencies, city and creation time
+     */
+    public void retract(Collection<Expense> expenses) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Map<Bucket, Totals> buckets = totals(expenses);
+            if (buckets.isEmpty()) {
+                return;
+            }
+
+            Instant now = Instant.now();
+            BulkOperations decrements = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ExpenseRollup.class);
+            buckets.forEach((bucket, totals) -> decrements.updateOne(bucket.query(), new Update()
+                    .inc("count", -totals.count)
+                    .inc("total", -totals.total)
+                    .set("updatedAt", now)));
+            decrements.execute();
+
+            Criteria touched = new Criteria().orOperator(buckets.keySet().stream().map(Bucket::criteria).toList());
+            mongoTemplate.remove(Query.query(new Criteria().andOperator(touched, Criteria.where("count").lte(0))),
+                    ExpenseRollup.class);
+            for (ExpenseRollup rollup : mongoTemplate.find(Query.query(touched), ExpenseRollup.class)) {
+                Bucket bucket = new Bucket(rollup.getDimension(), rollup.getDay(), rollup.getKey(),
+                        rollup.getHomeCurrency());
+                Totals removed = buckets.get(bucket);
+                if (removed != null && (rollup.getMin() == null || rollup.getMax() == null
+                        || removed.min <= rollup.getMin() || removed.max >= rollup.getMax())) {
+                    recomputeExtremes(bucket);
+                }
+            }
+        } catch (RuntimeException e) {
+            failed("retract", e);
+        }
+    }
+
+    /**
+     * Summarizes the rollups of {@code [from, to)} the same way {@link ExpenseSummaryService#summarize} summarizes
+     * the raw expenses, except that percentiles are not available ({@code null}).
+     *
+     * @param groupBy how to group the expenses
+     * @param from    inclusive lower bound, at midnight UTC, or {@code null} for no lower bound
+     * @param to      exclusive upper bound, at midnight UTC, or {@code null} for no upper bound
+     * @return one {@link SpendingSummary} per group, ordered by key
+     */
+    public List<SpendingSummary> summarize(ExpenseSummaryService.GroupBy groupBy, Instant from, Instant to) {
+        ExpenseRollup.Dimension dimension = switch (groupBy) {
+            case CITY -> ExpenseRollup.Dimension.CITY;
+            case ORIGINAL_CURRENCY -> ExpenseRollup.Dimension.CURRENCY;
+            case HOME_CURRENCY, DAY, WEEK, MONTH -> ExpenseRollup.Dimension.TOTAL;
+        };
+        Object key = switch (groupBy) {
+            case CITY, ORIGINAL_CURRENCY -> "$key";
+            case HOME_CURRENCY -> "$homeCurrency";
+            case DAY, WEEK, MONTH -> groupBy.keyExpression("$day");
+        };
+
+        List<AggregationOperation> stages = new ArrayList<>();
+
+        // -- the buckets of one dimension within the date range (served by the bucket index)
+        Document match = new Document("dimension", dimension.name());
+        Document range = dayRange(from, to);
+        if (!range.isEmpty()) {
+            match.append("day", range);
+        }
+        stages.add(context -> new Document("$match", match));
+
+        // -- combine the days of each group
+        stages.add(context -> new Document("$group", new Document()
+                .append("_id", new Document("key", key).append("currency", "$homeCurrency"))
+                .append("count", new Document("$sum", "$count"))
+                .append("total", new Document("$sum", "$total"))
+                .append("min", new Document("$min", "$min"))
+                .append("max", new Document("$max", "$max"))));
+
+        // -- order by group key
+        stages.add(context -> new Document("$sort", new Document("_id.key", 1).append("_id.currency", 1)));
+
+        List<Document> groups = mongoTemplate
+                .aggregate(Aggregation.newAggregation(stages), mongoTemplate.getCollectionName(ExpenseRollup.class),
+                        Document.class)
+                .getMappedResults();
+
+        List<SpendingSummary> summaries = new ArrayList<>(groups.size());
+        for (Document group : groups) {
+            Document id = group.get("_id", Document.class);
+            long count = ((Number) group.get("count")).longValue();
+            double total = ((Number) group.get("total")).doubleValue();
+
+            SpendingSummary summary = new SpendingSummary();
+            summary.setKey(id.getString("key"));
+            summary.setCurrency(id.getString("currency"));
+            summary.setCount(count);
+            summary.setTotal(total);
+            summary.setAverage(count > 0 ? total / count : 0);
+            summary.setMin(group.get("min") instanceof Number min ? min.doubleValue() : 0);
+            summary.setMax(group.get("max") instanceof Number max ? max.doubleValue() : 0);
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    /**
+     * Recomputes every bucket of {@code [from, to)} from the raw expenses, e.g. to backfill expenses saved before the
+     * rollups existed or to repair buckets after a failed update.
+     * <p>
+     * Each dimension is aggregated by MongoDB and the results are written over the existing buckets, so dashboards
+     * never see an empty range. Buckets of the range that were not rewritten (their expenses are gone) are removed
+     * afterwards. Incremental updates made to a bucket between its aggregation and its rewrite are lost, so run
+     * rebuilds of ranges that are still receiving writes again once they are quiet.
+     *
+     * @param from inclusive lower bound, at midnight UTC, or {@code null} for no lower bound
+     * @param to   exclusive upper bound, at midnight UTC, or {@code null} for no upper bound
+     * @return what was rebuilt
+     */
+    public RollupRebuildResponse rebuild(Instant from, Instant to) {
+        Instant started = Instant.now();
+        long written = 0;
+        for (ExpenseRollup.Dimension dimension : ExpenseRollup.Dimension.values()) {
+            written += rebuild(dimension, from, to);
+        }
+
+        Criteria stale = Criteria.where("updatedAt").lt(started);
+        if (from != null || to != null) {
+            Criteria day = Criteria.where("day");
+            if (from != null) {
+                day.gte(from);
+            }
+            if (to != null) {
+                day.lt(to);
+            }
+            stale.andOperator(day);
+        }
+        long removed = mongoTemplate.remove(Query.query(stale), ExpenseRollup.class).getDeletedCount();
+
+        long took = Duration.between(started, Instant.now()).toMillis();
+        log.info("Rebuilt {} rollup buckets ({} stale removed) for [{}, {}) in {} ms", written, removed, from, to, took);
+        return new RollupRebuildResponse(from, to, written, removed, took);
+    }
+
+    /**
+     * Aggregates the expenses of one dimension by day, key and home currency and overwrites the matching buckets.
+     *
+     * @return the number of buckets written
+     */
+    private long rebuild(ExpenseRollup.Dimension dimension, Instant from, Instant to) {
+        Object key = switch (dimension) {
+            case TOTAL -> new Document("$literal", ExpenseRollup.TOTAL_KEY);
+            case CITY -> "$city";
+            case CURRENCY -> "$originalCurrency";
+        };
+
+        Document match = new Document("convertedAmount", new Document("$exists", true));
+        Document range = dayRange(from, to);
+        if (!range.isEmpty()) {
+            match.append("createdAt", range);
+        }
+        List<AggregationOperation> stages = List.of(
+                context -> new Document("$match", match),
+                context -> new Document("$group", new Document()
+                        .append("_id", new Document()
+                                .append("day", new Document("$dateTrunc",
+                                        new Document("date", "$createdAt").append("unit", "day")))
+                                .append("key", key)
+                                .append("currency", "$homeCurrency"))
+                        .append("count", new Document("$sum", 1))
+                        .append("total", new Document("$sum", "$convertedAmount"))
+                        .append("min", new Document("$min", "$convertedAmount"))
+                        .append("max", new Document("$max", "$convertedAmount"))));
+
+        long written = 0;
+        List<Document> batch = new ArrayList<>(REBUILD_BATCH_SIZE);
+        try (Stream<Document> groups = mongoTemplate.aggregateStream(Aggregation.newAggregation(stages),
+                mongoTemplate.getCollectionName(Expense.class), Document.class)) {
+            for (Document group : (Iterable<Document>) groups::iterator) {
+                batch.add(group);
+                if (batch.size() == REBUILD_BATCH_SIZE) {
+                    written += overwrite(dimension, batch);
+                    batch.clear();
+                }
+            }
+        }
+        written += overwrite(dimension, batch);
+        return written;
+    }
+
+    /**
+     * Overwrites the buckets of aggregated groups in one unordered bulk write. Their {@code updatedAt} is after the
+     * start of the rebuild, which is what keeps them from being removed as stale.
+     *
+     * @return the number of buckets written
+     */
+    private int overwrite(ExpenseRollup.Dimension dimension, List<Document> groups) {
+        if (groups.isEmpty()) {
+            return 0;
+        }
+        Instant now = Instant.now();
+        BulkOperations upserts = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ExpenseRollup.class);
+        for (Document group : groups) {
+            Document id = group.get("_id", Document.class);
+            Bucket bucket = new Bucket(dimension, id.getDate("day").toInstant(), id.getString("key"),
+                    id.getString("currency"));
+            upserts.upsert(bucket.query(), new Update()
+                    .set("count", ((Number) group.get("count")).longValue())
+                    .set("total", ((Number) group.get("total")).doubleValue())
+                    .set("min", group.get("min"))
+                    .set("max", group.get("max"))
+                    .set("updatedAt", now));
+        }
+        upserts.execute();
+        return groups.size();
+    }
+
+    /**
+     * Resets min and max of a bucket to the smallest and largest converted amount of its remaining expenses.
+     */
+    private void recomputeExtremes(Bucket bucket) {
+        Query expenses = Query.query(bucket.expenseCriteria()).limit(1);
+        expenses.fields().include("convertedAmount");
+        Expense smallest = mongoTemplate.findOne(Query.of(expenses).with(Sort.by("convertedAmount")), Expense.class);
+        Expense largest = mongoTemplate.findOne(Query.of(expenses).with(Sort.by(Sort.Direction.DESC, "convertedAmount")),
+                Expense.class);
+        if (smallest != null && largest != null) {
+            mongoTemplate.updateFirst(bucket.query(), new Update()
+                    .set("min", smallest.getConvertedAmount())
+                    .set("max", largest.getConvertedAmount()), ExpenseRollup.class);
+        }
+    }
+
+    /**
+     * Combines the converted amounts of expenses per bucket. Expenses without a converted amount are not in any.
+     */
+    private static Map<Bucket, Totals> totals(Collection<Expense> expenses) {
+        Map<Bucket, Totals> buckets = new LinkedHashMap<>();
+        for (Expense expense : expenses) {
+            if (expense.getConvertedAmount() == null || expense.getCreatedAt() == null) {
+                continue;
+            }
+            for (Bucket bucket : Bucket.of(expense)) {
+                buckets.computeIfAbsent(bucket, b -> new Totals()).add(expense.getConvertedAmount());
+            }
+        }
+        return buckets;
+    }
+
+    private void failed(String operation, RuntimeException e) {
+        meterRegistry.counter("expense.rollup.failures", "operation", operation).increment();
+        log.warn("Failed to {} expense rollups, rebuild them to repair: {}", operation, e.getMessage());
+    }
+
+    /**
+     * Criteria on {@code day} for the range {@code [from, to)}.
+     */
+    private static Document dayRange(Instant from, Instant to) {
+        Document range = new Document();
+        if (from != null) {
+            range.append("$gte", Date.from(from));
+        }
+        if (to != null) {
+            range.append("$lt", Date.from(to));
+        }
+        return range;
+    }
+
+    // ============================== Bucket =========================================
+
+    /**
+     * Identity of one {@link ExpenseRollup}.
+     */
+    @Data
+    @AllArgsConstructor
+    private static class Bucket {
+        private final ExpenseRollup.Dimension dimension;
+        private final Instant day;
+        private final String key;
+        private final String homeCurrency;
+
+        /**
+         * The buckets an expense belongs to: its day overall, its day in its city and its day in its currency.
+         */
+        static List<Bucket> of(Expense expense) {
+            Instant day = expense.getCreatedAt().truncatedTo(ChronoUnit.DAYS);
+            return List.of(
+                    new Bucket(ExpenseRollup.Dimension.TOTAL, day, ExpenseRollup.TOTAL_KEY, expense.getHomeCurrency()),
+                    new Bucket(ExpenseRollup.Dimension.CITY, day, expense.getCity(), expense.getHomeCurrency()),
+                    new Bucket(ExpenseRollup.Dimension.CURRENCY, day, expense.getOriginalCurrency(),
+                            expense.getHomeCurrency()));
+        }
+
+        /**
+         * Matches the bucket's document; on upsert, its fields become those of the new document.
+         */
+        Query query() {
+            return Query.query(criteria());
+        }
+
+        Criteria criteria() {
+            return Criteria.where("dimension").is(dimension)
+                    .and("day").is(day)
+                    .and("key").is(key)
+                    .and("homeCurrency").is(homeCurrency);
+        }
+
+        /**
+         * Matches the converted expenses counted in the bucket.
+         */
+        Criteria expenseCriteria() {
+            Criteria criteria = Criteria.where("createdAt").gte(day).lt(day.plus(1, ChronoUnit.DAYS))
+                    .and("homeCurrency").is(homeCurrency)
+                    .and("convertedAmount").exists(true);
+            return switch (dimension) {
+                case TOTAL -> criteria;
+                case CITY -> criteria.and("city").is(key);
+                case CURRENCY -> criteria.and("originalCurrency").is(key);
+            };
+        }
+    }
+
+    /**
+     * Running count, sum, min and max of the amounts added to one bucket.
+     */
+    private static class Totals {
+        private long count;
+        private double total;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        void add(double amount) {
+            count++;
+            total += amount;
+            min = Math.min(min, amount);
+            max = Math.max(max, amount);
+        }
+    }
+}
@@ -3,13 +3,56 @@ package com.ochwada.expense_assistant.service;
 
 import com.ochwada.expense_assistant.client.CurrencyClient;
 import com.ochwada.expense_assistant.client.WeatherClient;
+import com.ochwada.expense_assistant.dto.BatchExpenseResponse;
+import com.ochwada.expense_assistant.dto.ExpenseChangeEvent;
+import com.ochwada.expense_assistant.dto.ExpenseFilter;
+import com.ochwada.expense_assistant.dto.ExpensePage;
 import com.ochwada.expense_assistant.dto.ExpenseRequest;
+import com.ochwada.expense_assistant.dto.ExpenseSummary;
+import com.ochwada.expense_assistant.model.EnrichmentStatus;
 import com.ochwada.expense_assistant.model.Expense;
 import com.ochwada.expense_assistant.repository.ExpenseRepository;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * *******************************************************
@@ -32,6 +75,16 @@ public class ExpenseService {
      */
     private final ExpenseRepository repository;
 
+    /**
+     * Weather value stored when the weather lookup did not answer in time.
+     */
+    static final String WEATHER_UNAVAILABLE = "unavailable";
+
+    /**
+     * Name of the observation (timer and trace span) recorded for each stage of saving an expense.
+     */
+    static final String STAGE_OBSERVATION = "expense.stage";
+
     /**
      * API client used to fetch exchange rates from the external currency API.
      */
@@ -42,87 +95,721 @@ public class ExpenseService {
      */
     private final WeatherClient weatherClient;
 
+    /**
+     * Executor running the currency and weather lookups of an expense concurrently.
+     */
+    private final ExecutorService enrichmentExecutor;
+
+    /**
+     * Registry the per-stage observations are recorded in.
+     */
+    private final ObservationRegistry observationRegistry;
+
+    /**
+     * Keeps the per-day spending rollups in step with every saved and deleted expense.
+     */
+    private final ExpenseRollupService rollupService;
+
+    /**
+     * Runs the reads that select fields at request time, which derived repository queries cannot express.
+     */
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Told about every expense this service creates or deletes.
+     */
+    private final ExpenseChangeFeed changeFeed;
+
+    /**
+     * Serves repeated reads of single expenses.
+     */
+    private final ExpenseCache expenseCache;
+
+    /**
+     * Deadline for the exchange-rate lookup. The expense cannot be saved without it. When it passes, the lookup is
+     * interrupted, releasing its HTTP connection.
+     */
+    @Value("${app.enrichment.currency-timeout:5s}")
+    private Duration currencyTimeout;
+
+    /**
+     * Deadline for the weather lookup. When it passes, the lookup is interrupted and the expense is saved with weather
+     * marked as unavailable.
+     */
+    @Value("${app.enrichment.weather-timeout:3s}")
+    private Duration weatherTimeout;
+
+    /**
+     * "sync" enriches an expense before saving it; "async" saves it at once and leaves enrichment to the
+     * {@link EnrichmentWorker}.
+     */
+    @Value("${app.enrichment.mode:sync}")
+    private String enrichmentMode;
+
+    /**
+     * Most lookups one batch runs at once. Kept below the upstream bulkheads, so that a batch with many distinct
+     * cities queues its lookups rather than having them rejected, and leaves room for single submissions.
+     */
+    @Value("${app.enrichment.batch-concurrency:8}")
+    private int batchConcurrency;
+
+    /**
+     * Submissions with an {@code Idempotency-Key} that are being enriched and saved right now, by key. A duplicate
+     * arriving meanwhile waits for the running one instead of making its own upstream calls.
+     */
+    private final ConcurrentMap<String, CompletableFuture<Expense>> inFlightSubmissions = new ConcurrentHashMap<>();
+
     /**
      * ExpenseService} with required dependencies.
      *
-     * @param repository     the {@link ExpenseRepository} used for database operations
-     * @param currencyClient the {@link CurrencyClient} used to retrieve exchange rates
-     * @param weatherClient  the {@link WeatherClient} used to retrieve the weather data.
+     * @param repository         the {@link ExpenseRepository} used for database operations
+     * @param currencyClient     the {@link CurrencyClient} used to retrieve exchange rates
+     * @param weatherClient      the {@link WeatherClient} used to retrieve the weather data.
+     * @param enrichmentExecutor  the executor running both lookups concurrently
+     * @param observationRegistry the registry the per-stage timings and spans are recorded in
+     * @param rollupService       the service maintaining the spending rollups
+     * @param mongoTemplate       the template running field-selecting reads
+     * @param changeFeed          the feed notified of created and deleted expenses
+     * @param expenseCache        the read-through cache of single expenses
      */
-    public ExpenseService(ExpenseRepository repository, CurrencyClient currencyClient, WeatherClient weatherClient) {
+    public ExpenseService(ExpenseRepository repository,
+                          CurrencyClient currencyClient,
+                          WeatherClient weatherClient,
+                          @Qualifier("enrichmentExecutor") ExecutorService enrichmentExecutor,
+                          ObservationRegistry observationRegistry,
+                          ExpenseRollupService rollupService,
+                          MongoTemplate mongoTemplate,
+                          ExpenseChangeFeed changeFeed,
+                          ExpenseCache expenseCache) {
         this.repository = repository; // Data Access Object.
         this.currencyClient = currencyClient;  // External API Client.
         this.weatherClient = weatherClient;   // External API Client.
+        this.enrichmentExecutor = enrichmentExecutor;
+        this.observationRegistry = observationRegistry;
+        this.rollupService = rollupService;
+        this.mongoTemplate = mongoTemplate;
+        this.changeFeed = changeFeed;
+        this.expenseCache = expenseCache;
     }
 
     /** -------------------------------------------------------------------------------------
      * Add business logic methods here, such as:
      * 1. addExpense()
-     * 2. getAllExpense()
-     * 3. getExpenseById()
-     * 4. deleteExpense()
+     * 2. addExpenses()
+     * 3. getExpenses()
+     * 4. searchExpenses()
+     * 5. getExpenseById()
+     * 6. deleteExpense()
      ----------------------------------------------------------------------------------------*/
     /**
      * Saves an expense record to MongoDB "expense" collection.
+     * <p>
+     * The currency and weather lookups run concurrently, each with its own deadline, so the request waits for the
+     * slower of the two rather than their sum. A lookup that misses its deadline is interrupted, so that it frees its
+     * pooled connection at once. A weather lookup that misses its deadline does not fail the request; the expense is
+     * saved with its weather marked as unavailable. The same applies to a failed weather lookup while
+     * {@code openweather.fallback.enabled} is set.
+     * <p>
+     * The currency lookup, weather lookup and save are each observed as {@code expense.stage} with a {@code stage} tag,
+     * giving a latency histogram and a trace span per stage.
+     * <p>
+     * With {@code app.enrichment.mode=async} no lookup is made: the expense is saved as submitted with status
+     * {@link EnrichmentStatus#PENDING}, and the {@link EnrichmentWorker} fills in currency and weather later.
      *
      * @param request the {@link ExpenseRequest} DTO to be saved.
      * @return the saved {@link Expense} object.
      * @throws RuntimeException if the exchange rate could not be fetched or the save operation fails
      */
     public Expense addExpense(ExpenseRequest request) {
-        // Fetch current data
-        CurrencyClient.CurrencyData currencyData = currencyClient.getExchangeRate(
-                request.getAmount(),
-                request.getCurrency()
-        );
-        // Fetch weather data
-        WeatherClient.WeatherData weatherData = weatherClient.getWeatherForCity(
-                request.getCity()
-        );
+        return create(request, null);
+    }
+
+    /**
+     * Saves an expense at most once per {@code Idempotency-Key}.
+     * <p>
+     * A key that was already used answers with the expense it saved, without any upstream call or write. Duplicates
+     * that arrive while the first submission is still running wait for it in this instance; across instances the
+     * unique {@code idempotencyKey} index lets only one insert succeed, and the others answer with the winner.
+     * Expenses (and their keys) are kept until deleted, so a key may be retried for as long as its expense exists.
+     *
+     * @param request        the {@link ExpenseRequest} DTO to be saved
+     * @param idempotencyKey the client's key for this submission, or {@code null} to always save a new expense
+     * @return the saved expense, and whether it was saved by an earlier submission with the same key
+     * @throws IdempotencyKeyReusedException if the key was used for a different expense
+     * @throws RuntimeException              under the same conditions as {@link #addExpense(ExpenseRequest)}
+     */
+    public Submission addExpense(ExpenseRequest request, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return new Submission(addExpense(request), false);
+        }
+        Optional<Expense> existing = repository.findByIdempotencyKey(idempotencyKey);
+        if (existing.isPresent()) {
+            return replay(existing.get(), request);
+        }
+
+        CompletableFuture<Expense> pending = new CompletableFuture<>();
+        CompletableFuture<Expense> running = inFlightSubmissions.putIfAbsent(idempotencyKey, pending);
+        if (running != null) {
+            return replay(await(running, "Duplicate submission"), request);
+        }
+        try {
+            Expense saved = create(request, idempotencyKey);
+            pending.complete(saved);
+            return new Submission(saved, false);
+        } catch (DuplicateKeyException e) {
+            // Another instance saved an expense with this key between the lookup and the insert
+            Expense winner = repository.findByIdempotencyKey(idempotencyKey).orElseThrow(() -> e);
+            pending.complete(winner);
+            return replay(winner, request);
+        } catch (RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightSubmissions.remove(idempotencyKey, pending);
+        }
+    }
+
+    /**
+     * Enriches (or, in async mode, queues) and inserts a new expense.
+     *
+     * @param request        the {@link ExpenseRequest} DTO to be saved
+     * @param idempotencyKey the key stored with the expense, or {@code null}
+     * @return the saved {@link Expense}
+     * @throws DuplicateKeyException if an expense with the same idempotency key already exists
+     */
+    private Expense create(ExpenseRequest request, String idempotencyKey) {
+        if ("async".equalsIgnoreCase(enrichmentMode)) {
+            return submitForEnrichment(request, idempotencyKey);
+        }
+
+        // Fetch current data and weather concurrently, against deadlines counted from now
+        long started = System.nanoTime();
+        Future<CurrencyClient.CurrencyData> currencyFuture = enrichmentExecutor.submit(
+                () -> observeStage("currency", () -> currencyClient.getExchangeRate(
+                        request.getAmount(),
+                        request.getCurrency()
+                )));
+        Future<WeatherClient.WeatherData> weatherFuture = enrichmentExecutor.submit(
+                () -> observeStage("weather", () -> weatherClient.getWeatherForCity(
+                        request.getCity()
+                )));
+
+        CurrencyClient.CurrencyData currencyData;
+        WeatherClient.WeatherData weatherData;
+        try {
+            currencyData = awaitUntil(currencyFuture, started + currencyTimeout.toNanos(), "Currency lookup");
+            try {
+                weatherData = awaitUntil(weatherFuture, started + weatherTimeout.toNanos(), "Weather lookup");
+            } catch (LookupTimeoutException e) {
+                // A missed deadline yields null (unavailable) instead of an error
+                weatherData = null;
+            } catch (RuntimeException e) {
+                if (!weatherClient.isFallbackEnabled()) {
+                    throw e;
+                }
+                weatherData = null;
+            }
+        } finally {
+            // Interrupt a lookup past its deadline, or no longer needed, so it releases its pooled connection now
+            // rather than when the HTTP timeouts fire
+            currencyFuture.cancel(true);
+            weatherFuture.cancel(true);
+        }
+
+        Expense expense = toExpense(request, currencyData, weatherData);
+        expense.setIdempotencyKey(idempotencyKey);
+        Expense saved = observeStage("save", () -> repository.insert(expense));
+        rollupService.record(List.of(saved));
+        changeFeed.local(List.of(saved), ExpenseChangeEvent::created);
+        return saved;
+    }
+
+    /**
+     * Saves an expense with only the submitted data, queued for the {@link EnrichmentWorker}.
+     *
+     * @param request        the {@link ExpenseRequest} DTO to be saved.
+     * @param idempotencyKey the key stored with the expense, or {@code null}
+     * @return the saved, still pending {@link Expense}
+     */
+    private Expense submitForEnrichment(ExpenseRequest request, String idempotencyKey) {
+        Expense expense = new Expense();
+        expense.setOriginalAmount(request.getAmount());
+        expense.setOriginalCurrency(request.getCurrency().toUpperCase(Locale.ROOT));
+        expense.setCity(request.getCity());
+        expense.setDescription(request.getDescription());
+        expense.setEnrichmentStatus(EnrichmentStatus.PENDING);
+        expense.setEnrichmentAttempts(0);
+        expense.setNextEnrichmentAt(Instant.now());
+        expense.setIdempotencyKey(idempotencyKey);
+        Expense saved = observeStage("save", () -> repository.insert(expense));
+        changeFeed.local(List.of(saved), ExpenseChangeEvent::created);
+        return saved;
+    }
+
+    /**
+     * Saves a batch of expense records to MongoDB "expenses" collection.
+     * <p>
+     * Each distinct currency and each distinct city in the batch is looked up only once, and all successfully enriched
+     * expenses are written with a single bulk insert. The lookups run concurrently, at most
+     * {@code app.enrichment.batch-concurrency} at a time, under the same deadlines as {@link #addExpense(ExpenseRequest)}
+     * counted from the start of the batch. Items whose currency lookup fails or misses its deadline (or weather lookup
+     * fails, unless {@code openweather.fallback.enabled} is set) are reported as failed without affecting the rest of
+     * the batch; a weather lookup that misses its deadline leaves the weather unavailable.
+     *
+     * @param requests the {@link ExpenseRequest} DTOs to be saved.
+     * @return a {@link BatchExpenseResponse} with the outcome of every item, in submission order.
+     */
+    public BatchExpenseResponse addExpenses(List<ExpenseRequest> requests) {
+        // Start each distinct exchange-rate and weather lookup once, all together, against deadlines counted from now
+        long started = System.nanoTime();
+        Semaphore permits = new Semaphore(batchConcurrency);
+        Map<String, Future<Double>> rateLookups = new LinkedHashMap<>();
+        Map<String, Future<WeatherClient.WeatherData>> weatherLookups = new LinkedHashMap<>();
+        for (ExpenseRequest request : requests) {
+            rateLookups.computeIfAbsent(request.getCurrency().toUpperCase(Locale.ROOT),
+                    currency -> submitLookup(permits, () -> currencyClient.getRate(currency)));
+            weatherLookups.computeIfAbsent(cityKey(request.getCity()),
+                    city -> submitLookup(permits, () -> weatherClient.getWeatherForCity(request.getCity())));
+        }
+
+        // Collect the outcomes; remember failures so affected items can be reported
+        Map<String, Double> rates = new HashMap<>();
+        Map<String, String> rateErrors = new HashMap<>();
+        Map<String, WeatherClient.WeatherData> weather = new HashMap<>();
+        Map<String, String> weatherErrors = new HashMap<>();
+        try {
+            long currencyDeadline = started + currencyTimeout.toNanos();
+            rateLookups.forEach((currency, lookup) -> {
+                try {
+                    rates.put(currency, awaitUntil(lookup, currencyDeadline, "Currency lookup"));
+                } catch (RuntimeException e) {
+                    rateErrors.put(currency, e.getMessage());
+                }
+            });
+            long weatherDeadline = started + weatherTimeout.toNanos();
+            weatherLookups.forEach((city, lookup) -> {
+                try {
+                    weather.put(city, awaitUntil(lookup, weatherDeadline, "Weather lookup"));
+                } catch (LookupTimeoutException e) {
+                    weather.put(city, null); // saved as unavailable, as in addExpense
+                } catch (RuntimeException e) {
+                    if (weatherClient.isFallbackEnabled()) {
+                        weather.put(city, null);
+                    } else {
+                        weatherErrors.put(city, e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            // Interrupt the lookups past their deadline so they release their pooled connections now
+            rateLookups.values().forEach(lookup -> lookup.cancel(true));
+            weatherLookups.values().forEach(lookup -> lookup.cancel(true));
+        }
+
+        // Build the expenses that could be enriched; record a failure for the rest
+        BatchExpenseResponse response = new BatchExpenseResponse();
+        List<Expense> toInsert = new ArrayList<>();
+        List<BatchExpenseResponse.ItemResult> pending = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            ExpenseRequest request = requests.get(i);
+            String currency = request.getCurrency().toUpperCase(Locale.ROOT);
+            String city = cityKey(request.getCity());
+            BatchExpenseResponse.ItemResult result = new BatchExpenseResponse.ItemResult();
+            result.setIndex(i);
+            response.getItems().add(result);
+
+            if (rateErrors.containsKey(currency)) {
+                result.setStatus(BatchExpenseResponse.Status.FAILED);
+                result.setError(rateErrors.get(currency));
+            } else if (weatherErrors.containsKey(city)) {
+                result.setStatus(BatchExpenseResponse.Status.FAILED);
+                result.setError(weatherErrors.get(city));
+            } else {
+                double rate = rates.get(currency);
+                CurrencyClient.CurrencyData currencyData = new CurrencyClient.CurrencyData(
+                        currency,
+                        currencyClient.getTargetCurrency(),
+                        request.getAmount(),
+                        rate,
+                        request.getAmount() * rate
+                );
+                toInsert.add(toExpense(request, currencyData, weather.get(city)));
+                pending.add(result);
+            }
+        }
+
+        // Persist everything in one bulk insert; ids are assigned in insertion order
+        if (!toInsert.isEmpty()) {
+            try {
+                List<Expense> saved = observeStage("save", () -> repository.insert(toInsert));
+                for (int i = 0; i < saved.size(); i++) {
+                    pending.get(i).setStatus(BatchExpenseResponse.Status.CREATED);
+                    pending.get(i).setId(saved.get(i).getId());
+                }
+                rollupService.record(saved);
+                changeFeed.local(saved, ExpenseChangeEvent::created);
+            } catch (RuntimeException e) {
+                for (BatchExpenseResponse.ItemResult result : pending) {
+                    result.setStatus(BatchExpenseResponse.Status.FAILED);
+                    result.setError("Failed to persist expense: " + e.getMessage());
+                }
+            }
+        }
+
+        for (BatchExpenseResponse.ItemResult result : response.getItems()) {
+            if (result.getStatus() == BatchExpenseResponse.Status.CREATED) {
+                response.setCreated(response.getCreated() + 1);
+            } else {
+                response.setFailed(response.getFailed() + 1);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Retrieves one page of expense records from the MongoDB "expenses" collection.
+     * <p>
+     * Pages are keyed on {@code _id} rather than on an offset, so every page is an indexed range scan no matter how
+     * deep into the collection it is.
+     *
+     * @param cursor the {@code nextCursor} of the previous page, or {@code null} for the first page
+     * @param limit  the maximum number of expenses in the page
+     * @return an {@link ExpensePage} with the expenses and the cursor of the next page
+     */
+    public ExpensePage<Expense> getExpenses(String cursor, int limit) {
+        // Fetch one extra expense to learn whether another page follows
+        Limit fetch = Limit.of(limit + 1);
+        List<Expense> expenses = cursor == null
+                ? repository.findAllByOrderByIdAsc(fetch)
+                : repository.findByIdGreaterThanOrderByIdAsc(cursor, fetch);
+        return toPage(expenses, limit, Expense::getId);
+    }
+
+    /**
+     * Retrieves one page of expenses with only the given fields read from MongoDB; the other properties of the
+     * returned expenses are left unset.
+     *
+     * @param cursor the {@code nextCursor} of the previous page, or {@code null} for the first page
+     * @param limit  the maximum number of expenses in the page
+     * @param fields the properties to read (see {@code ExpenseFields}), or {@code null} for all of them
+     * @return an {@link ExpensePage} with the partially read expenses and the cursor of the next page
+     */
+    public ExpensePage<Expense> getExpenses(String cursor, int limit, Set<String> fields) {
+        if (fields == null) {
+            return getExpenses(cursor, limit);
+        }
+        return toPage(mongoTemplate.find(pageQuery(cursor, limit, fields), Expense.class), limit, Expense::getId);
+    }
+
+    /**
+     * Retrieves one page of {@link ExpenseSummary} views in {@code _id} order, reading only their fields.
+     *
+     * @param cursor the {@code nextCursor} of the previous page, or {@code null} for the first page
+     * @param limit  the maximum number of expenses in the page
+     * @return an {@link ExpensePage} with the summaries and the cursor of the next page
+     */
+    public ExpensePage<ExpenseSummary> getExpenseSummaries(String cursor, int limit) {
+        Limit fetch = Limit.of(limit + 1);
+        List<ExpenseSummary> summaries = cursor == null
+                ? repository.findSummariesByOrderByIdAsc(fetch)
+                : repository.findSummariesByIdGreaterThanOrderByIdAsc(cursor, fetch);
+        return toPage(summaries, limit, ExpenseSummary::getId);
+    }
+
+    /**
+     * Searches expense records by city, original currency, converted-amount range or creation date.
+     * <p>
+     * Exactly one of city, currency or amount range may be set; city and currency may be combined with a date range,
+     * and a date range may be used on its own. Each combination maps to a dedicated repository method backed by an
+     * index, and only the fields of {@link ExpenseSummary} are read.
+     *
+     * @param filter the search criteria
+     * @return up to {@code filter.limit} matching expenses
+     * @throws IllegalArgumentException if the filter combination is not supported
+     */
+    public List<ExpenseSummary> searchExpenses(ExpenseFilter filter) {
+        Limit limit = Limit.of(filter.getLimit());
+        boolean byAmount = filter.getMinAmount() != null || filter.getMaxAmount() != null;
+        boolean byDate = filter.getFrom() != null || filter.getTo() != null;
+
+        if (filter.getCity() != null && filter.getCurrency() == null && !byAmount) {
+            return byDate
+                    ? repository.findByCityAndCreatedAtBetweenOrderByCreatedAtDesc(filter.getCity(), dateRange(filter), limit)
+                    : repository.findByCityOrderByCreatedAtDesc(filter.getCity(), limit);
+        }
+        if (filter.getCurrency() != null && filter.getCity() == null && !byAmount) {
+            // Currencies are stored in upper case
+            String currency = filter.getCurrency().toUpperCase(Locale.ROOT);
+            return byDate
+                    ? repository.findByOriginalCurrencyAndCreatedAtBetweenOrderByCreatedAtDesc(
+                            currency, dateRange(filter), limit)
+                    : repository.findByOriginalCurrencyOrderByCreatedAtDesc(currency, limit);
+        }
+        if (byAmount && filter.getCity() == null && filter.getCurrency() == null && !byDate) {
+            Range<Double> amount = Range.of(
+                    filter.getMinAmount() != null ? Range.Bound.inclusive(filter.getMinAmount()) : Range.Bound.unbounded(),
+                    filter.getMaxAmount() != null ? Range.Bound.inclusive(filter.getMaxAmount()) : Range.Bound.unbounded()
+            );
+            return repository.findByConvertedAmountBetweenOrderByConvertedAmountAsc(amount, limit);
+        }
+        if (byDate && filter.getCity() == null && filter.getCurrency() == null && !byAmount) {
+            return repository.findByCreatedAtBetweenOrderByCreatedAtDesc(dateRange(filter), limit);
+        }
+        throw new IllegalArgumentException("Unsupported filter combination");
+    }
+
+    /**
+     * Retrieves a specific expense record by its unique MongoDB ID, through the {@link ExpenseCache}.
+     *
+     * @param id the ID of the expense record to retrieve
+     * @return an {@link Optional} containing the {@link Expense} if found, or empty if not found
+     */
+    public Optional<Expense> getExpenseById(String id) {
+        return expenseCache.findById(id);
+    }
+
+    /**
+     * Retrieves an expense with only the given fields read from MongoDB. An expense already in the
+     * {@link ExpenseCache} is returned whole instead, since the response writes only the selected fields anyway.
+     *
+     * @param id     the ID of the expense record to retrieve
+     * @param fields the properties to read, or {@code null} for all of them
+     * @return the partially read {@link Expense}, or empty if not found
+     */
+    public Optional<Expense> getExpenseById(String id, Set<String> fields) {
+        if (fields == null) {
+            return getExpenseById(id);
+        }
+        Optional<Expense> cached = expenseCache.getIfPresent(id);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        return Optional.ofNullable(mongoTemplate.findOne(byIdQuery(id, fields), Expense.class));
+    }
+
+    /**
+     * Retrieves the {@link ExpenseSummary} view of an expense, reading only its fields.
+     *
+     * @param id the ID of the expense record to retrieve
+     * @return the summary, or empty if not found
+     */
+    public Optional<ExpenseSummary> getExpenseSummaryById(String id) {
+        return repository.findSummaryById(id);
+    }
+
+    /**
+     * Deletes an expense record from the MongoDB "expenses" collection by its ID, removes it from the spending
+     * rollups and reports it to the change feed.
+     *
+     * @param id the ID of the expense record to delete
+     */
+    public void deleteExpense(String id) {
+        repository.removeById(id).ifPresent(removed -> {
+            rollupService.retract(removed);
+            changeFeed.local(List.of(removed.getId()), ExpenseChangeEvent::deleted);
+        });
+    }
+
+    /**
+     * Builds an {@link Expense} from the request and its enrichment data.
+     *
+     * @param request      the submitted {@link ExpenseRequest}
+     * @param currencyData the exchange-rate data for the request's currency
+     * @param weatherData  the weather data for the request's city
+     * @return a new, unsaved {@link Expense}
+     */
+    static Expense toExpense(ExpenseRequest request,
+                             CurrencyClient.CurrencyData currencyData,
+                             WeatherClient.WeatherData weatherData) {
         // Build the expense object
         Expense expense = new Expense();
         // -- currency injection
         expense.setOriginalAmount(currencyData.getAmount());
-        expense.setOriginalCurrency(currencyData.getSourceCurrency());
+        // Stored in upper case, so that rollups, summaries and searches see one code per currency
+        expense.setOriginalCurrency(currencyData.getSourceCurrency().toUpperCase(Locale.ROOT));
         expense.setConvertedAmount(currencyData.getConvertedAmount());
         expense.setHomeCurrency(currencyData.getTargetCurrency());
         // -- dto injection
         expense.setCity(request.getCity());
         expense.setDescription(request.getDescription());
         // -- weather injection
-        expense.setWeather(weatherData.getWeather());
-        expense.setTemperature(weatherData.getTemperature());
+        if (weatherData != null) {
+            expense.setWeather(weatherData.getWeather());
+            expense.setTemperature(weatherData.getTemperature());
+        } else {
+            expense.setWeather(WEATHER_UNAVAILABLE);
+        }
+        expense.setEnrichmentStatus(EnrichmentStatus.COMPLETED);
+        return expense;
+    }
 
+    /**
+     * Answers a repeated submission with the expense saved under its idempotency key.
+     *
+     * @param existing the expense saved under the key
+     * @param request  the repeated submission
+     * @return {@code existing}, marked as replayed
+     * @throws IdempotencyKeyReusedException if {@code request} does not describe {@code existing}
+     */
+    static Submission replay(Expense existing, ExpenseRequest request) {
+        boolean same = existing.getOriginalAmount() == request.getAmount()
+                && request.getCurrency().equalsIgnoreCase(existing.getOriginalCurrency())
+                && Objects.equals(existing.getCity(), request.getCity())
+                && Objects.equals(existing.getDescription(), request.getDescription());
+        if (!same) {
+            throw new IdempotencyKeyReusedException(existing.getIdempotencyKey());
+        }
+        return new Submission(existing, true);
+    }
 
-        return repository.save(expense);
+    /**
+     * Runs one stage of saving an expense inside an {@code expense.stage} observation tagged with {@code stage}.
+     */
+    private <T> T observeStage(String stage, Supplier<T> work) {
+        return Observation.createNotStarted(STAGE_OBSERVATION, observationRegistry)
+                .contextualName("expense " + stage)
+                .lowCardinalityKeyValue("stage", stage)
+                .observe(work);
     }
 
     /**
-     * Retrieves all expense records from the MongoDB "expenses" collection.
+     * Waits for an enrichment lookup and rethrows its failure the way a direct call would have.
      *
-     * @return a {@link List} of all {@link Expense} records stored in the database
+     * @param future the running lookup
+     * @param name   a label for the lookup, used in the timeout message
+     * @return the lookup result
      */
-    public List<Expense> getAllExpense() {
-        return repository.findAll();
+    private static <T> T await(CompletableFuture<T> future, String name) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new RuntimeException(name + " timed out", e.getCause());
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
     }
 
     /**
-     * Retrieves a specific expense record by its unique MongoDB ID.
-     *
-     * @param id the ID of the expense record to retrieve
-     * @return an {@link Optional} containing the {@link Expense} if found, or empty if not found
+     * Runs a lookup of a batch on the {@code enrichmentExecutor} once one of the batch's {@code permits} is free.
      */
-    public Optional<Expense> getExpenseById(String id) {
-        return repository.findById(id);
+    private <T> Future<T> submitLookup(Semaphore permits, Callable<T> lookup) {
+        return enrichmentExecutor.submit(() -> {
+            permits.acquire();
+            try {
+                return lookup.call();
+            } finally {
+                permits.release();
+            }
+        });
     }
 
     /**
-     * Deletes an expense record from the MongoDB "expenses" collection by its ID.
+     * Waits for a lookup until a deadline.
      *
-     * @param id the ID of the expense record to delete
+     * @param deadline the {@link System#nanoTime()} by which the lookup must have completed
+     * @throws LookupTimeoutException if the deadline passes first; the lookup is left to the caller to cancel
      */
-    public void deleteExpense(String id) {
-        repository.deleteById(id);
+    private static <T> T awaitUntil(Future<T> future, long deadline, String name) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new LookupTimeoutException(name + " timed out", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(name + " interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(name + " failed", e.getCause());
+        }
+    }
+
+    /**
+     * A currency or weather lookup missed its deadline.
+     */
+    static class LookupTimeoutException extends RuntimeException {
+        LookupTimeoutException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * Cuts the {@code limit + 1} expenses fetched for a page down to the page and the cursor of the next one.
+     */
+    static <T> ExpensePage<T> toPage(List<T> fetched, int limit, Function<T, String> idOf) {
+        if (fetched.size() <= limit) {
+            return new ExpensePage<>(fetched, null);
+        }
+        List<T> page = fetched.subList(0, limit);
+        return new ExpensePage<>(page, idOf.apply(page.get(limit - 1)));
+    }
+
+    /**
+     * Query for a page of expenses after {@code cursor} in {@code _id} order, plus one to detect a next page, reading
+     * only {@code fields}. {@code _id} is always read (MongoDB includes it unless excluded) so the cursor can be built.
+     */
+    static Query pageQuery(String cursor, int limit, Set<String> fields) {
+        Query query = cursor == null ? new Query() : Query.query(Criteria.where("id").gt(new ObjectId(cursor)));
+        query.with(Sort.by("id")).limit(limit + 1);
+        query.fields().include(fields.toArray(String[]::new));
+        return query;
+    }
+
+    /**
+     * Query for one expense by ID, reading only {@code fields}.
+     */
+    static Query byIdQuery(String id, Set<String> fields) {
+        Query query = Query.query(Criteria.where("id").is(id));
+        query.fields().include(fields.toArray(String[]::new));
+        return query;
+    }
+
+    /**
+     * Turns the inclusive {@code from}/{@code to} days of a filter into a UTC creation-time range.
+     */
+    private static Range<Instant> dateRange(ExpenseFilter filter) {
+        return Range.of(
+                filter.getFrom() != null
+                        ? Range.Bound.inclusive(filter.getFrom().atStartOfDay(ZoneOffset.UTC).toInstant())
+                        : Range.Bound.unbounded(),
+                filter.getTo() != null
+                        ? Range.Bound.exclusive(filter.getTo().plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant())
+                        : Range.Bound.unbounded()
+        );
+    }
+
+    /**
+     * Normalizes a city name so that "Berlin", "berlin " and "BERLIN" share one weather lookup.
+     */
+    static String cityKey(String city) {
+        return city.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // ============================== Idempotent submissions =========================================
+
+    /**
+     * Outcome of {@link #addExpense(ExpenseRequest, String)}.
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Submission {
+        private Expense expense;
+        /** Whether the expense was saved by an earlier submission with the same idempotency key. */
+        private boolean replayed;
+    }
+
+    /**
+     * Thrown when an idempotency key is sent again with a different expense.
+     */
+    public static class IdempotencyKeyReusedException extends RuntimeException {
+        public IdempotencyKeyReusedException(String idempotencyKey) {
+            super("Idempotency key " + idempotencyKey + " was already used for a different expense");
+        }
     }
 
 
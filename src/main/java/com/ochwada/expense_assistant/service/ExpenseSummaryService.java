@@ -0,0 +1,179 @@
+package com.ochwada.expense_assistant.service;
+
+
+import com.ochwada.expense_assistant.dto.SpendingSummary;
+import com.ochwada.expense_assistant.model.Expense;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.service
+ * File: ExpenseSummaryService.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 1:15 PM
+ * Description: {@code ExpenseSummaryService} computes spending summaries with MongoDB aggregation pipelines.
+ * Objective:
+ * - Group expenses by currency, city or calendar period
+ * - Return totals, counts, averages and percentiles without moving the expenses out of the database
+ * *******************************************************
+ */
+
+@Service
+public class ExpenseSummaryService {
+
+    /**
+     * Percentiles computed for every group, in the order of {@link SpendingSummary#getP50()}, p90 and p99.
+     */
+    private static final List<Double> PERCENTILES = List.of(0.5, 0.9, 0.99);
+
+    /**
+     * Template used to run aggregation pipelines on the "expenses" collection.
+     */
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * ExpenseSummaryService with required dependencies.
+     *
+     * @param mongoTemplate the {@link MongoTemplate} used to run aggregations
+     */
+    public ExpenseSummaryService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Summarizes the converted amounts of all expenses recorded in {@code [from, to)}, grouped by {@code groupBy}.
+     * <p>
+     * Groups are additionally split by home currency so that every total is expressed in a single currency. The
+     * percentiles use MongoDB's approximate {@code $percentile} accumulator (MongoDB 7.0+).
+     *
+     * @param groupBy how to group the expenses
+     * @param from    inclusive lower bound on {@code createdAt}, or {@code null} for no lower bound
+     * @param to      exclusive upper bound on {@code createdAt}, or {@code null} for no upper bound
+     * @return one {@link SpendingSummary} per group, ordered by key
+     */
+    public List<SpendingSummary> summarize(GroupBy groupBy, Instant from, Instant to) {
+        List<AggregationOperation> stages = new ArrayList<>();
+
+        // -- filter on the creation date (served by the createdAt index), skipping expenses not yet converted
+        Document range = new Document();
+        if (from != null) {
+            range.append("$gte", from);
+        }
+        if (to != null) {
+            range.append("$lt", to);
+        }
+        Document match = new Document("convertedAmount", new Document("$exists", true));
+        if (!range.isEmpty()) {
+            match.append("createdAt", range);
+        }
+        stages.add(context -> new Document("$match", match));
+
+        // -- group and accumulate
+        stages.add(context -> new Document("$group", new Document()
+                .append("_id", new Document("key", groupBy.keyExpression("$createdAt"))
+                        .append("currency", "$homeCurrency"))
+                .append("count", new Document("$sum", 1))
+                .append("total", new Document("$sum", "$convertedAmount"))
+                .append("average", new Document("$avg", "$convertedAmount"))
+                .append("min", new Document("$min", "$convertedAmount"))
+                .append("max", new Document("$max", "$convertedAmount"))
+                .append("percentiles", new Document("$percentile", new Document()
+                        .append("input", "$convertedAmount")
+                        .append("p", PERCENTILES)
+                        .append("method", "approximate")))));
+
+        // -- order by group key
+        stages.add(context -> new Document("$sort", new Document("_id.key", 1).append("_id.currency", 1)));
+
+        String collection = mongoTemplate.getCollectionName(Expense.class);
+        List<Document> groups = mongoTemplate
+                .aggregate(Aggregation.newAggregation(stages), collection, Document.class)
+                .getMappedResults();
+
+        List<SpendingSummary> summaries = new ArrayList<>(groups.size());
+        for (Document group : groups) {
+            Document id = group.get("_id", Document.class);
+            List<?> percentiles = group.getList("percentiles", Object.class, List.of());
+
+            SpendingSummary summary = new SpendingSummary();
+            summary.setKey(id.getString("key"));
+            summary.setCurrency(id.getString("currency"));
+            summary.setCount(((Number) group.get("count")).longValue());
+            summary.setTotal(number(group.get("total")));
+            summary.setAverage(number(group.get("average")));
+            summary.setMin(number(group.get("min")));
+            summary.setMax(number(group.get("max")));
+            summary.setP50(percentiles.size() > 0 ? number(percentiles.get(0)) : 0.0);
+            summary.setP90(percentiles.size() > 1 ? number(percentiles.get(1)) : 0.0);
+            summary.setP99(percentiles.size() > 2 ? number(percentiles.get(2)) : 0.0);
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    private static double number(Object value) {
+        return value instanceof Number number ? number.doubleValue() : 0;
+    }
+
+    // ============================== GroupBy =========================================
+
+    /**
+     * The dimensions a spending summary can be grouped by. Calendar periods are computed in UTC; weeks start on Monday.
+     */
+    public enum GroupBy {
+        HOME_CURRENCY("homeCurrency"),
+        ORIGINAL_CURRENCY("originalCurrency"),
+        CITY("city"),
+        DAY("day"),
+        WEEK("week"),
+        MONTH("month");
+
+        /**
+         * The value accepted in the {@code groupBy} request parameter.
+         */
+        private final String parameter;
+
+        GroupBy(String parameter) {
+            this.parameter = parameter;
+        }
+
+        /**
+         * Resolves a {@code groupBy} request parameter (e.g., "city", "month").
+         *
+         * @param parameter the request parameter value
+         * @return the matching dimension, or empty if there is none
+         */
+        public static Optional<GroupBy> fromParameter(String parameter) {
+            return Arrays.stream(values()).filter(g -> g.parameter.equalsIgnoreCase(parameter)).findFirst();
+        }
+
+        /**
+         * The aggregation expression producing this dimension's group key.
+         *
+         * @param dateField the date the calendar periods are computed from (e.g., "$createdAt")
+         */
+        Object keyExpression(String dateField) {
+            return switch (this) {
+                case HOME_CURRENCY -> "$homeCurrency";
+                case ORIGINAL_CURRENCY -> "$originalCurrency";
+                case CITY -> "$city";
+                case DAY, WEEK, MONTH -> new Document("$dateToString", new Document()
+                        .append("format", "%Y-%m-%d")
+                        .append("date", new Document("$dateTrunc", new Document()
+                                .append("date", dateField)
+                                .append("unit", parameter)
+                                .append("startOfWeek", "monday"))));
+            };
+        }
+    }
+}
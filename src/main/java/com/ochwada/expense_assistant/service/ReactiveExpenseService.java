@@ -0,0 +1,246 @@
+package com.ochwada.expense_assistant.service;
+
+
+import com.ochwada.expense_assistant.client.CurrencyClient;
+import com.ochwada.expense_assistant.client.ReactiveCurrencyClient;
+import com.ochwada.expense_assistant.client.ReactiveWeatherClient;
+import com.ochwada.expense_assistant.client.WeatherClient;
+import com.ochwada.expense_assistant.dto.ExpenseChangeEvent;
+import com.ochwada.expense_assistant.dto.ExpensePage;
+import com.ochwada.expense_assistant.dto.ExpenseRequest;
+import com.ochwada.expense_assistant.dto.ExpenseSummary;
+import com.ochwada.expense_assistant.model.Expense;
+import com.ochwada.expense_assistant.repository.ReactiveExpenseRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.service
+ * File: ReactiveExpenseService.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 3:30 PM
+ * Description: {@code ReactiveExpenseService} is the non-blocking counterpart of {@link ExpenseService}, used by the
+ * "reactive" profile.
+ * Objective:
+ * - Apply the same enrichment rules as {@link ExpenseService} without tying up a thread per request
+ * *******************************************************
+ */
+
+@Service
+@Profile("reactive")
+public class ReactiveExpenseService {
+
+    private final ReactiveExpenseRepository repository;
+
+    private final ReactiveCurrencyClient currencyClient;
+
+    private final ReactiveWeatherClient weatherClient;
+
+    /**
+     * Blocking rollup maintenance, called on the bounded-elastic scheduler.
+     */
+    private final ExpenseRollupService rollupService;
+
+    /**
+     * Runs the reads that select fields at request time.
+     */
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final ExpenseChangeFeed changeFeed;
+
+    private final ExpenseCache expenseCache;
+
+    /**
+     * Deadline for the exchange-rate lookup. The expense cannot be saved without it.
+     */
+    @Value("${app.enrichment.currency-timeout:5s}")
+    private Duration currencyTimeout;
+
+    /**
+     * Deadline for the weather lookup. When it passes, the expense is saved with weather marked as unavailable.
+     */
+    @Value("${app.enrichment.weather-timeout:3s}")
+    private Duration weatherTimeout;
+
+    /**
+     * ReactiveExpenseService with required dependencies.
+     *
+     * @param repository     the {@link ReactiveExpenseRepository} used for database operations
+     * @param currencyClient the {@link ReactiveCurrencyClient} used to retrieve exchange rates
+     * @param weatherClient  the {@link ReactiveWeatherClient} used to retrieve the weather data
+     * @param rollupService  the service maintaining the spending rollups
+     * @param mongoTemplate  the template running field-selecting reads
+     * @param changeFeed     the feed notified of created and deleted expenses
+     * @param expenseCache   the in-process cache of single expenses, shared with the blocking stack
+     */
+    public ReactiveExpenseService(ReactiveExpenseRepository repository,
+                                  ReactiveCurrencyClient currencyClient,
+                                  ReactiveWeatherClient weatherClient,
+                                  ExpenseRollupService rollupService,
+                                  ReactiveMongoTemplate mongoTemplate,
+                                  ExpenseChangeFeed changeFeed,
+                                  ExpenseCache expenseCache) {
+        this.repository = repository;
+        this.currencyClient = currencyClient;
+        this.weatherClient = weatherClient;
+        this.rollupService = rollupService;
+        this.mongoTemplate = mongoTemplate;
+        this.changeFeed = changeFeed;
+        this.expenseCache = expenseCache;
+    }
+
+    /**
+     * Enriches and saves an expense, with the same rules as {@link ExpenseService#addExpense}. Both lookups are
+     * subscribed to at once, each through the circuit breaker, bulkhead and time limiter of its API and with its last
+     * known value as fallback. A weather lookup that misses its deadline, or fails while
+     * {@code openweather.fallback.enabled} is set, yields weather "unavailable" instead of an error. A lookup past its
+     * deadline is cancelled.
+     *
+     * @param request the {@link ExpenseRequest} DTO to be saved
+     * @return the saved {@link Expense}
+     */
+    public Mono<Expense> addExpense(ExpenseRequest request) {
+        return create(request, null);
+    }
+
+    /**
+     * Saves an expense at most once per {@code Idempotency-Key}; see {@link ExpenseService#addExpense(ExpenseRequest,
+     * String)}. Concurrent duplicates are not coalesced in memory here: each one is enriched, and the unique
+     * {@code idempotencyKey} index lets only the first insert succeed.
+     *
+     * @param request        the {@link ExpenseRequest} DTO to be saved
+     * @param idempotencyKey the client's key for this submission, or {@code null} to always save a new expense
+     * @return the saved expense, and whether it was saved by an earlier submission with the same key; errors with
+     * {@link ExpenseService.IdempotencyKeyReusedException} if the key was used for a different expense
+     */
+    public Mono<ExpenseService.Submission> addExpense(ExpenseRequest request, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return addExpense(request).map(saved -> new ExpenseService.Submission(saved, false));
+        }
+        return repository.findByIdempotencyKey(idempotencyKey)
+                .map(existing -> ExpenseService.replay(existing, request))
+                .switchIfEmpty(Mono.defer(() -> create(request, idempotencyKey)
+                        .map(saved -> new ExpenseService.Submission(saved, false))
+                        .onErrorResume(DuplicateKeyException.class, e -> repository
+                                .findByIdempotencyKey(idempotencyKey)
+                                .map(winner -> ExpenseService.replay(winner, request)))));
+    }
+
+    private Mono<Expense> create(ExpenseRequest request, String idempotencyKey) {
+        Mono<CurrencyClient.CurrencyData> currency = currencyClient
+                .getExchangeRate(request.getAmount(), request.getCurrency())
+                .timeout(currencyTimeout, Mono.error(() -> new RuntimeException("Currency lookup timed out")));
+        Mono<Optional<WeatherClient.WeatherData>> weather = weatherClient
+                .getWeatherForCity(request.getCity())
+                .map(Optional::of)
+                .timeout(weatherTimeout, Mono.just(Optional.empty()))
+                .onErrorResume(e -> weatherClient.isFallbackEnabled(), e -> Mono.just(Optional.empty()));
+
+        return Mono.zip(currency, weather)
+                .map(t -> ExpenseService.toExpense(request, t.getT1(), t.getT2().orElse(null)))
+                .doOnNext(expense -> expense.setIdempotencyKey(idempotencyKey))
+                .flatMap(repository::insert)
+                .flatMap(saved -> Mono.fromRunnable(() -> rollupService.record(List.of(saved)))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .thenReturn(saved))
+                .doOnNext(saved -> changeFeed.local(List.of(saved), ExpenseChangeEvent::created));
+    }
+
+    /**
+     * Retrieves one page of expenses in {@code _id} order; see {@link ExpenseService#getExpenses}.
+     */
+    public Mono<ExpensePage<Expense>> getExpenses(String cursor, int limit) {
+        // Fetch one extra expense to learn whether another page follows
+        Limit fetch = Limit.of(limit + 1);
+        Flux<Expense> expenses = cursor == null
+                ? repository.findAllByOrderByIdAsc(fetch)
+                : repository.findByIdGreaterThanOrderByIdAsc(cursor, fetch);
+        return expenses.collectList().map(list -> ExpenseService.toPage(list, limit, Expense::getId));
+    }
+
+    /**
+     * Retrieves one page of expenses with only the given fields read; see
+     * {@link ExpenseService#getExpenses(String, int, Set)}.
+     */
+    public Mono<ExpensePage<Expense>> getExpenses(String cursor, int limit, Set<String> fields) {
+        if (fields == null) {
+            return getExpenses(cursor, limit);
+        }
+        return mongoTemplate.find(ExpenseService.pageQuery(cursor, limit, fields), Expense.class)
+                .collectList()
+                .map(list -> ExpenseService.toPage(list, limit, Expense::getId));
+    }
+
+    /**
+     * Retrieves one page of {@link ExpenseSummary} views; see {@link ExpenseService#getExpenseSummaries}.
+     */
+    public Mono<ExpensePage<ExpenseSummary>> getExpenseSummaries(String cursor, int limit) {
+        Limit fetch = Limit.of(limit + 1);
+        Flux<ExpenseSummary> summaries = cursor == null
+                ? repository.findSummariesByOrderByIdAsc(fetch)
+                : repository.findSummariesByIdGreaterThanOrderByIdAsc(cursor, fetch);
+        return summaries.collectList().map(list -> ExpenseService.toPage(list, limit, ExpenseSummary::getId));
+    }
+
+    /**
+     * Emits every expense as the MongoDB cursor yields it.
+     */
+    public Flux<Expense> streamExpenses() {
+        return repository.findAll();
+    }
+
+    /**
+     * Retrieves an expense from the in-process {@link ExpenseCache}, or reads it and caches it. The second cache tier
+     * is left out: its client blocks.
+     */
+    public Mono<Expense> getExpenseById(String id) {
+        return Mono.justOrEmpty(expenseCache.getIfPresent(id))
+                .switchIfEmpty(Mono.defer(() -> {
+                    long ticket = expenseCache.ticket();
+                    return repository.findById(id).doOnNext(found -> expenseCache.putIfUnchanged(found, ticket));
+                }));
+    }
+
+    /**
+     * Retrieves an expense with only the given fields read; see {@link ExpenseService#getExpenseById(String, Set)}.
+     */
+    public Mono<Expense> getExpenseById(String id, Set<String> fields) {
+        if (fields == null) {
+            return getExpenseById(id);
+        }
+        return Mono.justOrEmpty(expenseCache.getIfPresent(id))
+                .switchIfEmpty(mongoTemplate.findOne(ExpenseService.byIdQuery(id, fields), Expense.class));
+    }
+
+    /**
+     * Retrieves the {@link ExpenseSummary} view of an expense, reading only its fields.
+     */
+    public Mono<ExpenseSummary> getExpenseSummaryById(String id) {
+        return repository.findSummaryById(id);
+    }
+
+    /**
+     * Deletes an expense and removes it from the spending rollups; see {@link ExpenseService#deleteExpense}.
+     */
+    public Mono<Void> deleteExpense(String id) {
+        return repository.removeById(id)
+                .flatMap(removed -> Mono.fromRunnable(() -> rollupService.retract(removed))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .thenReturn(removed))
+                .doOnNext(removed -> changeFeed.local(List.of(removed.getId()), ExpenseChangeEvent::deleted))
+                .then();
+    }
+}
@@ -0,0 +1,144 @@
+package com.ochwada.expense_assistant.service;
+
+
+import com.ochwada.expense_assistant.client.CurrencyClient;
+import com.ochwada.expense_assistant.client.RateTable;
+import com.ochwada.expense_assistant.client.WeatherClient;
+import com.ochwada.expense_assistant.model.UpstreamSnapshot;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * *******************************************************
+ * Package: com.ochwada.expense_assistant.service
+ * File: UpstreamSnapshotService.java
+ * Author: Ochwada
+ * Date: Sunday, 18.Oct.2026, 8:50 PM
+ * Description: Saves the exchange-rate table and the hottest weather entries to MongoDB and restores them at startup,
+ * so that a restarted instance does not begin with cold currency and weather state.
+ * Objective:
+ * - Restore the snapshot before the application reports ready (runners complete before the readiness state changes
+ * to ACCEPTING_TRAFFIC)
+ * - Save it on a fixed interval and on shutdown
+ * *******************************************************
+ */
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.snapshot.enabled", havingValue = "true", matchIfMissing = true)
+public class UpstreamSnapshotService implements ApplicationRunner {
+
+    private final MongoTemplate mongoTemplate;
+
+    private final CurrencyClient currencyClient;
+
+    private final WeatherClient weatherClient;
+
+    /**
+     * Maximum number of cities whose weather is saved, most frequently fetched first.
+     */
+    @Value("${app.snapshot.weather-entries:200}")
+    private int weatherEntries;
+
+    public UpstreamSnapshotService(MongoTemplate mongoTemplate, CurrencyClient currencyClient,
+                                   WeatherClient weatherClient) {
+        this.mongoTemplate = mongoTemplate;
+        this.currencyClient = currencyClient;
+        this.weatherClient = weatherClient;
+    }
+
+    /**
+     * Restores the saved snapshot at startup. A rate table newer than the saved one (from a refresh that already
+     * finished) and weather fetched since startup are kept. A missing or unreadable snapshot only means a cold start.
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            UpstreamSnapshot snapshot = mongoTemplate.findById(UpstreamSnapshot.LATEST, UpstreamSnapshot.class);
+            if (snapshot == null) {
+                log.info("No upstream snapshot found, starting with empty currency and weather caches");
+                return;
+            }
+            restore(snapshot);
+        } catch (RuntimeException e) {
+            log.warn("Could not restore the upstream snapshot, starting with empty caches: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Saves the current rate table and hottest weather every {@code app.snapshot.interval}.
+     */
+    @Scheduled(fixedDelayString = "${app.snapshot.interval:5m}", initialDelayString = "${app.snapshot.interval:5m}")
+    public void scheduledSave() {
+        try {
+            save();
+        } catch (RuntimeException e) {
+            log.warn("Could not save the upstream snapshot: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Saves a final snapshot while MongoDB is still available, so that the next start is as warm as possible.
+     */
+    @PreDestroy
+    void saveOnShutdown() {
+        scheduledSave();
+    }
+
+    /**
+     * Overwrites the snapshot document with the current rate table and the last known weather of the hottest cities.
+     * Nothing is written while both are empty, so an instance that never reached the upstreams does not erase the
+     * previous snapshot.
+     *
+     * @return the saved snapshot, or empty if there was nothing to save
+     */
+    public Optional<UpstreamSnapshot> save() {
+        Optional<RateTable> table = currencyClient.getRateTable();
+        List<UpstreamSnapshot.CityWeather> weather = weatherClient.getHottestWeather(weatherEntries).stream()
+                .map(known -> new UpstreamSnapshot.CityWeather(known.getCity(), known.getWeather().getWeather(),
+                        known.getWeather().getTemperature(), known.getFetchedAt()))
+                .toList();
+        if (table.isEmpty() && weather.isEmpty()) {
+            return Optional.empty();
+        }
+
+        UpstreamSnapshot snapshot = new UpstreamSnapshot(UpstreamSnapshot.LATEST, Instant.now(),
+                table.map(RateTable::getBaseCurrency).orElse(null),
+                table.map(RateTable::getRates).orElse(null),
+                table.map(RateTable::getFetchedAt).orElse(null),
+                weather);
+        mongoTemplate.save(snapshot);
+        log.debug("Saved upstream snapshot with {} rates and {} cities",
+                table.map(t -> t.getRates().size()).orElse(0), weather.size());
+        return Optional.of(snapshot);
+    }
+
+    private void restore(UpstreamSnapshot snapshot) {
+        if (snapshot.getRates() != null && !snapshot.getRates().isEmpty()) {
+            // A table quoted against another base (the home currency was changed) would convert to the wrong currency
+            if (snapshot.getBaseCurrency().equalsIgnoreCase(currencyClient.getTargetCurrency())) {
+                currencyClient.restoreRateTable(new RateTable(snapshot.getBaseCurrency(), snapshot.getRates(),
+                        snapshot.getRatesFetchedAt()));
+            }
+        }
+        if (snapshot.getWeather() != null) {
+            snapshot.getWeather().forEach(city -> weatherClient.restoreWeather(new WeatherClient.KnownWeather(
+                    city.getCity(), new WeatherClient.WeatherData(city.getWeather(), city.getTemperature()),
+                    city.getFetchedAt())));
+        }
+        log.info("Restored upstream snapshot saved at {}: {} rates fetched at {}, weather for {} cities",
+                snapshot.getSavedAt(), snapshot.getRates() == null ? 0 : snapshot.getRates().size(),
+                snapshot.getRatesFetchedAt(), snapshot.getWeather() == null ? 0 : snapshot.getWeather().size());
+    }
+}
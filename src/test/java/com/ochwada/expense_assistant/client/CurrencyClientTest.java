@@ -0,0 +1,135 @@
+package com.ochwada.expense_assistant.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class CurrencyClientTest {
+
+    private static final String EUR_URL = "http://currency.test/latest?apikey=key&base_currency=EUR&currencies=USD";
+
+    private MockRestServiceServer server;
+    private CurrencyClient client;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        RestTemplate template = new RestTemplate();
+        server = MockRestServiceServer.bindTo(template).build();
+
+        registry = new SimpleMeterRegistry();
+        UpstreamGuard guard = new UpstreamGuard("currency", CircuitBreakerRegistry.ofDefaults(),
+                BulkheadRegistry.ofDefaults(), TimeLimiterRegistry.ofDefaults(), Runnable::run);
+        client = new CurrencyClient(template, new ObjectMapper(), registry, guard);
+        ReflectionTestUtils.setField(client, "apiKey", "key");
+        ReflectionTestUtils.setField(client, "apiUrl", "http://currency.test/latest");
+        ReflectionTestUtils.setField(client, "defaultTargetCurrency", "USD");
+        ReflectionTestUtils.setField(client, "cacheTtl", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(client, "cacheMaxSize", 10L);
+        ReflectionTestUtils.setField(client, "rateTableMaxAge", Duration.ofHours(3));
+        client.initRateCache();
+    }
+
+    @Test
+    void repeatedLookupsForSamePairHitUpstreamOnce() {
+        server.expect(ExpectedCount.once(), requestTo(EUR_URL))
+                .andRespond(withSuccess("{\"data\":{\"USD\":1.1}}", MediaType.APPLICATION_JSON));
+
+        CurrencyClient.CurrencyData first = client.getExchangeRate(100, "EUR");
+        CurrencyClient.CurrencyData second = client.getExchangeRate(50, "eur");
+
+        assertThat(first.getConvertedAmount()).isCloseTo(110.0, within(1e-9));
+        assertThat(second.getExchangeRate()).isEqualTo(1.1);
+        assertThat(second.getSourceCurrency()).isEqualTo("EUR");
+        server.verify();
+    }
+
+    @Test
+    void failedLookupIsNotCached() {
+        server.expect(ExpectedCount.once(), requestTo(EUR_URL)).andRespond(withServerError());
+        server.expect(ExpectedCount.once(), requestTo(EUR_URL))
+                .andRespond(withSuccess("{\"data\":{\"USD\":1.2}}", MediaType.APPLICATION_JSON));
+
+        assertThatThrownBy(() -> client.getRate("EUR")).isInstanceOf(RuntimeException.class);
+        assertThat(client.getRate("EUR")).isEqualTo(1.2);
+        server.verify();
+        assertThat(registry.get("upstream.failures").tags("upstream", "currency", "reason", "server_error")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void refreshedRateTableAnswersAnyPairWithoutUpstreamCalls() {
+        server.expect(ExpectedCount.once(), requestTo("http://currency.test/latest?apikey=key&base_currency=USD"))
+                .andRespond(withSuccess("{\"data\":{\"EUR\":0.9,\"GBP\":0.8,\"USD\":1}}", MediaType.APPLICATION_JSON));
+
+        client.refreshRateTable();
+
+        assertThat(client.getRate("EUR")).isCloseTo(1 / 0.9, within(1e-9));
+        assertThat(client.getRate("GBP", "EUR")).isCloseTo(0.9 / 0.8, within(1e-9));
+        server.verify();
+    }
+
+    @Test
+    void failedLookupFallsBackToLastKnownRate() {
+        ReflectionTestUtils.setField(client, "fallbackEnabled", true);
+        ReflectionTestUtils.setField(client, "cacheTtl", Duration.ZERO);
+        client.initRateCache();
+        server.expect(ExpectedCount.once(), requestTo(EUR_URL))
+                .andRespond(withSuccess("{\"data\":{\"USD\":1.1}}", MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(), requestTo(EUR_URL)).andRespond(withServerError());
+
+        assertThat(client.getRate("EUR")).isEqualTo(1.1);
+        assertThat(client.getRate("EUR")).isEqualTo(1.1);
+        server.verify();
+        assertThat(registry.get("upstream.fallbacks").tags("upstream", "currency").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void restoredRateTableIsTheFallbackWhenUpstreamIsDownAtBoot() {
+        ReflectionTestUtils.setField(client, "fallbackEnabled", true);
+        client.restoreRateTable(new RateTable("USD", Map.of("EUR", 0.8), Instant.now().minus(Duration.ofDays(1))));
+        server.expect(ExpectedCount.once(), requestTo(EUR_URL)).andRespond(withServerError());
+
+        // Too old to be used directly, so the rate is fetched, and the failed fetch falls back to the restored table
+        assertThat(client.getRate("EUR")).isCloseTo(1.25, within(1e-9));
+        server.verify();
+
+        client.restoreRateTable(new RateTable("USD", Map.of("EUR", 0.5), Instant.now().minus(Duration.ofDays(2))));
+        assertThat(client.getRateTable()).get().extracting(table -> table.getRates().get("EUR")).isEqualTo(0.8);
+    }
+
+    @Test
+    void currenciesAreMatchedWhateverTheirCase() throws Exception {
+        String body = "{\"data\":{\"EUR\":0.9}}";
+        assertThat(CurrencyClient.parseRate(new ObjectMapper().getFactory(),
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), "eur")).isEqualTo(0.9);
+
+        assertThat(client.isQuoted("XYZ")).isTrue();
+        client.restoreRateTable(new RateTable("USD", Map.of("EUR", 0.9), Instant.now()));
+        assertThat(client.isQuoted("eur")).isTrue();
+        assertThat(client.isQuoted("usd")).isTrue();
+        assertThat(client.isQuoted("XYZ")).isFalse();
+    }
+}
@@ -0,0 +1,162 @@
+package com.ochwada.expense_assistant.controller;
+
+import com.ochwada.expense_assistant.client.CurrencyClient;
+import com.ochwada.expense_assistant.client.WeatherClient;
+import com.ochwada.expense_assistant.model.Expense;
+import com.ochwada.expense_assistant.repository.ExpenseRepository;
+import com.ochwada.expense_assistant.service.CurrencyConversionService;
+import com.ochwada.expense_assistant.service.ExpenseCache;
+import com.ochwada.expense_assistant.service.ExpenseChangeFeed;
+import com.ochwada.expense_assistant.service.ExpenseDeletionService;
+import com.ochwada.expense_assistant.service.ExpenseExportService;
+import com.ochwada.expense_assistant.service.ExpenseImportService;
+import com.ochwada.expense_assistant.service.ExpenseRollupService;
+import com.ochwada.expense_assistant.service.ExpenseService;
+import io.micrometer.observation.ObservationRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ExpenseControllerTest {
+
+    private static final String LUNCH = "{\"amount\":100,\"currency\":\"EUR\",\"city\":\"Berlin\",\"description\":\"Lunch\"}";
+
+    private ExpenseRepository repository;
+    private CurrencyClient currencyClient;
+    private ExecutorService executor;
+    private MockMvc mvc;
+
+    /**
+     * The expense saved under the idempotency key, standing in for the unique index.
+     */
+    private final AtomicReference<Expense> saved = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ExpenseRepository.class);
+        currencyClient = mock(CurrencyClient.class);
+        WeatherClient weatherClient = mock(WeatherClient.class);
+        executor = Executors.newFixedThreadPool(4);
+        ExpenseService service = new ExpenseService(repository, currencyClient, weatherClient, executor,
+                ObservationRegistry.NOOP, mock(ExpenseRollupService.class), mock(MongoTemplate.class),
+                mock(ExpenseChangeFeed.class), mock(ExpenseCache.class));
+        ReflectionTestUtils.setField(service, "currencyTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(service, "weatherTimeout", Duration.ofSeconds(3));
+        ReflectionTestUtils.setField(service, "enrichmentMode", "sync");
+        mvc = MockMvcBuilders.standaloneSetup(new ExpenseController(service, mock(ExpenseExportService.class),
+                mock(CurrencyConversionService.class), mock(ExpenseChangeFeed.class),
+                mock(ExpenseDeletionService.class), mock(ExpenseImportService.class))).build();
+
+        when(currencyClient.getExchangeRate(anyDouble(), any())).thenAnswer(call -> new CurrencyClient.CurrencyData(
+                call.getArgument(1), "USD", call.getArgument(0), 1.1, 1.1 * (double) call.getArgument(0)));
+        when(weatherClient.getWeatherForCity(any())).thenReturn(new WeatherClient.WeatherData("clear sky", 21.5));
+        when(repository.findByIdempotencyKey(any())).thenAnswer(call -> Optional.ofNullable(saved.get()));
+        when(repository.insert(any(Expense.class))).thenAnswer(call -> {
+            Expense expense = call.getArgument(0);
+            expense.setId(new ObjectId().toHexString());
+            if (!saved.compareAndSet(null, expense)) {
+                throw new DuplicateKeyException("idempotencyKey");
+            }
+            return expense;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentDuplicateIsReplayedWithoutItsOwnLookup() throws Exception {
+        CountDownLatch lookupStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(currencyClient.getExchangeRate(anyDouble(), any())).thenAnswer(call -> {
+            lookupStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new CurrencyClient.CurrencyData("EUR", "USD", 100, 1.1, 110);
+        });
+
+        List<MvcResult> results = new ArrayList<>();
+        Thread first = submit(results);
+        assertThat(lookupStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread second = submit(results);
+        // The duplicate parks on the first submission's result
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (second.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        first.join();
+        second.join();
+
+        assertThat(results).hasSize(2).allSatisfy(result -> assertThat(result.getResponse().getStatus()).isEqualTo(200));
+        assertThat(results).extracting(result -> result.getResponse().getHeader("Idempotent-Replayed"))
+                .containsExactlyInAnyOrder(null, "true");
+        assertThat(results).extracting(result -> result.getResponse().getContentAsString())
+                .allSatisfy(body -> assertThat(body).contains(saved.get().getId()));
+        verify(repository, times(1)).insert(any(Expense.class));
+        verify(currencyClient, times(1)).getExchangeRate(anyDouble(), any());
+    }
+
+    @Test
+    void keyReusedForAnotherExpenseIsRejected() throws Exception {
+        mvc.perform(post("/api/expenses").header("Idempotency-Key", "k-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(LUNCH))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+
+        mvc.perform(post("/api/expenses").header("Idempotency-Key", "k-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(LUNCH.replace("100", "120")))
+                .andExpect(status().isUnprocessableEntity());
+        mvc.perform(post("/api/expenses").header("Idempotency-Key", "k-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(LUNCH))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"));
+        verify(repository, times(1)).insert(any(Expense.class));
+    }
+
+    private Thread submit(List<MvcResult> results) {
+        Thread thread = new Thread(() -> {
+            try {
+                MvcResult result = mvc.perform(post("/api/expenses").header("Idempotency-Key", "k-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(LUNCH)).andReturn();
+                synchronized (results) {
+                    results.add(result);
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+}
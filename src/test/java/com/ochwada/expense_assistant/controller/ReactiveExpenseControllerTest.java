@@ -0,0 +1,121 @@
+package com.ochwada.expense_assistant.controller;
+
+import com.ochwada.expense_assistant.client.CurrencyClient;
+import com.ochwada.expense_assistant.client.ReactiveCurrencyClient;
+import com.ochwada.expense_assistant.client.ReactiveWeatherClient;
+import com.ochwada.expense_assistant.client.WeatherClient;
+import com.ochwada.expense_assistant.model.Expense;
+import com.ochwada.expense_assistant.repository.ReactiveExpenseRepository;
+import com.ochwada.expense_assistant.service.CurrencyConversionService;
+import com.ochwada.expense_assistant.service.ExpenseCache;
+import com.ochwada.expense_assistant.service.ExpenseChangeFeed;
+import com.ochwada.expense_assistant.service.ExpenseDeletionService;
+import com.ochwada.expense_assistant.service.ExpenseExportService;
+import com.ochwada.expense_assistant.service.ExpenseImportService;
+import com.ochwada.expense_assistant.service.ExpenseRollupService;
+import com.ochwada.expense_assistant.service.ExpenseService;
+import com.ochwada.expense_assistant.service.ReactiveExpenseService;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveExpenseControllerTest {
+
+    private static final String LUNCH = "{\"amount\":100,\"currency\":\"EUR\",\"city\":\"Berlin\",\"description\":\"Lunch\"}";
+
+    private ReactiveExpenseRepository repository;
+    private ReactiveCurrencyClient currencyClient;
+    private WebTestClient client;
+
+    /**
+     * The expense saved under the idempotency key, standing in for the unique index.
+     */
+    private final AtomicReference<Expense> saved = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ReactiveExpenseRepository.class);
+        currencyClient = mock(ReactiveCurrencyClient.class);
+        ReactiveWeatherClient weatherClient = mock(ReactiveWeatherClient.class);
+        ReactiveExpenseService service = new ReactiveExpenseService(repository, currencyClient, weatherClient,
+                mock(ExpenseRollupService.class), mock(ReactiveMongoTemplate.class), mock(ExpenseChangeFeed.class),
+                mock(ExpenseCache.class));
+        ReflectionTestUtils.setField(service, "currencyTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(service, "weatherTimeout", Duration.ofSeconds(3));
+        client = WebTestClient.bindToController(new ReactiveExpenseController(service, mock(ExpenseService.class),
+                mock(CurrencyConversionService.class), mock(ExpenseChangeFeed.class),
+                mock(ExpenseDeletionService.class), mock(ExpenseExportService.class),
+                mock(ExpenseImportService.class))).build();
+
+        // Slow enough for both submissions to find no expense under the key before either inserts
+        when(currencyClient.getExchangeRate(anyDouble(), any())).thenAnswer(call -> Mono.delay(Duration.ofMillis(200))
+                .thenReturn(new CurrencyClient.CurrencyData("EUR", "USD", call.getArgument(0), 1.1,
+                        1.1 * (double) call.getArgument(0))));
+        when(weatherClient.getWeatherForCity(any()))
+                .thenReturn(Mono.just(new WeatherClient.WeatherData("clear sky", 21.5)));
+        when(repository.findByIdempotencyKey(any())).thenAnswer(call -> Mono.fromSupplier(saved::get));
+        when(repository.insert(any(Expense.class))).thenAnswer(call -> Mono.fromCallable(() -> {
+            Expense expense = call.getArgument(0);
+            expense.setId(new ObjectId().toHexString());
+            if (!saved.compareAndSet(null, expense)) {
+                throw new DuplicateKeyException("idempotencyKey");
+            }
+            return expense;
+        }));
+    }
+
+    @Test
+    void concurrentDuplicateIsReplayedFromTheWinningInsert() {
+        CompletableFuture<EntityExchangeResult<Expense>> first = CompletableFuture.supplyAsync(this::submit);
+        CompletableFuture<EntityExchangeResult<Expense>> second = CompletableFuture.supplyAsync(this::submit);
+        List<EntityExchangeResult<Expense>> results = List.of(first.join(), second.join());
+
+        assertThat(results).extracting(result -> result.getResponseHeaders().getFirst("Idempotent-Replayed"))
+                .containsExactlyInAnyOrder(null, "true");
+        assertThat(results).extracting(result -> result.getResponseBody().getId())
+                .containsOnly(saved.get().getId());
+        // Unlike the blocking service, concurrent duplicates are not coalesced before the insert
+        verify(repository, times(2)).insert(any(Expense.class));
+    }
+
+    @Test
+    void keyReusedForAnotherExpenseIsRejected() {
+        submit();
+
+        client.post().uri("/api/expenses").header("Idempotency-Key", "k-1")
+                .contentType(MediaType.APPLICATION_JSON).bodyValue(LUNCH.replace("100", "120"))
+                .exchange()
+                .expectStatus().isEqualTo(422);
+        assertThat(submit().getResponseHeaders().getFirst("Idempotent-Replayed")).isEqualTo("true");
+        verify(repository, times(1)).insert(any(Expense.class));
+    }
+
+    private EntityExchangeResult<Expense> submit() {
+        return client.post().uri("/api/expenses").header("Idempotency-Key", "k-1")
+                .contentType(MediaType.APPLICATION_JSON).bodyValue(LUNCH)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Expense.class)
+                .returnResult();
+    }
+}
@@ -0,0 +1,136 @@
+package com.ochwada.expense_assistant.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ochwada.expense_assistant.client.HttpExpenseCacheTier;
+import com.ochwada.expense_assistant.dto.ExpenseChangeEvent;
+import com.ochwada.expense_assistant.model.EnrichmentStatus;
+import com.ochwada.expense_assistant.model.Expense;
+import com.ochwada.expense_assistant.repository.ExpenseRepository;
+import com.ochwada.expense_assistant.support.StubUpstreamServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExpenseCacheTest {
+
+    private static final String ID = "66a0c0ffee0000000000beef";
+
+    private StubUpstreamServer stub;
+    private ExpenseRepository repository;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = new StubUpstreamServer(0);
+        repository = mock(ExpenseRepository.class);
+        registry = new SimpleMeterRegistry();
+        when(repository.findById(ID)).thenReturn(Optional.of(expense(EnrichmentStatus.COMPLETED)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void repeatedReadsHitMongoOnceAndHandOutCopies() {
+        ExpenseCache cache = cache(false);
+
+        Expense first = cache.findById(ID).orElseThrow();
+        first.setConvertedAmount(1.0);
+        Expense second = cache.findById(ID).orElseThrow();
+
+        verify(repository, times(1)).findById(ID);
+        assertThat(second.getConvertedAmount()).isEqualTo(108.7);
+        assertThat(registry.get("cache.gets").tags("cache", "expenses", "result", "hit").functionCounter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void changeEventsInvalidateBothTiers() {
+        ExpenseCache cache = cache(true);
+        cache.findById(ID);
+        assertThat(stub.cacheKeys()).containsExactly(ID);
+
+        cache.onChange(ExpenseChangeEvent.deleted(ID));
+        cache.findById(ID);
+
+        verify(repository, times(2)).findById(ID);
+        assertThat(cache.getIfPresent(ID)).isPresent();
+    }
+
+    @Test
+    void secondTierServesAnInstanceWithAColdCache() {
+        cache(true).findById(ID);
+
+        Optional<Expense> fromTier = cache(true).findById(ID);
+
+        verify(repository, times(1)).findById(ID);
+        assertThat(fromTier).get().extracting(Expense::getCity).isEqualTo("Berlin");
+        assertThat(registry.get("expense.cache.tier").tag("result", "hit").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void failingSecondTierFallsBackToMongo() {
+        stub.withErrorRate(1.0);
+        ExpenseCache cache = cache(true);
+
+        assertThat(cache.findById(ID)).isPresent();
+
+        verify(repository, times(1)).findById(ID);
+        assertThat(registry.get("expense.cache.tier").tag("result", "error").counter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void pendingExpensesAreNotCached() {
+        when(repository.findById(ID)).thenReturn(Optional.of(expense(EnrichmentStatus.PENDING)));
+        ExpenseCache cache = cache(false);
+
+        assertThat(cache.findById(ID)).isPresent();
+        assertThat(cache.findById(ID)).isPresent();
+
+        verify(repository, times(2)).findById(ID);
+    }
+
+    private ExpenseCache cache(boolean withSecondTier) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        if (withSecondTier) {
+            ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+            beans.addBean("tier", new HttpExpenseCacheTier(new RestTemplate(), mapper, stub.cacheUrl()));
+        }
+        ExpenseCache cache = new ExpenseCache(repository, registry, beans.getBeanProvider(ExpenseCacheTier.class));
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxSize", 100L);
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofMinutes(5));
+        cache.initCache();
+        return cache;
+    }
+
+    private static Expense expense(EnrichmentStatus status) {
+        Expense expense = new Expense();
+        expense.setId(ID);
+        expense.setOriginalAmount(100);
+        expense.setOriginalCurrency("EUR");
+        expense.setConvertedAmount(108.7);
+        expense.setHomeCurrency("USD");
+        expense.setCity("Berlin");
+        expense.setCreatedAt(Instant.parse("2026-10-18T12:00:00Z"));
+        expense.setEnrichmentStatus(status);
+        return expense;
+    }
+}
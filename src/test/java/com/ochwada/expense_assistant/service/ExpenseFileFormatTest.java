@@ -0,0 +1,78 @@
+package com.ochwada.expense_assistant.service;
+
+import com.ochwada.expense_assistant.model.EnrichmentStatus;
+import com.ochwada.expense_assistant.model.Expense;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExpenseFileFormatTest {
+
+    @Test
+    void csvRoundTripsQuotesLineBreaksAndNulls() throws IOException {
+        List<Expense> expenses = List.of(
+                expense(0, "Dinner, \"fancy\""),
+                expense(1, "Two\r\nlines"),
+                expense(2, ""),
+                expense(3, null));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExpenseCsvFormat.write(expenses.iterator(), out);
+
+        assertThat(readAll(ExpenseCsvFormat.read(new ByteArrayInputStream(out.toByteArray())))).isEqualTo(expenses);
+    }
+
+    @Test
+    void columnarRoundTripsAcrossRowGroups() throws IOException {
+        List<Expense> expenses = IntStream.range(0, 10_000).mapToObj(i -> expense(i, i % 7 == 0 ? null : "Taxi"))
+                .toList();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExpenseColumnarFormat.write(expenses.iterator(), out);
+
+        assertThat(readAll(ExpenseColumnarFormat.read(new ByteArrayInputStream(out.toByteArray()))))
+                .isEqualTo(expenses);
+    }
+
+    @Test
+    void csvReportsTheLineOfAMalformedRow() {
+        String csv = "originalAmount,originalCurrency,city\r\n12.5,EUR,Rome\r\nabc,EUR,Oslo\r\n";
+
+        Iterator<Expense> rows = ExpenseCsvFormat.read(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(rows.next().getCity()).isEqualTo("Rome");
+        assertThatThrownBy(rows::next).isInstanceOf(IllegalArgumentException.class).hasMessageStartingWith("Line 3");
+    }
+
+    private static List<Expense> readAll(Iterator<Expense> rows) {
+        List<Expense> all = new ArrayList<>();
+        rows.forEachRemaining(all::add);
+        return all;
+    }
+
+    private static Expense expense(int i, String description) {
+        Expense expense = new Expense();
+        expense.setId("66a0c0ffee0000000000%04x".formatted(i));
+        expense.setOriginalAmount(10 + i * 0.25);
+        expense.setOriginalCurrency(i % 2 == 0 ? "EUR" : "GBP");
+        expense.setConvertedAmount(i % 5 == 0 ? null : 11.11 + i);
+        expense.setHomeCurrency("USD");
+        expense.setCity(i % 3 == 0 ? "Rome" : "Oslo");
+        expense.setDescription(description);
+        expense.setCreatedAt(Instant.parse("2026-10-18T12:00:00.123Z").plusSeconds(i * 61L));
+        expense.setEnrichmentStatus(i % 5 == 0 ? EnrichmentStatus.PENDING : EnrichmentStatus.COMPLETED);
+        expense.setEnrichmentAttempts(i % 5 == 0 ? i % 4 : null);
+        return expense;
+    }
+}
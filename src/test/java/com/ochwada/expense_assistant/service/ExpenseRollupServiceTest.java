@@ -0,0 +1,175 @@
+package com.ochwada.expense_assistant.service;
+
+import com.mongodb.MongoCommandException;
+import com.ochwada.expense_assistant.model.EnrichmentStatus;
+import com.ochwada.expense_assistant.model.Expense;
+import com.ochwada.expense_assistant.model.ExpenseRollup;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+@SpringBootTest
+class ExpenseRollupServiceTest {
+
+    /**
+     * Home currency of the test expenses (ISO 4217 "for testing"), which keeps their buckets apart from any others.
+     */
+    private static final String HOME_CURRENCY = "XTS";
+
+    private static final Instant DAY = Instant.parse("2001-02-03T00:00:00Z");
+
+    @Autowired
+    private ExpenseRollupService rollupService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final List<Expense> expenses = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        // Amounts that add up exactly, spread over two cities and two currencies
+        String[] cities = {"Berlin", "Paris"};
+        String[] currencies = {"EUR", "GBP"};
+        for (int i = 0; i < 12; i++) {
+            expenses.add(expense(10.5 + 7 * ((i * 5) % 12), cities[i % 2], currencies[(i / 2) % 2],
+                    DAY.plus(Duration.ofMinutes(37L * i))));
+        }
+        mongoTemplate.insertAll(expenses);
+        rollupService.record(expenses);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        mongoTemplate.remove(Query.query(Criteria.where("homeCurrency").is(HOME_CURRENCY)), Expense.class);
+        mongoTemplate.remove(Query.query(Criteria.where("homeCurrency").is(HOME_CURRENCY)), ExpenseRollup.class);
+    }
+
+    @Test
+    void recordedExpensesMatchRebuild() {
+        assertThat(buckets()).hasSize(5).isEqualTo(rebuilt());
+    }
+
+    @Test
+    void retractingExtremesOneByOneMatchesRebuild() {
+        for (int i = 0; i < 3; i++) {
+            retract(List.of(smallest()), false);
+            retract(List.of(largest()), false);
+        }
+
+        assertThat(buckets()).isEqualTo(rebuilt());
+    }
+
+    @Test
+    void retractingExtremesInBulkMatchesRebuild() {
+        for (int i = 0; i < 3; i++) {
+            retract(List.of(smallest(), largest()), true);
+        }
+
+        assertThat(buckets()).isEqualTo(rebuilt());
+    }
+
+    @Test
+    void retractingEveryExpenseRemovesTheBuckets() {
+        retract(List.of(expenses.get(0)), false);
+        retract(List.copyOf(expenses), true);
+
+        assertThat(buckets()).isEmpty();
+    }
+
+    /**
+     * Deletes expenses and retracts them, one call per expense or in one bulk call.
+     */
+    private void retract(List<Expense> deleted, boolean bulk) {
+        for (Expense expense : deleted) {
+            mongoTemplate.remove(expense);
+        }
+        expenses.removeAll(deleted);
+        if (bulk) {
+            rollupService.retract(deleted);
+        } else {
+            deleted.forEach(rollupService::retract);
+        }
+    }
+
+    private Expense smallest() {
+        return expenses.stream().min(Comparator.comparing(Expense::getConvertedAmount)).orElseThrow();
+    }
+
+    private Expense largest() {
+        return expenses.stream().max(Comparator.comparing(Expense::getConvertedAmount)).orElseThrow();
+    }
+
+    /**
+     * The buckets as rebuilt from the remaining expenses.
+     */
+    private Map<String, List<Object>> rebuilt() {
+        assumeTrue(supportsDateTrunc(), "rebuild() needs a server with $dateTrunc (MongoDB 5.0+)");
+        rollupService.rebuild(DAY, DAY.plus(Duration.ofDays(1)));
+        return buckets();
+    }
+
+    /**
+     * Whether the server evaluates {@code $dateTrunc}, which some MongoDB stand-ins lack whatever version they report.
+     */
+    private boolean supportsDateTrunc() {
+        try {
+            mongoTemplate.getCollection(mongoTemplate.getCollectionName(Expense.class)).aggregate(List.of(
+                    new Document("$match", new Document("homeCurrency", HOME_CURRENCY)),
+                    new Document("$limit", 1),
+                    new Document("$project", new Document("day", new Document("$dateTrunc",
+                            new Document("date", "$createdAt").append("unit", "day")))))).first();
+            return true;
+        } catch (MongoCommandException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Count, total, min and max of the test buckets, by dimension and key.
+     */
+    private Map<String, List<Object>> buckets() {
+        Map<String, List<Object>> buckets = new TreeMap<>();
+        for (ExpenseRollup rollup : mongoTemplate.find(
+                Query.query(Criteria.where("homeCurrency").is(HOME_CURRENCY)), ExpenseRollup.class)) {
+            assertThat(rollup.getDay()).isEqualTo(DAY);
+            buckets.put(rollup.getDimension() + "/" + rollup.getKey(),
+                    List.of(rollup.getCount(), rollup.getTotal(), rollup.getMin(), rollup.getMax()));
+        }
+        return buckets;
+    }
+
+    private static Expense expense(double amount, String city, String currency, Instant createdAt) {
+        Expense expense = new Expense();
+        // An assigned ID makes the expense not new, so auditing keeps the given creation time
+        expense.setId(new ObjectId().toHexString());
+        expense.setOriginalAmount(amount);
+        expense.setOriginalCurrency(currency);
+        expense.setConvertedAmount(amount);
+        expense.setHomeCurrency(HOME_CURRENCY);
+        expense.setCity(city);
+        expense.setWeather("clear sky");
+        expense.setEnrichmentStatus(EnrichmentStatus.COMPLETED);
+        expense.setCreatedAt(createdAt);
+        return expense;
+    }
+}
@@ -0,0 +1,120 @@
+package com.ochwada.expense_assistant.service;
+
+import com.ochwada.expense_assistant.client.CurrencyClient;
+import com.ochwada.expense_assistant.client.WeatherClient;
+import com.ochwada.expense_assistant.dto.BatchExpenseResponse;
+import com.ochwada.expense_assistant.dto.ExpenseRequest;
+import com.ochwada.expense_assistant.model.Expense;
+import com.ochwada.expense_assistant.repository.ExpenseRepository;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExpenseServiceTest {
+
+    private ExpenseRepository repository;
+    private CurrencyClient currencyClient;
+    private WeatherClient weatherClient;
+    private ExecutorService executor;
+    private ExpenseService service;
+    private final List<Expense> inserted = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ExpenseRepository.class);
+        currencyClient = mock(CurrencyClient.class);
+        weatherClient = mock(WeatherClient.class);
+        executor = Executors.newFixedThreadPool(4);
+        service = new ExpenseService(repository, currencyClient, weatherClient, executor, ObservationRegistry.NOOP,
+                mock(ExpenseRollupService.class), mock(MongoTemplate.class), mock(ExpenseChangeFeed.class),
+                mock(ExpenseCache.class));
+        ReflectionTestUtils.setField(service, "currencyTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(service, "weatherTimeout", Duration.ofSeconds(3));
+        ReflectionTestUtils.setField(service, "enrichmentMode", "sync");
+        ReflectionTestUtils.setField(service, "batchConcurrency", 8);
+
+        when(currencyClient.getTargetCurrency()).thenReturn("USD");
+        when(weatherClient.getWeatherForCity(any())).thenReturn(new WeatherClient.WeatherData("clear sky", 21.5));
+        when(repository.insert(any(Expense.class))).thenAnswer(call -> {
+            inserted.add(call.getArgument(0));
+            return call.getArgument(0);
+        });
+        when(repository.insert(anyIterable())).thenAnswer(call -> {
+            List<Expense> batch = call.getArgument(0);
+            inserted.addAll(batch);
+            return batch;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void lowerCaseCurrencyIsStoredInUpperCase() {
+        when(currencyClient.getExchangeRate(anyDouble(), any())).thenAnswer(call -> new CurrencyClient.CurrencyData(
+                call.getArgument(1), "USD", call.getArgument(0), 1.1, 1.1 * (double) call.getArgument(0)));
+        when(currencyClient.getRate("EUR")).thenReturn(1.1);
+
+        service.addExpense(request(100, "eur"));
+        BatchExpenseResponse batch = service.addExpenses(List.of(request(20, "eur"), request(30, "EUR")));
+        ReflectionTestUtils.setField(service, "enrichmentMode", "async");
+        service.addExpense(request(40, "eur"));
+
+        assertThat(batch.getCreated()).isEqualTo(2);
+        assertThat(inserted).extracting(Expense::getOriginalCurrency).containsExactly("EUR", "EUR", "EUR", "EUR");
+    }
+
+    @Test
+    void batchWeatherLookupPastItsDeadlineLeavesWeatherUnavailable() {
+        ReflectionTestUtils.setField(service, "weatherTimeout", Duration.ofMillis(300));
+        when(currencyClient.getRate(any())).thenReturn(1.1);
+        when(weatherClient.getWeatherForCity("Oslo")).thenAnswer(call -> {
+            Thread.sleep(10_000);
+            return new WeatherClient.WeatherData("snow", -3);
+        });
+
+        long started = System.nanoTime();
+        BatchExpenseResponse batch = service.addExpenses(
+                List.of(request(20, "EUR", "Berlin"), request(30, "GBP", "Oslo"), request(40, "EUR", "Oslo")));
+
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(5));
+        assertThat(batch.getCreated()).isEqualTo(3);
+        assertThat(inserted).extracting(Expense::getWeather)
+                .containsExactly("clear sky", ExpenseService.WEATHER_UNAVAILABLE, ExpenseService.WEATHER_UNAVAILABLE);
+        verify(weatherClient, times(1)).getWeatherForCity("Oslo");
+        verify(currencyClient, times(1)).getRate("EUR");
+    }
+
+    private static ExpenseRequest request(double amount, String currency) {
+        return request(amount, currency, "Berlin");
+    }
+
+    private static ExpenseRequest request(double amount, String currency, String city) {
+        ExpenseRequest request = new ExpenseRequest();
+        request.setAmount(amount);
+        request.setCurrency(currency);
+        request.setCity(city);
+        request.setDescription("Lunch");
+        return request;
+    }
+}
@@ -0,0 +1,280 @@
+package com.ochwada.expense_assistant.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the FreeCurrency and OpenWeather APIs, for benchmarks and load tests that must run offline.
+ * <p>
+ * {@code GET /currency?base_currency=EUR&currencies=USD} answers in the FreeCurrency format from a fixed USD-based rate
+ * table (all currencies when {@code currencies} is omitted), and {@code GET /weather?q=City} answers in the
+ * OpenWeather format. {@code /cache/{key}} is a key-value store ({@code GET}, {@code PUT}, {@code DELETE}) that can
+ * stand in for the shared tier of the expense cache ({@code app.expense-cache.remote.url}).
+ * <p>
+ * Every response can be delayed by a fixed latency plus a uniformly random jitter, and a fraction of requests can be
+ * answered with {@code 500} instead, to see how the application behaves when its upstreams are slow or failing. Run
+ * {@link #main} to start the stub on its own, e.g. for an application started separately.
+ */
+public class StubUpstreamServer implements AutoCloseable {
+
+    /**
+     * Units of each currency per 1 USD.
+     */
+    private static final Map<String, Double> USD_RATES = new LinkedHashMap<>();
+
+    static {
+        USD_RATES.put("USD", 1.0);
+        USD_RATES.put("EUR", 0.92);
+        USD_RATES.put("GBP", 0.79);
+        USD_RATES.put("JPY", 149.5);
+        USD_RATES.put("CHF", 0.88);
+        USD_RATES.put("CAD", 1.36);
+        USD_RATES.put("AUD", 1.52);
+        USD_RATES.put("KES", 129.0);
+    }
+
+    private final HttpServer server;
+
+    private final AtomicLong currencyCalls = new AtomicLong();
+
+    private final AtomicLong weatherCalls = new AtomicLong();
+
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    private final AtomicLong cacheCalls = new AtomicLong();
+
+    private final Map<String, String> cacheEntries = new ConcurrentHashMap<>();
+
+    private volatile Duration latency = Duration.ZERO;
+
+    private volatile Duration jitter = Duration.ZERO;
+
+    private volatile double errorRate;
+
+    /**
+     * Starts the stub on the given port (0 picks a free port), answering at once and without errors.
+     */
+    public StubUpstreamServer(int port) throws IOException {
+        this(port, "127.0.0.1");
+    }
+
+    /**
+     * Starts the stub on the given port and address (e.g. "0.0.0.0" to accept remote clients).
+     */
+    public StubUpstreamServer(int port, String address) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/currency", this::currency);
+        server.createContext("/weather", this::weather);
+        server.createContext("/cache/", this::cache);
+        server.start();
+    }
+
+    public String currencyUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/currency";
+    }
+
+    public String weatherUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/weather";
+    }
+
+    public String cacheUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/cache";
+    }
+
+    public long currencyCalls() {
+        return currencyCalls.get();
+    }
+
+    public long weatherCalls() {
+        return weatherCalls.get();
+    }
+
+    public long cacheCalls() {
+        return cacheCalls.get();
+    }
+
+    /**
+     * Keys currently held by the {@code /cache/} store.
+     */
+    public Set<String> cacheKeys() {
+        return cacheEntries.keySet();
+    }
+
+    public long injectedErrors() {
+        return injectedErrors.get();
+    }
+
+    /**
+     * Delays every response by {@code latency} plus a uniformly random extra of up to {@code jitter}.
+     */
+    public StubUpstreamServer withLatency(Duration latency, Duration jitter) {
+        this.latency = latency;
+        this.jitter = jitter;
+        return this;
+    }
+
+    /**
+     * Answers the given fraction (0 to 1) of requests with {@code 500 Internal Server Error}.
+     */
+    public StubUpstreamServer withErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void currency(HttpExchange exchange) throws IOException {
+        currencyCalls.incrementAndGet();
+        if (injectFaults(exchange)) {
+            return;
+        }
+        Map<String, String> query = query(exchange.getRequestURI());
+        String base = query.getOrDefault("base_currency", "USD").toUpperCase(Locale.ROOT);
+        Double baseRate = USD_RATES.get(base);
+        if (baseRate == null) {
+            respond(exchange, 422, "{\"message\":\"The selected base currency is invalid.\"}");
+            return;
+        }
+
+        StringBuilder body = new StringBuilder("{\"data\":{");
+        String targets = query.get("currencies");
+        boolean first = true;
+        for (Map.Entry<String, Double> rate : USD_RATES.entrySet()) {
+            if (targets != null && !targets.toUpperCase(Locale.ROOT).contains(rate.getKey())) {
+                continue;
+            }
+            body.append(first ? "" : ",").append('"').append(rate.getKey()).append("\":")
+                    .append(rate.getValue() / baseRate);
+            first = false;
+        }
+        respond(exchange, 200, body.append("}}").toString());
+    }
+
+    private void weather(HttpExchange exchange) throws IOException {
+        weatherCalls.incrementAndGet();
+        if (injectFaults(exchange)) {
+            return;
+        }
+        String city = query(exchange.getRequestURI()).getOrDefault("q", "");
+        respond(exchange, 200, """
+                {"coord":{"lon":13.41,"lat":52.52},"weather":[{"id":800,"main":"Clear","description":"clear sky",\
+                "icon":"01d"}],"base":"stations","main":{"temp":21.5,"feels_like":21.1,"temp_min":20.2,\
+                "temp_max":22.8,"pressure":1016,"humidity":52},"visibility":10000,"wind":{"speed":3.6,"deg":250},\
+                "clouds":{"all":0},"dt":1721300000,"sys":{"country":"XX","sunrise":1721271000,"sunset":1721329000},\
+                "timezone":7200,"id":2950159,"name":"%s","cod":200}""".formatted(city.replace("\"", "")));
+    }
+
+    private void cache(HttpExchange exchange) throws IOException {
+        cacheCalls.incrementAndGet();
+        if (injectFaults(exchange)) {
+            return;
+        }
+        String key = exchange.getRequestURI().getPath().substring("/cache/".length());
+        switch (exchange.getRequestMethod()) {
+            case "GET" -> {
+                String value = cacheEntries.get(key);
+                respond(exchange, value != null ? 200 : 404, value != null ? value : "{\"message\":\"Not cached\"}");
+            }
+            case "PUT" -> {
+                cacheEntries.put(key, new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+                respond(exchange, 204, null);
+            }
+            case "DELETE" -> respond(exchange, cacheEntries.remove(key) != null ? 204 : 404, null);
+            default -> respond(exchange, 405, "{\"message\":\"Method not allowed\"}");
+        }
+    }
+
+    /**
+     * Applies the configured latency and, for the configured fraction of requests, answers with an error.
+     *
+     * @return whether the request has been answered with an injected error
+     */
+    private boolean injectFaults(HttpExchange exchange) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delayNanos = latency.toNanos() + (jitter.isZero() ? 0 : random.nextLong(jitter.toNanos() + 1));
+        if (delayNanos > 0) {
+            try {
+                Thread.sleep(Duration.ofNanos(delayNanos));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (errorRate > 0 && random.nextDouble() < errorRate) {
+            injectedErrors.incrementAndGet();
+            respond(exchange, 500, "{\"message\":\"Injected failure\"}");
+            return true;
+        }
+        return false;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        if (uri.getRawQuery() == null) {
+            return params;
+        }
+        for (String pair : uri.getRawQuery().split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Runs the stub until the process is stopped. Options: {@code --port=18080}, {@code --address=127.0.0.1},
+     * {@code --latency=0ms}, {@code --jitter=0ms}, {@code --error-rate=0}.
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (arg.startsWith("--") && eq > 2) {
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        StubUpstreamServer stub = new StubUpstreamServer(
+                Integer.parseInt(options.getOrDefault("port", "18080")), options.getOrDefault("address", "127.0.0.1"))
+                .withLatency(DurationStyle.detectAndParse(options.getOrDefault("latency", "0ms")),
+                        DurationStyle.detectAndParse(options.getOrDefault("jitter", "0ms")))
+                .withErrorRate(Double.parseDouble(options.getOrDefault("error-rate", "0")));
+        System.out.println("Stub upstreams listening: " + stub.currencyUrl() + " " + stub.weatherUrl() + " "
+                + stub.cacheUrl());
+    }
+}